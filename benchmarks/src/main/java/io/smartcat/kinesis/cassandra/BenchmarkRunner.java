@@ -0,0 +1,31 @@
+package io.smartcat.kinesis.cassandra;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected by the standard JMH command line options, always with the GC profiler, so
+ * every result includes the allocation rate (<code>gc.alloc.rate</code> and <code>gc.alloc.rate.norm</code>)
+ * next to the throughput.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // prevent class instantiation
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args JMH command line options
+     * @throws Exception if the benchmarks can not be run
+     */
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.amazonaws.services.kinesis.connectors.impl.BasicMemoryBuffer;
+
+/**
+ * Measures {@link DefaultCassandraEmitter#emit(UnmodifiableBuffer)} against a {@link StubSession}, i.e.
+ * statement binding, batching and the bookkeeping of in-flight writes, without the network. Throughput is
+ * reported in rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmitBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int PARTITIONS = 50;
+    private static final int FIELDS = 16;
+
+    @Param({"false", "true"})
+    private boolean batchWrites;
+
+    private StubSession session;
+    private DefaultCassandraEmitter emitter;
+    private UnmodifiableBuffer<List<CassandraRecord>> buffer;
+
+    /**
+     * Creates the emitter and the buffer to emit.
+     */
+    @Setup
+    public void setUp() {
+        final Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_BATCH_WRITES,
+                Boolean.toString(batchWrites));
+        final CassandraKinesisConnectorConfiguration config = Payloads.config(props);
+
+        final CassandraTransformer transformer = new JsonCassandraTransformer();
+        transformer.init(config);
+        final List<List<CassandraRecord>> records = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            records.add(transformer.transform(Payloads.json(i % PARTITIONS, FIELDS, 32, i)));
+        }
+        buffer = new UnmodifiableBuffer<>(new BasicMemoryBuffer<List<CassandraRecord>>(config),
+                Collections.unmodifiableList(records));
+
+        session = new StubSession(Payloads.columnTypes(FIELDS), "id");
+        emitter = new DefaultCassandraEmitter();
+        emitter.init(config, session);
+    }
+
+    /**
+     * Closes the stub session.
+     */
+    @TearDown
+    public void tearDown() {
+        session.close();
+    }
+
+    /**
+     * @return the failed records
+     * @throws IOException if emitting fails
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<List<CassandraRecord>> emit() throws IOException {
+        return emitter.emit(buffer);
+    }
+}
@@ -0,0 +1,69 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JsonCassandraTransformer} over payloads of different field counts and value sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonTransformerBenchmark {
+
+    @Param({"8", "32", "128"})
+    private int fields;
+
+    @Param({"16", "256"})
+    private int textSize;
+
+    private CassandraTransformer transformer;
+    private byte[] payload;
+    private ByteBuffer payloadBuffer;
+    private RecordMetadata metadata;
+
+    /**
+     * Creates the transformer and the payload.
+     */
+    @Setup
+    public void setUp() {
+        transformer = new JsonCassandraTransformer();
+        transformer.init(Payloads.config(new Properties()));
+        payload = Payloads.json(1, fields, textSize, 42);
+        payloadBuffer = ByteBuffer.wrap(payload);
+        metadata = new RecordMetadata("p1", "1", 0, null);
+    }
+
+    /**
+     * @return the transformed payload
+     */
+    @Benchmark
+    public List<CassandraRecord> transformBytes() {
+        return transformer.transform(payload);
+    }
+
+    /**
+     * @return the transformed payload
+     */
+    @Benchmark
+    public List<CassandraRecord> transformByteBuffer() {
+        return transformer.transform(payloadBuffer.duplicate(), metadata);
+    }
+}
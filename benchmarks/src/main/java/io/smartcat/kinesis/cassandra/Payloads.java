@@ -0,0 +1,92 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.datastax.driver.core.DataType;
+
+/**
+ * Generates benchmark input. A payload is a JSON object with an <code>id</code> (the partition key), a
+ * <code>ts</code> epoch timestamp and the given number of additional fields, cycling through text, int,
+ * double and boolean values.
+ */
+final class Payloads {
+
+    private static final DataType[] FIELD_TYPES = {DataType.text(), DataType.cint(), DataType.cdouble(),
+        DataType.cboolean()};
+
+    private Payloads() {
+        // prevent class instantiation
+    }
+
+    /**
+     * Creates a JSON payload.
+     *
+     * @param partition the partition the payload belongs to
+     * @param fields    the number of additional fields
+     * @param textSize  the length of text values
+     * @param seed      the seed of the generated values
+     * @return the UTF-8 encoded payload
+     */
+    static byte[] json(int partition, int fields, int textSize, long seed) {
+        final Random random = new Random(seed);
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"id\":\"p").append(partition).append("\",\"ts\":").append(1480000000000L + seed);
+        for (int i = 0; i < fields; i++) {
+            json.append(",\"f").append(i).append("\":");
+            switch (i % FIELD_TYPES.length) {
+            case 0:
+                json.append('"');
+                for (int c = 0; c < textSize; c++) {
+                    json.append((char) ('a' + random.nextInt(26)));
+                }
+                json.append('"');
+                break;
+            case 1:
+                json.append(random.nextInt(100000));
+                break;
+            case 2:
+                json.append(random.nextDouble() * 1000);
+                break;
+            default:
+                json.append(random.nextBoolean());
+                break;
+            }
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param fields the number of additional fields
+     * @return the column types of the table payloads are written to
+     */
+    static Map<String, DataType> columnTypes(int fields) {
+        final Map<String, DataType> types = new LinkedHashMap<>();
+        types.put("id", DataType.text());
+        types.put("ts", DataType.bigint());
+        for (int i = 0; i < fields; i++) {
+            types.put("f" + i, FIELD_TYPES[i % FIELD_TYPES.length]);
+        }
+        return types;
+    }
+
+    /**
+     * Creates a configuration with the JMX metrics reporter disabled.
+     *
+     * @param properties additional properties
+     * @return the configuration
+     */
+    static CassandraKinesisConnectorConfiguration config(Properties properties) {
+        final Properties props = new Properties();
+        props.putAll(properties);
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_KEYSPACE, "benchmark");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_TABLE, "benchmark");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_METRICS_JMX_ENABLED,
+                "false");
+        return new CassandraKinesisConnectorConfiguration(props, new DefaultAWSCredentialsProviderChain());
+    }
+}
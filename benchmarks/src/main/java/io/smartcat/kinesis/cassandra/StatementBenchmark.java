@@ -0,0 +1,85 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.RegularStatement;
+
+/**
+ * Compares building a CQL statement with {@link CassandraRecord#toCqlStatement()} against binding the record
+ * to a cached prepared statement. Both variants include the serialization of the values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBenchmark {
+
+    @Param({"8", "32"})
+    private int fields;
+
+    private StubSession session;
+    private PreparedStatementCache cache;
+    private CassandraRecord record;
+    private ProtocolVersion protocolVersion;
+    private CodecRegistry codecRegistry;
+
+    /**
+     * Creates the record and the statement cache.
+     */
+    @Setup
+    public void setUp() {
+        final CassandraTransformer transformer = new JsonCassandraTransformer();
+        transformer.init(Payloads.config(new Properties()));
+        record = transformer.transform(Payloads.json(1, fields, 32, 42)).get(0);
+
+        session = new StubSession(Payloads.columnTypes(fields), "id");
+        cache = new PreparedStatementCache(session, 100);
+        protocolVersion = ProtocolVersion.NEWEST_SUPPORTED;
+        codecRegistry = session.getCluster().getConfiguration().getCodecRegistry();
+    }
+
+    /**
+     * Closes the stub session.
+     */
+    @TearDown
+    public void tearDown() {
+        session.close();
+    }
+
+    /**
+     * @param blackhole the blackhole consuming the results
+     */
+    @Benchmark
+    public void builtStatement(Blackhole blackhole) {
+        final RegularStatement statement = (RegularStatement) record.toCqlStatement();
+        blackhole.consume(statement.getQueryString(codecRegistry));
+        blackhole.consume(statement.getValues(protocolVersion, codecRegistry));
+    }
+
+    /**
+     * @param blackhole the blackhole consuming the results
+     */
+    @Benchmark
+    public void preparedStatement(Blackhole blackhole) {
+        blackhole.consume(cache.bind(record));
+    }
+}
@@ -0,0 +1,329 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+import com.datastax.driver.core.AbstractSession;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CloseFuture;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedId;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.MethodInterceptor;
+
+/**
+ * A {@link Session} which prepares INSERT statements locally and completes every execution immediately, so
+ * the client side of the write path can be measured without a Cassandra node. Statements are bound and
+ * serialized by the driver as usual, using the column types given to the constructor.
+ * <p>
+ * The driver has no public constructors for the metadata of a prepared statement, so its bind variables are a
+ * proxy answering from the column names and types, and its id is created without calling a constructor. Mocks
+ * are not used, as they record every call, which would dominate the measured time. The id carries no protocol
+ * version, which is fine for the native types of the benchmark columns, whose serialization does not depend on
+ * it, and the routing key of a bound statement is its serialized partition key value.
+ */
+class StubSession extends AbstractSession {
+    private static final Objenesis OBJENESIS = new ObjenesisStd();
+
+    private final Cluster cluster;
+    private final Map<String, DataType> columnTypes;
+    private final String partitionKey;
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param columnTypes  the types of the target table columns
+     * @param partitionKey the partition key column
+     */
+    StubSession(Map<String, DataType> columnTypes, String partitionKey) {
+        // never connected, it only provides the configuration (protocol version and codecs)
+        this.cluster = Cluster.builder().addContactPoint("127.0.0.1").build();
+        this.columnTypes = columnTypes;
+        this.partitionKey = partitionKey;
+    }
+
+    @Override
+    public String getLoggedKeyspace() {
+        return null;
+    }
+
+    @Override
+    public Session init() {
+        return this;
+    }
+
+    @Override
+    public ListenableFuture<Session> initAsync() {
+        return Futures.immediateFuture(this);
+    }
+
+    @Override
+    public ResultSetFuture executeAsync(Statement statement) {
+        if (statement instanceof BoundStatement) {
+            // serialize the routing key like the token-aware policy would
+            statement.getRoutingKey(cluster.getConfiguration().getProtocolOptions().getProtocolVersion(),
+                    cluster.getConfiguration().getCodecRegistry());
+        }
+        return new CompletedFuture();
+    }
+
+    @Override
+    protected ListenableFuture<PreparedStatement> prepareAsync(String query, Map<String, ByteBuffer> payload) {
+        return Futures.immediateFuture(new StubPreparedStatement(query));
+    }
+
+    @Override
+    public CloseFuture closeAsync() {
+        closed = true;
+        return cluster.closeAsync();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    @Override
+    public State getState() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * A prepared INSERT statement, whose bind variables are the columns listed in the query.
+     */
+    private final class StubPreparedStatement implements PreparedStatement {
+        private final String query;
+        private final ColumnDefinitions variables;
+        private final PreparedId preparedId;
+        private final int routingKeyIndex;
+        private ConsistencyLevel consistencyLevel;
+        private ConsistencyLevel serialConsistencyLevel;
+        private RetryPolicy retryPolicy;
+        private Boolean idempotent;
+
+        StubPreparedStatement(String query) {
+            this.query = query;
+            final String[] columns = query.substring(query.indexOf('(') + 1, query.indexOf(')')).split(",");
+            final List<String> names = new ArrayList<>(columns.length);
+            final List<DataType> types = new ArrayList<>(columns.length);
+            int routingKey = 0;
+            for (String column : columns) {
+                final String name = column.trim().replace("\"", "");
+                if (name.equals(partitionKey)) {
+                    routingKey = names.size();
+                }
+                names.add(name);
+                types.add(columnTypes.getOrDefault(name, DataType.text()));
+            }
+            final Enhancer enhancer = new Enhancer();
+            enhancer.setSuperclass(ColumnDefinitions.class);
+            enhancer.setCallbackType(MethodInterceptor.class);
+            final Factory proxy = (Factory) OBJENESIS.newInstance(enhancer.createClass());
+            proxy.setCallback(0, (MethodInterceptor) (target, method, args, superMethod) -> {
+                switch (method.getName()) {
+                case "size":
+                    return names.size();
+                case "getName":
+                    return names.get((Integer) args[0]);
+                case "getType":
+                    return types.get((Integer) args[0]);
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+                }
+            });
+            this.variables = (ColumnDefinitions) proxy;
+            this.preparedId = OBJENESIS.newInstance(PreparedId.class);
+            this.routingKeyIndex = routingKey;
+        }
+
+        @Override
+        public ColumnDefinitions getVariables() {
+            return variables;
+        }
+
+        @Override
+        public BoundStatement bind(Object... values) {
+            return new StubBoundStatement(this).bind(values);
+        }
+
+        @Override
+        public BoundStatement bind() {
+            return new StubBoundStatement(this);
+        }
+
+        @Override
+        public PreparedStatement setRoutingKey(ByteBuffer routingKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PreparedStatement setRoutingKey(ByteBuffer... routingKeyComponents) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ByteBuffer getRoutingKey() {
+            return null;
+        }
+
+        @Override
+        public PreparedStatement setConsistencyLevel(ConsistencyLevel consistency) {
+            this.consistencyLevel = consistency;
+            return this;
+        }
+
+        @Override
+        public ConsistencyLevel getConsistencyLevel() {
+            return consistencyLevel;
+        }
+
+        @Override
+        public PreparedStatement setSerialConsistencyLevel(ConsistencyLevel serialConsistency) {
+            this.serialConsistencyLevel = serialConsistency;
+            return this;
+        }
+
+        @Override
+        public ConsistencyLevel getSerialConsistencyLevel() {
+            return serialConsistencyLevel;
+        }
+
+        @Override
+        public String getQueryString() {
+            return query;
+        }
+
+        @Override
+        public String getQueryKeyspace() {
+            return null;
+        }
+
+        @Override
+        public PreparedStatement enableTracing() {
+            return this;
+        }
+
+        @Override
+        public PreparedStatement disableTracing() {
+            return this;
+        }
+
+        @Override
+        public boolean isTracing() {
+            return false;
+        }
+
+        @Override
+        public PreparedStatement setRetryPolicy(RetryPolicy policy) {
+            this.retryPolicy = policy;
+            return this;
+        }
+
+        @Override
+        public RetryPolicy getRetryPolicy() {
+            return retryPolicy;
+        }
+
+        @Override
+        public PreparedId getPreparedId() {
+            return preparedId;
+        }
+
+        @Override
+        public Map<String, ByteBuffer> getIncomingPayload() {
+            return null;
+        }
+
+        @Override
+        public Map<String, ByteBuffer> getOutgoingPayload() {
+            return null;
+        }
+
+        @Override
+        public PreparedStatement setOutgoingPayload(Map<String, ByteBuffer> payload) {
+            return this;
+        }
+
+        @Override
+        public CodecRegistry getCodecRegistry() {
+            return cluster.getConfiguration().getCodecRegistry();
+        }
+
+        @Override
+        public PreparedStatement setIdempotent(Boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+
+        @Override
+        public Boolean isIdempotent() {
+            return idempotent;
+        }
+    }
+
+    /**
+     * A bound statement routed by the value of the partition key column, like the driver routes a statement
+     * prepared for a table with a single partition key column.
+     */
+    private static final class StubBoundStatement extends BoundStatement {
+        private final int routingKeyIndex;
+
+        StubBoundStatement(StubPreparedStatement statement) {
+            super(statement);
+            this.routingKeyIndex = statement.routingKeyIndex;
+        }
+
+        @Override
+        public ByteBuffer getRoutingKey(ProtocolVersion protocolVersion, CodecRegistry codecRegistry) {
+            return getBytesUnsafe(routingKeyIndex);
+        }
+    }
+
+    /**
+     * A successfully completed execution with no result.
+     */
+    private static final class CompletedFuture extends AbstractFuture<ResultSet> implements ResultSetFuture {
+
+        CompletedFuture() {
+            set(null);
+        }
+
+        @Override
+        public ResultSet getUninterruptibly() {
+            return null;
+        }
+
+        @Override
+        public ResultSet getUninterruptibly(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}
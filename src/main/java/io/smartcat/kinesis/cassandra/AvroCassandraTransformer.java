@@ -0,0 +1,133 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * This class implements {@link CassandraTransformer} where input records are Avro records in the Avro binary
+ * encoding. Every top-level field of the record schema is treated as a Cassandra table column, and
+ * {@link CassandraRecord} keyspace and table are set using the
+ * {@link CassandraKinesisConnectorConfiguration#cassandraKeyspace} and
+ * {@link CassandraKinesisConnectorConfiguration#cassandraTable}.
+ * <p>
+ * If {@link CassandraKinesisConnectorConfiguration#cassandraAvroSchemaDirectory} is set, every record starts with
+ * a zero byte and the big-endian 4-byte id of its schema, as written by the Confluent serializers, and the schema
+ * is read from the <code>&lt;id&gt;.avsc</code> file of the directory. Otherwise all the records have the schema of
+ * {@link CassandraKinesisConnectorConfiguration#cassandraAvroSchemaFile}. Schemas are parsed once, on first use,
+ * into an {@link AvroSchema} which resolves them against a reader schema of the filtered fields with Avro. A
+ * record with an unknown schema id is counted as a parse failure, and its schema is looked up again for every
+ * such record, so schemas can be added to the directory while the connector runs.
+ * <p>
+ * Fields which are not read by the {@link FilterSpec} are skipped without being decoded, and a record stops
+ * being read at the first field which does not match a predicate of the {@link FilterSpec}.
+ * <p>
+ * The transformer is thread-safe.
+ */
+public class AvroCassandraTransformer implements CassandraTransformer {
+    private static final Log LOGGER = LogFactory.getLog(AvroCassandraTransformer.class);
+
+    private static final byte MAGIC_BYTE = 0;
+    private static final int HEADER_LENGTH = 5;
+
+    private final ConcurrentMap<Integer, AvroSchema> schemas = new ConcurrentHashMap<>();
+
+    private CassandraKinesisConnectorConfiguration config;
+    private Meter parseFailures;
+    private Meter filtered;
+    private FilterSpec filter;
+    private Path schemaDirectory;
+    private AvroSchema schema;
+
+    @Override
+    public void init(CassandraKinesisConnectorConfiguration config) {
+        this.config = config;
+        this.parseFailures = ConnectorMetrics.registry(config)
+                .meter(MetricRegistry.name("transformer", "parseFailures"));
+        this.filtered = ConnectorMetrics.registry(config).meter(MetricRegistry.name("transformer", "filtered"));
+        this.filter = FilterSpec.of(config);
+        if (config.cassandraAvroSchemaDirectory != null) {
+            this.schemaDirectory = Paths.get(config.cassandraAvroSchemaDirectory);
+        } else if (config.cassandraAvroSchemaFile != null) {
+            try {
+                this.schema = load(Paths.get(config.cassandraAvroSchemaFile));
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to load Avro schema " + config.cassandraAvroSchemaFile, e);
+            }
+        } else {
+            throw new IllegalStateException("Either " + CassandraKinesisConnectorConfiguration.ConfigurationOptions
+                    .PROP_CASSANDRA_AVRO_SCHEMA_FILE + " or " + CassandraKinesisConnectorConfiguration
+                    .ConfigurationOptions.PROP_CASSANDRA_AVRO_SCHEMA_DIRECTORY + " has to be set");
+        }
+    }
+
+    @Override
+    public List<CassandraRecord> transform(byte[] record) {
+        return transform(ByteBuffer.wrap(record), null);
+    }
+
+    @Override
+    public List<CassandraRecord> transform(ByteBuffer data, RecordMetadata metadata) {
+        final List<CassandraRecord> output = new ArrayList<>(1);
+        final ByteBuffer in = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            final AvroSchema recordSchema = schemaDirectory == null ? schema : schema(in);
+            final CassandraRecord record = new CassandraRecord(config.cassandraKeyspace, config.cassandraTable);
+            if (recordSchema.read(in, filter, record)) {
+                output.add(record);
+            } else {
+                filtered.mark();
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            parseFailures.mark();
+            LOGGER.warn("Unable to parse as Avro record: " + e.getMessage());
+        }
+        return output;
+    }
+
+    /**
+     * Reads the schema id header of the given record and returns the schema it refers to.
+     */
+    private AvroSchema schema(ByteBuffer in) throws IOException {
+        if (in.remaining() < HEADER_LENGTH || in.get() != MAGIC_BYTE) {
+            throw new IOException("Schema id header expected");
+        }
+        final int id = in.order(ByteOrder.BIG_ENDIAN).getInt();
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        AvroSchema recordSchema = schemas.get(id);
+        if (recordSchema == null) {
+            final Path file = schemaDirectory.resolve(id + ".avsc");
+            if (!Files.isRegularFile(file)) {
+                throw new IOException("Unknown schema id " + id);
+            }
+            recordSchema = load(file);
+            final AvroSchema previous = schemas.putIfAbsent(id, recordSchema);
+            if (previous != null) {
+                recordSchema = previous;
+            }
+        }
+        return recordSchema;
+    }
+
+    private AvroSchema load(Path file) throws IOException {
+        final AvroSchema loaded = AvroSchema.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+                config.cassandraSchemaAware, filter);
+        LOGGER.info("Loaded Avro schema " + loaded.getName() + " from " + file);
+        return loaded;
+    }
+}
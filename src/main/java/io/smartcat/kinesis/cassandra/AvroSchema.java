@@ -0,0 +1,258 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+
+import com.datastax.driver.core.LocalDate;
+
+/**
+ * An Avro record schema with the reader which decodes its records into the values of a {@link CassandraRecord}.
+ * The schema the records were written with is resolved against a reader schema of only the fields which are
+ * projected or constrained by the {@link FilterSpec}, so the other fields are skipped by the
+ * {@link ResolvingDecoder} without being decoded.
+ * <p>
+ * Values are converted to the Java types the emitter binds: <code>decimal</code>, <code>uuid</code>,
+ * <code>date</code> and <code>timestamp-*</code> logical types to {@link BigDecimal}, {@link UUID},
+ * {@link LocalDate} and {@link Date}, <code>time-*</code> to nanoseconds of the day, strings and enums to
+ * {@link String}s and bytes to {@link ByteBuffer}s. Records, arrays and maps are read into maps and lists in
+ * schema-aware mode, and skipped otherwise.
+ */
+final class AvroSchema {
+
+    private final Schema writer;
+    private final boolean schemaAware;
+    private final FieldReader reader;
+    private final ThreadLocal<BinaryDecoder> decoders = new ThreadLocal<>();
+
+    private AvroSchema(Schema writer, Schema projection, boolean schemaAware) {
+        this.writer = writer;
+        this.schemaAware = schemaAware;
+        this.reader = new FieldReader(writer, projection);
+    }
+
+    /**
+     * Parses the given record schema.
+     *
+     * @param json        the schema the records are written with
+     * @param schemaAware whether records, arrays and maps are read
+     * @param filter      the filter applied to the fields
+     * @return the schema
+     * @throws IOException if the schema cannot be parsed or is not a record schema
+     */
+    static AvroSchema parse(String json, boolean schemaAware, FilterSpec filter) throws IOException {
+        final Schema writer;
+        try {
+            writer = new Schema.Parser().parse(json);
+        } catch (AvroRuntimeException e) {
+            throw new IOException("Invalid Avro schema: " + e.getMessage(), e);
+        }
+        if (writer.getType() != Schema.Type.RECORD) {
+            throw new IOException("Avro record schema expected");
+        }
+        final List<Schema.Field> fields = new ArrayList<>();
+        for (Schema.Field field : writer.getFields()) {
+            if (filter.isConstrained(field.name())
+                    || filter.isProjected(field.name()) && (schemaAware || !isNested(field.schema()))) {
+                fields.add(new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultVal(),
+                        field.order()));
+            }
+        }
+        final Schema projection = Schema.createRecord(writer.getName(), writer.getDoc(), writer.getNamespace(),
+                writer.isError(), fields);
+        return new AvroSchema(writer, projection, schemaAware);
+    }
+
+    /**
+     * Reads a record into the given Cassandra record, stopping at the first field which does not match a
+     * predicate of the given filter.
+     *
+     * @param in     the input, positioned at the record
+     * @param filter the filter the schema was parsed with
+     * @param record the record to fill
+     * @return <code>false</code> if the record is filtered out
+     * @throws IOException if the record is malformed
+     */
+    boolean read(ByteBuffer in, FilterSpec filter, CassandraRecord record) throws IOException {
+        final BinaryDecoder decoder;
+        if (in.hasArray()) {
+            decoder = DecoderFactory.get().binaryDecoder(in.array(), in.arrayOffset() + in.position(),
+                    in.remaining(), decoders.get());
+        } else {
+            final byte[] bytes = new byte[in.remaining()];
+            in.duplicate().get(bytes);
+            decoder = DecoderFactory.get().binaryDecoder(bytes, decoders.get());
+        }
+        decoders.set(decoder);
+        try {
+            return reader.read(decoder, filter, record);
+        } catch (AvroRuntimeException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the record name
+     */
+    String getName() {
+        return writer.getFullName();
+    }
+
+    private Object toValue(Schema schema, Object value) {
+        if (value == null) {
+            return null;
+        }
+        final LogicalType logicalType = schema.getLogicalType();
+        switch (schema.getType()) {
+        case UNION:
+            return toValue(schema.getTypes().get(GenericData.get().resolveUnion(schema, value)), value);
+        case INT:
+            if (logicalType instanceof LogicalTypes.Date) {
+                return LocalDate.fromDaysSinceEpoch((Integer) value);
+            }
+            if (logicalType instanceof LogicalTypes.TimeMillis) {
+                return (Integer) value * 1000000L;
+            }
+            return value;
+        case LONG:
+            if (logicalType instanceof LogicalTypes.TimestampMillis) {
+                return new Date((Long) value);
+            }
+            if (logicalType instanceof LogicalTypes.TimestampMicros) {
+                return new Date(Math.floorDiv((Long) value, 1000L));
+            }
+            if (logicalType instanceof LogicalTypes.TimeMicros) {
+                return (Long) value * 1000L;
+            }
+            return value;
+        case STRING:
+            return logicalType != null && "uuid".equals(logicalType.getName()) ? UUID.fromString(value.toString())
+                    : value.toString();
+        case ENUM:
+            return value.toString();
+        case BYTES:
+            return decimal(schema, (ByteBuffer) value);
+        case FIXED:
+            return decimal(schema, ByteBuffer.wrap(((GenericFixed) value).bytes()));
+        case RECORD:
+            if (!schemaAware) {
+                return null;
+            }
+            final Map<String, Object> fields = new LinkedHashMap<>();
+            for (Schema.Field field : schema.getFields()) {
+                final Object fieldValue = toValue(field.schema(), ((IndexedRecord) value).get(field.pos()));
+                if (fieldValue != null) {
+                    fields.put(field.name(), fieldValue);
+                }
+            }
+            return fields;
+        case ARRAY:
+            if (!schemaAware) {
+                return null;
+            }
+            final List<Object> list = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                list.add(toValue(schema.getElementType(), element));
+            }
+            return list;
+        case MAP:
+            if (!schemaAware) {
+                return null;
+            }
+            final Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(entry.getKey().toString(), toValue(schema.getValueType(), entry.getValue()));
+            }
+            return map;
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * Reads a <code>decimal</code> also when Avro drops it as invalid for lacking a precision, which the Cassandra
+     * <code>decimal</code> type does not have either.
+     */
+    private static Object decimal(Schema schema, ByteBuffer bytes) {
+        if (!"decimal".equals(schema.getProp("logicalType"))) {
+            return bytes;
+        }
+        final Object scale = schema.getObjectProp("scale");
+        final byte[] unscaled = new byte[bytes.remaining()];
+        bytes.duplicate().get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale instanceof Integer ? (Integer) scale : 0);
+    }
+
+    /**
+     * @return whether the values of the given type are only records, arrays or maps, which are not read unless
+     *         in schema-aware mode
+     */
+    private static boolean isNested(Schema schema) {
+        switch (schema.getType()) {
+        case RECORD:
+        case ARRAY:
+        case MAP:
+            return true;
+        case UNION:
+            boolean nested = false;
+            for (Schema type : schema.getTypes()) {
+                if (type.getType() != Schema.Type.NULL && !isNested(type)) {
+                    return false;
+                }
+                nested |= type.getType() != Schema.Type.NULL;
+            }
+            return nested;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Reads the fields of the reader schema one by one, so a record can be rejected by the filter before its
+     * remaining fields are decoded.
+     */
+    private final class FieldReader extends GenericDatumReader<Object> {
+
+        FieldReader(Schema writer, Schema reader) {
+            super(writer, reader);
+        }
+
+        boolean read(BinaryDecoder decoder, FilterSpec filter, CassandraRecord record) throws IOException {
+            final ResolvingDecoder in = getResolver(getSchema(), getExpected());
+            in.configure(decoder);
+            int matched = 0;
+            for (Schema.Field field : in.readFieldOrder()) {
+                final Object value = AvroSchema.this.toValue(field.schema(), read(null, field.schema(), in));
+                if (filter.isConstrained(field.name())) {
+                    if (!filter.accepts(field.name(), value)) {
+                        return false;
+                    }
+                    matched++;
+                }
+                if (filter.isProjected(field.name()) && value != null) {
+                    record.setValue(field.name(), value);
+                }
+            }
+            return matched >= filter.getConstrainedFieldCount();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * The progress of a {@link CassandraBackfill}, kept in a properties file which maps the absolute path of every
+ * file to the number of its records written so far, or to <code>done</code> once the whole file is written. The
+ * file is rewritten atomically, through a temporary file, on every update, so a backfill can be resumed after a
+ * crash. Records after the saved position may already have been written, so records are written at least once.
+ * Without a file, the progress is not kept.
+ */
+final class BackfillCheckpoint {
+
+    private static final String DONE = "done";
+
+    private final Path file;
+    private final Properties progress = new Properties();
+
+    /**
+     * Constructor.
+     *
+     * @param file the checkpoint file, or <code>null</code>
+     * @throws IOException if the existing checkpoint file cannot be read
+     */
+    BackfillCheckpoint(Path file) throws IOException {
+        this.file = file;
+        if (file != null && Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                progress.load(in);
+            }
+        }
+    }
+
+    /**
+     * @param input the input file
+     * @return whether all the records of the file are written
+     */
+    synchronized boolean isDone(Path input) {
+        return DONE.equals(progress.getProperty(key(input)));
+    }
+
+    /**
+     * @param input the input file
+     * @return the number of records of the file written so far
+     */
+    synchronized long getPosition(Path input) {
+        final String position = progress.getProperty(key(input));
+        return position == null || DONE.equals(position) ? 0 : Long.parseLong(position);
+    }
+
+    /**
+     * Records that the given number of records of the file are written.
+     *
+     * @param input    the input file
+     * @param position the number of records written
+     * @throws IOException if the checkpoint file cannot be written
+     */
+    synchronized void update(Path input, long position) throws IOException {
+        if (!isDone(input) && position > getPosition(input)) {
+            progress.setProperty(key(input), Long.toString(position));
+            save();
+        }
+    }
+
+    /**
+     * Records that all the records of the file are written.
+     *
+     * @param input the input file
+     * @throws IOException if the checkpoint file cannot be written
+     */
+    synchronized void done(Path input) throws IOException {
+        progress.setProperty(key(input), DONE);
+        save();
+    }
+
+    private void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            progress.store(out, "Cassandra backfill progress");
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(Path input) {
+        return input.toAbsolutePath().normalize().toString();
+    }
+}
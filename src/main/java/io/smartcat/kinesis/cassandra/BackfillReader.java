@@ -0,0 +1,162 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the records of an archive file for a {@link CassandraBackfill}. Files starting with the gzip magic bytes
+ * are decompressed while they are read, whatever their name. The records of a file are either its non-blank
+ * lines, such as newline-delimited JSON, or its top-level JSON objects and arrays, separated by any whitespace or
+ * by nothing at all, as Kinesis Data Firehose writes them to S3. JSON records are delimited by tracking the
+ * nesting of brackets outside of strings, without parsing them, so their bytes are passed on unchanged.
+ */
+final class BackfillReader implements Closeable {
+
+    /**
+     * The framing of the records of a file.
+     */
+    enum Format {
+        /**
+         * Every non-blank line is a record.
+         */
+        LINES,
+        /**
+         * Every top-level JSON object or array is a record.
+         */
+        JSON;
+
+        /**
+         * Parses the given format name, ignoring case.
+         *
+         * @param name the format name
+         * @return the format
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        static Format of(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    private final InputStream in;
+    private final Format format;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+
+    /**
+     * Constructor.
+     *
+     * @param in     the file contents, decompressed
+     * @param format the framing of the records
+     */
+    BackfillReader(InputStream in, Format format) {
+        this.in = in;
+        this.format = format;
+    }
+
+    /**
+     * Opens the given file.
+     *
+     * @param file   the file
+     * @param format the framing of the records
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    static BackfillReader open(Path file, Format format) throws IOException {
+        final BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        in.mark(2);
+        final boolean gzip = in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+        in.reset();
+        return new BackfillReader(gzip ? new BufferedInputStream(new GZIPInputStream(in, 64 * 1024), 64 * 1024)
+                : in, format);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the record data, or <code>null</code> at the end of the file
+     * @throws IOException if the file cannot be read, or ends within a JSON record
+     */
+    byte[] next() throws IOException {
+        return format == Format.LINES ? nextLine() : nextJson();
+    }
+
+    private byte[] nextLine() throws IOException {
+        record.reset();
+        boolean blank = true;
+        for (int b = in.read(); b >= 0; b = in.read()) {
+            if (b == '\n') {
+                if (!blank) {
+                    return trimmed();
+                }
+                record.reset();
+                continue;
+            }
+            blank &= Character.isWhitespace(b);
+            record.write(b);
+        }
+        return blank ? null : trimmed();
+    }
+
+    private byte[] trimmed() {
+        final byte[] line = record.toByteArray();
+        int end = line.length;
+        while (end > 0 && line[end - 1] == '\r') {
+            end--;
+        }
+        if (end == line.length) {
+            return line;
+        }
+        final byte[] trimmed = new byte[end];
+        System.arraycopy(line, 0, trimmed, 0, end);
+        return trimmed;
+    }
+
+    private byte[] nextJson() throws IOException {
+        record.reset();
+        int b = in.read();
+        while (b >= 0 && Character.isWhitespace(b)) {
+            b = in.read();
+        }
+        if (b < 0) {
+            return null;
+        }
+        if (b != '{' && b != '[') {
+            throw new IOException("JSON object or array expected");
+        }
+        int depth = 0;
+        boolean string = false;
+        boolean escape = false;
+        for (; b >= 0; b = in.read()) {
+            record.write(b);
+            if (string) {
+                if (escape) {
+                    escape = false;
+                } else if (b == '\\') {
+                    escape = true;
+                } else if (b == '"') {
+                    string = false;
+                }
+            } else if (b == '"') {
+                string = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if ((b == '}' || b == ']') && --depth == 0) {
+                return record.toByteArray();
+            }
+        }
+        throw new IOException("Unexpected end of JSON record");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,258 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.kinesis.clientlibrary.exceptions.InvalidStateException;
+import com.amazonaws.services.kinesis.clientlibrary.interfaces.IRecordProcessorCheckpointer;
+import com.amazonaws.services.kinesis.clientlibrary.lib.worker.ShutdownReason;
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IEmitter;
+import com.amazonaws.services.kinesis.model.Record;
+
+/**
+ * Writes the records of archived files to Cassandra, e.g. to rebuild a table without replaying the stream. Every
+ * file is read by a {@link BackfillReader} and processed by its own {@link CassandraRecordProcessor}, created by
+ * the same {@link CassandraConnectorPipeline} as the record processors of the stream, so the records are
+ * filtered, transformed, routed, buffered and emitted exactly as when they are read from Kinesis. The records are
+ * handed to the record processor in batches of {@link CassandraKinesisConnectorConfiguration#MAX_RECORDS},
+ * like <code>GetRecords</code> batches, and
+ * {@link CassandraKinesisConnectorConfiguration#cassandraBackfillReaders} files are processed at once. Every reader
+ * thread keeps a single emitter for the whole run, so its session, prepared statements and table metadata are
+ * reused by all the files it reads.
+ * <p>
+ * A file with records handed to {@link CassandraEmitter#fail(List)} is not complete: its checkpoint is not advanced
+ * past the failure, and the run returns <code>false</code>.
+ * <p>
+ * The partition key of a record is the name of its file, and its sequence number is its position in the file,
+ * starting at 1. The records have no arrival timestamp. The checkpoints of the record processors are saved in a
+ * {@link BackfillCheckpoint}, so with
+ * {@link CassandraKinesisConnectorConfiguration#cassandraBackfillCheckpointFile} set, the files completed by a
+ * previous run are skipped, and the other files are read from their last checkpoint.
+ */
+public class CassandraBackfill {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CassandraBackfill.class);
+
+    private final CassandraKinesisConnectorConfiguration config;
+    private final CassandraConnectorPipeline pipeline;
+    private final BackfillReader.Format format;
+    private final BackfillCheckpoint checkpoint;
+
+    /**
+     * Constructor.
+     *
+     * @param config actual configuration
+     * @throws IOException if the checkpoint file cannot be read
+     */
+    public CassandraBackfill(CassandraKinesisConnectorConfiguration config) throws IOException {
+        this.config = config;
+        this.pipeline = new CassandraConnectorPipeline(config, ConnectorMetrics.registry(config));
+        this.format = BackfillReader.Format.of(config.cassandraBackfillFormat);
+        this.checkpoint = new BackfillCheckpoint(config.cassandraBackfillCheckpointFile == null ? null
+                : Paths.get(config.cassandraBackfillCheckpointFile));
+    }
+
+    /**
+     * Writes the records of the given files, and of the files found in the given directories and their
+     * subdirectories, in the order of their paths.
+     *
+     * @param paths the files and directories
+     * @return <code>true</code> if all the files were written completely
+     * @throws IOException if a directory cannot be listed
+     */
+    public boolean run(List<Path> paths) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            try (Stream<Path> tree = Files.walk(path)) {
+                files.addAll(tree.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+            }
+        }
+        final int readers = config.cassandraBackfillReaders > 0 ? config.cassandraBackfillReaders
+                : Runtime.getRuntime().availableProcessors();
+        LOGGER.info("Backfilling {} files with {} readers", files.size(), readers);
+
+        final AtomicInteger threads = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(readers, runnable -> {
+            final Thread thread = new Thread(runnable, "backfill-reader-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final List<IEmitter<List<CassandraRecord>>> emitters = Collections.synchronizedList(new ArrayList<>());
+        final ThreadLocal<IEmitter<List<CassandraRecord>>> readerEmitter = ThreadLocal.withInitial(() -> {
+            final IEmitter<List<CassandraRecord>> emitter = pipeline.getEmitter(config);
+            emitters.add(emitter);
+            return emitter;
+        });
+        final List<Future<Boolean>> results = new ArrayList<>(files.size());
+        for (Path file : files) {
+            if (checkpoint.isDone(file)) {
+                LOGGER.info("Skipping {}, completed by a previous run", file);
+                continue;
+            }
+            results.add(executor.submit(() -> backfill(file, new FileEmitter(readerEmitter.get()))));
+        }
+        executor.shutdown();
+
+        boolean complete = true;
+        try {
+            for (Future<Boolean> result : results) {
+                try {
+                    complete &= result.get();
+                } catch (ExecutionException e) {
+                    complete = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    executor.shutdownNow();
+                    return false;
+                }
+            }
+        } finally {
+            for (IEmitter<List<CassandraRecord>> emitter : emitters) {
+                emitter.shutdown();
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Writes the records of the given file, after its last checkpoint.
+     */
+    private boolean backfill(Path file, FileEmitter emitter) {
+        final String name = file.getFileName().toString();
+        final long position = checkpoint.getPosition(file);
+        final IRecordProcessorCheckpointer checkpointer = new FileCheckpointer(file, emitter);
+        final CassandraRecordProcessor processor = pipeline.createProcessor(emitter);
+        processor.initialize(name);
+        LOGGER.info("Backfilling {} from record {}", file, position + 1);
+
+        try (BackfillReader reader = BackfillReader.open(file, format)) {
+            List<Record> batch = new ArrayList<>();
+            long sequenceNumber = 0;
+            for (byte[] data = reader.next(); data != null; data = reader.next()) {
+                if (++sequenceNumber <= position) {
+                    continue;
+                }
+                batch.add(new Record().withData(ByteBuffer.wrap(data)).withPartitionKey(name)
+                        .withSequenceNumber(Long.toString(sequenceNumber)));
+                if (batch.size() >= config.MAX_RECORDS) {
+                    processor.processRecords(batch, checkpointer);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                processor.processRecords(batch, checkpointer);
+            }
+            processor.shutdown(checkpointer, ShutdownReason.TERMINATE);
+            if (emitter.failedRows.get() > 0) {
+                LOGGER.error("Failed to write {} rows of {}, resume from its last checkpoint",
+                        emitter.failedRows.get(), file);
+                return false;
+            }
+            LOGGER.info("Backfilled {} records of {}", sequenceNumber - position, file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to backfill " + file + ", resume from its last checkpoint", e);
+            processor.shutdown(checkpointer, ShutdownReason.ZOMBIE);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the records of a file with the emitter of its reader thread, which stays open after the file is
+     * processed, and counts the rows which could not be written.
+     */
+    private static final class FileEmitter implements IEmitter<List<CassandraRecord>> {
+        private final IEmitter<List<CassandraRecord>> emitter;
+        private final AtomicLong failedRows = new AtomicLong();
+
+        private FileEmitter(IEmitter<List<CassandraRecord>> emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer)
+                throws IOException {
+            return emitter.emit(buffer);
+        }
+
+        @Override
+        public void fail(List<List<CassandraRecord>> records) {
+            long rows = 0;
+            for (List<CassandraRecord> cassRecords : records) {
+                rows += cassRecords.size();
+            }
+            failedRows.addAndGet(rows);
+            emitter.fail(records);
+        }
+
+        @Override
+        public void shutdown() {
+            // the emitter is shut down at the end of the run
+        }
+    }
+
+    /**
+     * Saves the checkpoints of the record processor of a file in the {@link BackfillCheckpoint}, until rows of the
+     * file fail to be written.
+     */
+    private final class FileCheckpointer implements IRecordProcessorCheckpointer {
+        private final Path file;
+        private final FileEmitter emitter;
+
+        private FileCheckpointer(Path file, FileEmitter emitter) {
+            this.file = file;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void checkpoint() throws InvalidStateException {
+            if (emitter.failedRows.get() > 0) {
+                return;
+            }
+            try {
+                checkpoint.done(file);
+            } catch (IOException e) {
+                throw new InvalidStateException("Unable to save backfill checkpoint", e);
+            }
+        }
+
+        @Override
+        public void checkpoint(Record record) throws InvalidStateException {
+            checkpoint(record.getSequenceNumber());
+        }
+
+        @Override
+        public void checkpoint(String sequenceNumber) throws InvalidStateException {
+            if (emitter.failedRows.get() > 0) {
+                return;
+            }
+            try {
+                checkpoint.update(file, Long.parseLong(sequenceNumber));
+            } catch (IOException e) {
+                throw new InvalidStateException("Unable to save backfill checkpoint", e);
+            }
+        }
+
+        @Override
+        public void checkpoint(String sequenceNumber, long subSequenceNumber) throws InvalidStateException {
+            checkpoint(sequenceNumber);
+        }
+    }
+}
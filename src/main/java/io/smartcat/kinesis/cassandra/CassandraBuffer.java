@@ -0,0 +1,30 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.List;
+
+import com.amazonaws.services.kinesis.connectors.interfaces.IBuffer;
+
+/**
+ * An implementation of this interface buffers transformed {@link CassandraRecord}s of a single shard
+ * and decides when they should be flushed to the {@link CassandraEmitter}.
+ *
+ * @see IBuffer
+ */
+public interface CassandraBuffer extends IBuffer<List<CassandraRecord>> {
+    /**
+     * This method is called after an instance construction and before any other
+     * action in order to complete any necessary initialization steps.
+     *
+     * @param config actual configuration
+     */
+    void init(CassandraKinesisConnectorConfiguration config);
+
+    /**
+     * Called by the record processor with the current lag of the shard before every batch of records is
+     * buffered, so that implementations may flush sooner when the shard is lagging. Ignored by default.
+     *
+     * @param millisBehindLatest the estimated time the shard is behind the tip of the stream, in milliseconds
+     */
+    default void setMillisBehindLatest(long millisBehindLatest) {
+    }
+}
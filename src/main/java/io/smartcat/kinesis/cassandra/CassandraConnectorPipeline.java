@@ -0,0 +1,256 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.kinesis.clientlibrary.types.UserRecord;
+import com.amazonaws.services.kinesis.connectors.KinesisConnectorConfiguration;
+import com.amazonaws.services.kinesis.connectors.interfaces.IBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.ICollectionTransformer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IEmitter;
+import com.amazonaws.services.kinesis.connectors.interfaces.IFilter;
+import com.amazonaws.services.kinesis.connectors.interfaces.IKinesisConnectorPipeline;
+import com.amazonaws.services.kinesis.connectors.interfaces.ITransformerBase;
+import com.amazonaws.services.kinesis.model.Record;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+
+/**
+ * The {@link IKinesisConnectorPipeline} of the connector, which creates the configured {@link CassandraEmitter},
+ * {@link CassandraBuffer}, {@link CassandraTransformer} and {@link CassandraFilter}, and the
+ * {@link CassandraRecordProcessor}s using them. It is shared by the {@link CassandraKinesisConnectorExecutor}
+ * and the {@link CassandraBackfill}, so records read from files are mapped exactly as the records of the stream
+ * (see {@link CassandraKinesisConnectorExecutor} for the transformation steps).
+ */
+class CassandraConnectorPipeline
+        implements IKinesisConnectorPipeline<List<CassandraRecord>, List<CassandraRecord>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CassandraConnectorPipeline.class);
+
+    /**
+     * Largest TTL accepted by Cassandra, 20 years in seconds.
+     */
+    private static final int MAX_TTL = 630720000;
+
+    private final CassandraKinesisConnectorConfiguration config;
+    private final MetricRegistry metrics;
+    private final ColumnConverter timestampConverter =
+            ColumnConverters.forType(DataType.timestamp(), CodecRegistry.DEFAULT_INSTANCE);
+
+    /**
+     * Constructor.
+     *
+     * @param config  actual configuration
+     * @param metrics the metric registry
+     */
+    CassandraConnectorPipeline(CassandraKinesisConnectorConfiguration config, MetricRegistry metrics) {
+        this.config = config;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a record processor with a new emitter, buffer, transformer and filter.
+     *
+     * @return the record processor
+     */
+    CassandraRecordProcessor createProcessor() {
+        return createProcessor(getEmitter(config));
+    }
+
+    /**
+     * Creates a record processor with the given emitter and a new buffer, transformer and filter.
+     *
+     * @param emitter the emitter, shut down with the record processor
+     * @return the record processor
+     */
+    CassandraRecordProcessor createProcessor(IEmitter<List<CassandraRecord>> emitter) {
+        return new CassandraRecordProcessor(getBuffer(config), getFilter(config), emitter, getTransformer(config),
+                config, metrics);
+    }
+
+    @Override
+    public IEmitter<List<CassandraRecord>> getEmitter(KinesisConnectorConfiguration configuration) {
+        LOGGER.info("Creating CassandraEmitter for class name {}", config.cassandraEmitterClass);
+        CassandraEmitter emitter = null;
+        try {
+            emitter = (CassandraEmitter) Class.forName(config.cassandraEmitterClass).newInstance();
+            emitter.init(config);
+        } catch (Exception e) {
+            LOGGER.error("Failed to create CassandraEmitter by class name", e);
+        }
+        return emitter;
+    }
+
+    @Override
+    public IBuffer<List<CassandraRecord>> getBuffer(KinesisConnectorConfiguration configuration) {
+        LOGGER.info("Creating CassandraBuffer for class name {}", config.cassandraBufferClass);
+        CassandraBuffer buffer;
+        try {
+            buffer = (CassandraBuffer) Class.forName(config.cassandraBufferClass).newInstance();
+            buffer.init(config);
+        } catch (Exception e) {
+            LOGGER.error("Failed to create CassandraBuffer by class name", e);
+            throw new IllegalStateException(e);
+        }
+        return buffer;
+    }
+
+    @Override
+    public ITransformerBase<List<CassandraRecord>, List<CassandraRecord>> getTransformer(
+            KinesisConnectorConfiguration configuration) {
+        LOGGER.info("Creating CassandraTransformer for class name {}", config.cassandraTransformerClass);
+        CassandraTransformer transformer;
+        try {
+            transformer =
+                    (CassandraTransformer) Class.forName(config.cassandraTransformerClass).newInstance();
+            transformer.init(config);
+        } catch (Exception e) {
+            LOGGER.error("Failed to create CassandraTransformer by class name", e);
+            throw new IllegalStateException(e);
+        }
+
+        final Timer transformTime = metrics.timer(MetricRegistry.name("transformer", "time"));
+        final Meter transformedRows = metrics.meter(MetricRegistry.name("transformer", "rows"));
+        final Meter filteredRecords = metrics.meter(MetricRegistry.name("transformer", "filtered"));
+        final Meter parseFailures = metrics.meter(MetricRegistry.name("transformer", "parseFailures"));
+        final FilterSpec filter = FilterSpec.of(config);
+        final RecordRouter router = config.cassandraRoutes.isEmpty() ? null : new RecordRouter(
+                config.cassandraRoutes, metrics.meter(MetricRegistry.name("transformer", "unrouted")));
+        final ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>> recordTransformer =
+                new ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>>() {
+
+            @Override
+            public List<CassandraRecord> fromClass(List<CassandraRecord> records) throws IOException {
+                return records;
+            }
+
+            @Override
+            public Collection<List<CassandraRecord>> toClass(Record record) throws IOException {
+                if (!config.cassandraDeaggregateRecords || record instanceof UserRecord) {
+                    return Collections.singletonList(transform(record));
+                }
+                final List<UserRecord> userRecords = UserRecord.deaggregate(Collections.singletonList(record));
+                final List<List<CassandraRecord>> output = new ArrayList<>(userRecords.size());
+                for (UserRecord userRecord : userRecords) {
+                    output.add(transform(userRecord));
+                }
+                return output;
+            }
+
+            private List<CassandraRecord> transform(Record record) throws IOException {
+                final RecordMetadata metadata = RecordMetadata.of(record);
+                if (!filter.accepts(metadata)) {
+                    filteredRecords.mark();
+                    return Collections.emptyList();
+                }
+                final List<CassandraRecord> output;
+                final Timer.Context context = transformTime.time();
+                try {
+                    output = transformer.transform(record.getData().duplicate(), metadata);
+                } finally {
+                    context.stop();
+                }
+                transformedRows.mark(output.size());
+                List<CassandraRecord> valid = output;
+                for (int i = 0; i < output.size(); i++) {
+                    final CassandraRecord outRecord = output.get(i);
+                    setMetadataColumns(outRecord, metadata);
+                    if (setWriteOptions(outRecord)) {
+                        if (valid != output) {
+                            valid.add(outRecord);
+                        }
+                    } else {
+                        // only the invalid row is dropped, the other rows of the Kinesis record are kept
+                        parseFailures.mark();
+                        if (valid == output) {
+                            valid = new ArrayList<>(output.subList(0, i));
+                        }
+                    }
+                }
+                return router == null ? valid : router.route(valid, metadata);
+            }
+
+        };
+        if (config.cassandraTransformParallelism > 0) {
+            return new ParallelTransformer(recordTransformer, config.cassandraTransformParallelism);
+        }
+        return recordTransformer;
+    }
+
+    @Override
+    public IFilter<List<CassandraRecord>> getFilter(KinesisConnectorConfiguration configuration) {
+        LOGGER.info("Creating CassandraFilter for class name {}", config.cassandraFilterClass);
+        CassandraFilter filter;
+        try {
+            filter = (CassandraFilter) Class.forName(config.cassandraFilterClass).newInstance();
+            filter.init(config);
+        } catch (Exception e) {
+            LOGGER.error("Failed to create CassandraFilter by class name", e);
+            throw new IllegalStateException(e);
+        }
+        return filter;
+    }
+
+    private void setMetadataColumns(CassandraRecord record, RecordMetadata metadata) {
+        if (config.cassandraPartitionKeyColumn != null) {
+            record.setValue(config.cassandraPartitionKeyColumn, metadata.getPartitionKey());
+        }
+        if (config.cassandraSequenceNumberColumn != null) {
+            record.setValue(config.cassandraSequenceNumberColumn, metadata.getSequenceNumber());
+        }
+        if (config.cassandraArrivalTimestampColumn != null && metadata.getApproximateArrivalTimestamp() != null) {
+            record.setValue(config.cassandraArrivalTimestampColumn, metadata.getApproximateArrivalTimestamp());
+        }
+        if (config.cassandraArrivalWriteTimestamp && metadata.getApproximateArrivalTimestamp() != null) {
+            record.setTimestamp(TimeUnit.MILLISECONDS.toMicros(metadata.getApproximateArrivalTimestamp().getTime()));
+        }
+    }
+
+    /**
+     * Sets the TTL and write timestamp of the given record from its fields.
+     *
+     * @return <code>false</code> if the TTL is not a whole number of seconds from 0 to {@link #MAX_TTL} or the
+     *         timestamp cannot be converted, so the record has to be dropped
+     */
+    private boolean setWriteOptions(CassandraRecord record) {
+        final Object ttl = config.cassandraTtlField == null ? null : record.removeValue(config.cassandraTtlField);
+        if (ttl != null) {
+            final int seconds;
+            try {
+                seconds = new BigDecimal(ttl.toString().trim()).intValueExact();
+            } catch (NumberFormatException | ArithmeticException e) {
+                LOGGER.warn("Dropping record with invalid TTL {}: {}", ttl, record);
+                return false;
+            }
+            if (seconds < 0 || seconds > MAX_TTL) {
+                LOGGER.warn("Dropping record with TTL {} out of range 0..{}: {}", ttl, MAX_TTL, record);
+                return false;
+            }
+            record.setTtl(seconds);
+        }
+        final Object timestamp =
+                config.cassandraTimestampField == null ? null : record.removeValue(config.cassandraTimestampField);
+        if (timestamp != null) {
+            try {
+                record.setTimestamp(TimeUnit.MILLISECONDS.toMicros(((Date) timestampConverter.convert(timestamp))
+                        .getTime()));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                LOGGER.warn("Dropping record with invalid write timestamp {}: {}", timestamp, record);
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.List;
+
+import com.amazonaws.services.kinesis.connectors.interfaces.IFilter;
+
+/**
+ * An implementation of this interface decides which transformed {@link CassandraRecord}s of a Kinesis record
+ * are buffered and emitted.
+ *
+ * @see IFilter
+ */
+public interface CassandraFilter extends IFilter<List<CassandraRecord>> {
+    /**
+     * This method is called after an instance construction and before any other
+     * action in order to complete any necessary initialization steps.
+     *
+     * @param config actual configuration
+     */
+    void init(CassandraKinesisConnectorConfiguration config);
+}
@@ -3,6 +3,10 @@ package io.smartcat.kinesis.cassandra;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.slf4j.Logger;
@@ -13,7 +17,9 @@ import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 /**
  * Cassandra Kinesis connector based on {@link CassandraKinesisConnectorExecutor}. Connector properties
  * are load from <code>cassandra-kinesis-connector.properties</code> if present. AWS
- * credentials are provided using {@link DefaultAWSCredentialsProviderChain}.
+ * credentials are provided using {@link DefaultAWSCredentialsProviderChain}. Started with
+ * <code>backfill &lt;path&gt;...</code>, it writes the records of the given files and directories with a
+ * {@link CassandraBackfill} instead of reading the stream, and exits once they are written.
  */
 public class CassandraKinesisConnector {
     private static final Logger LOGGER = LoggerFactory.getLogger(CassandraKinesisConnector.class);
@@ -30,7 +36,8 @@ public class CassandraKinesisConnector {
      * @param args command line parameters
      */
     public static void main(String[] args) {
-        LOGGER.info("Starting Cassandra Kinesis connector.");
+        final boolean backfill = args.length > 0 && "backfill".equals(args[0]);
+        LOGGER.info(backfill ? "Starting Cassandra backfill." : "Starting Cassandra Kinesis connector.");
 
         Properties props = new Properties();
         try {
@@ -42,8 +49,24 @@ public class CassandraKinesisConnector {
 
         CassandraKinesisConnectorConfiguration conf = new CassandraKinesisConnectorConfiguration(props,
                 new DefaultAWSCredentialsProviderChain());
+        if (backfill) {
+            System.exit(backfill(conf, args) ? 0 : 1);
+        }
         CassandraKinesisConnectorExecutor executor = new CassandraKinesisConnectorExecutor(conf);
 
         (new Thread(executor)).start();
     }
+
+    private static boolean backfill(CassandraKinesisConnectorConfiguration conf, String[] args) {
+        final List<Path> paths = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            paths.add(Paths.get(args[i]));
+        }
+        try {
+            return new CassandraBackfill(conf).run(paths);
+        } catch (IOException e) {
+            LOGGER.error("Backfill failed", e);
+            return false;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package io.smartcat.kinesis.cassandra;
 
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.commons.logging.Log;
@@ -32,6 +33,20 @@ public class CassandraKinesisConnectorConfiguration extends KinesisConnectorConf
      */
     public final String cassandraEmitterClass;
 
+    /**
+     * FQDN of a Java class that implements {@link CassandraBuffer}. It buffers transformed
+     * {@link CassandraRecord}s until they are flushed to the emitter. The default value is
+     * {@link io.smartcat.kinesis.cassandra.DefaultCassandraBuffer}.
+     */
+    public final String cassandraBufferClass;
+
+    /**
+     * FQDN of a Java class that implements {@link CassandraFilter}. It decides which transformed
+     * {@link CassandraRecord}s are buffered. The default value is
+     * {@link io.smartcat.kinesis.cassandra.DefaultCassandraFilter}.
+     */
+    public final String cassandraFilterClass;
+
     /**
      * List of Cassandra cluster nodes' IP addresses (comma separated list).
      */
@@ -67,6 +82,327 @@ public class CassandraKinesisConnectorConfiguration extends KinesisConnectorConf
      */
     public final ConsistencyLevel cassandraConsistencyLevel;
 
+    /**
+     * Maximum number of prepared INSERT statements cached by {@link DefaultCassandraEmitter}.
+     */
+    public final int cassandraPreparedStatementCacheSize;
+
+    /**
+     * Maximum number of concurrent writes a single {@link DefaultCassandraEmitter} keeps in flight. With
+     * {@link #cassandraAdaptiveConcurrency} enabled, it bounds the writes of all the emitters in the JVM.
+     */
+    public final int cassandraMaxInFlightWrites;
+
+    /**
+     * Whether {@link DefaultCassandraEmitter} groups records by partition into unlogged batches.
+     */
+    public final boolean cassandraBatchWrites;
+
+    /**
+     * Maximum number of statements in a single unlogged batch.
+     */
+    public final int cassandraMaxBatchSize;
+
+    /**
+     * Whether record values are mapped to the CQL types of the target table columns. When enabled,
+     * {@link JsonCassandraTransformer} also keeps nested JSON objects and arrays, and exact numbers.
+     */
+    public final boolean cassandraSchemaAware;
+
+    /**
+     * Whether {@link JsonCassandraTransformer} reads every JSON object of a Kinesis record, such as
+     * newline-delimited JSON, instead of only the first one.
+     */
+    public final boolean cassandraJsonMultiRecord;
+
+    /**
+     * Whether KPL aggregated records which reach the connector without being de-aggregated by the worker
+     * are split into their user records before being transformed.
+     */
+    public final boolean cassandraDeaggregateRecords;
+
+    /**
+     * Name of the column the Kinesis record partition key is written to, or <code>null</code> if it is not
+     * written.
+     */
+    public final String cassandraPartitionKeyColumn;
+
+    /**
+     * Name of the column the Kinesis record sequence number is written to, or <code>null</code> if it is
+     * not written.
+     */
+    public final String cassandraSequenceNumberColumn;
+
+    /**
+     * Name of the column the Kinesis record approximate arrival timestamp is written to, or
+     * <code>null</code> if it is not written.
+     */
+    public final String cassandraArrivalTimestampColumn;
+
+    /**
+     * Name of the shared metric registry the connector metrics are registered with (see
+     * {@link ConnectorMetrics}).
+     */
+    public final String cassandraMetricsRegistry;
+
+    /**
+     * Whether the connector metrics are reported over JMX.
+     */
+    public final boolean cassandraMetricsJmxEnabled;
+
+    /**
+     * Whether {@link DefaultCassandraEmitter} merges the records of a flush which target the same primary key, so
+     * only the final row image is written. The primary key columns are read from the table metadata.
+     */
+    public final boolean cassandraCoalesceWrites;
+
+    /**
+     * Whether records are written <code>USING TIMESTAMP</code> of the approximate arrival time of their Kinesis
+     * records, instead of the time of the write.
+     */
+    public final boolean cassandraArrivalWriteTimestamp;
+
+    /**
+     * Number of threads of the pool shared by all the shards of a worker, which transforms the records of every
+     * <code>GetRecords</code> batch in parallel. With <code>0</code>, records are transformed one by one on the
+     * record processor thread. The {@link CassandraTransformer} has to be thread-safe when enabled.
+     */
+    public final int cassandraTransformParallelism;
+
+    /**
+     * Whether the number of concurrent writes is adjusted to the observed write latency and overload errors,
+     * between {@link #cassandraMinInFlightWrites} and {@link #cassandraMaxInFlightWrites}, by a limiter shared by
+     * all the emitters writing to the same cluster in the JVM.
+     */
+    public final boolean cassandraAdaptiveConcurrency;
+
+    /**
+     * Minimum number of concurrent writes kept in flight with adaptive write concurrency.
+     */
+    public final int cassandraMinInFlightWrites;
+
+    /**
+     * Write latency in milliseconds above which adaptive write concurrency reduces the number of concurrent writes.
+     */
+    public final int cassandraTargetWriteLatencyMillis;
+
+    /**
+     * Number of connections the shared session keeps open to every host of the local datacenter.
+     */
+    public final int cassandraCoreConnectionsPerHost;
+
+    /**
+     * Maximum number of connections the shared session opens to every host of the local datacenter.
+     */
+    public final int cassandraMaxConnectionsPerHost;
+
+    /**
+     * Maximum number of concurrent requests on a single connection to a host of the local datacenter.
+     */
+    public final int cassandraMaxRequestsPerConnection;
+
+    /**
+     * Directory of the local spill queue which stores the records that could not be emitted, so they are replayed
+     * once the cluster is healthy. The records are only logged if not set.
+     */
+    public final String cassandraSpillDirectory;
+
+    /**
+     * Size of a spill queue segment file in bytes.
+     */
+    public final int cassandraSpillSegmentBytes;
+
+    /**
+     * Maximum number of spill queue segment files. Records which do not fit are dropped.
+     */
+    public final int cassandraSpillMaxSegments;
+
+    /**
+     * When spilled records are flushed to disk: <code>always</code>, <code>interval</code> or <code>never</code>.
+     */
+    public final String cassandraSpillFsync;
+
+    /**
+     * Interval of the <code>interval</code> spill fsync policy in milliseconds.
+     */
+    public final int cassandraSpillFsyncIntervalMillis;
+
+    /**
+     * Maximum number of spilled records replayed per second.
+     */
+    public final int cassandraSpillReplayRate;
+
+    /**
+     * Routes of the transformed records to tables, parsed from the comma-separated route names (see
+     * {@link Route}). When set, every transformed record is written to the tables of all the routes it matches,
+     * instead of the table chosen by the transformer, and records matching no route are dropped.
+     */
+    public final List<Route> cassandraRoutes;
+
+    /**
+     * Regular expression the Kinesis partition key of a record has to match for the record to be transformed. All
+     * the records are transformed if not set.
+     */
+    public final String cassandraFilterPartitionKey;
+
+    /**
+     * Fraction of the records which are transformed, between 0 and 1. Records are sampled by their sequence number,
+     * so a record is either always or never sampled.
+     */
+    public final double cassandraFilterSampleRate;
+
+    /**
+     * Predicates on the field values of the transformed records, as semicolon-separated
+     * <code>field=value1,value2</code> entries. A record is kept only if all of its predicate fields have one of
+     * the given values.
+     */
+    public final String cassandraFilterFields;
+
+    /**
+     * Comma-separated fields kept by the transformer. Other fields are skipped while parsing. All the fields are
+     * kept if not set.
+     */
+    public final String cassandraProjectionFields;
+
+    /**
+     * Number of times the emitter retries a failed write before it returns its records as failed. Only writes
+     * failed by timeouts, unavailable replicas and other transient errors are retried.
+     */
+    public final int cassandraWriteRetries;
+
+    /**
+     * Base delay of the exponential write retry backoff in milliseconds. The n-th retry waits a random time up to
+     * the base delay times 2^(n-1).
+     */
+    public final int cassandraRetryBaseDelayMillis;
+
+    /**
+     * Maximum delay of the exponential write retry backoff in milliseconds.
+     */
+    public final int cassandraRetryMaxDelayMillis;
+
+    /**
+     * Delay in milliseconds after which a write which did not complete is sent to another replica as well.
+     * Speculative executions are disabled if 0.
+     */
+    public final int cassandraSpeculativeExecutionDelayMillis;
+
+    /**
+     * Maximum number of speculative executions of a single write.
+     */
+    public final int cassandraSpeculativeExecutions;
+
+    /**
+     * Comma-separated <code>keyspace.table</code> names of the tables written with speculative executions. All the
+     * tables are written with speculative executions if not set.
+     */
+    public final String cassandraSpeculativeTables;
+
+    /**
+     * Port of the local HTTP endpoint reporting the lag of the shards at <code>/status</code>. The endpoint is
+     * disabled if 0.
+     */
+    public final int cassandraStatusPort;
+
+    /**
+     * Address the status endpoint binds to, the loopback address by default so the endpoint is not exposed outside
+     * the host. Set to <code>0.0.0.0</code> to listen on all interfaces.
+     */
+    public final String cassandraStatusAddress;
+
+    /**
+     * Lag behind the tip of the stream in milliseconds above which the buffer of a shard is flushed after every
+     * batch of records, without waiting for its limits. Disabled if 0.
+     */
+    public final int cassandraLagFlushThresholdMillis;
+
+    /**
+     * Path of the Avro schema (<code>.avsc</code>) of the records read by {@link AvroCassandraTransformer}, used
+     * for the records without a schema id header.
+     */
+    public final String cassandraAvroSchemaFile;
+
+    /**
+     * Directory of the Avro schemas named <code>&lt;id&gt;.avsc</code>, or <code>null</code>. When set, {@link
+     * AvroCassandraTransformer} expects every record to start with a zero byte and the 4-byte schema id, and loads
+     * each schema once on first use.
+     */
+    public final String cassandraAvroSchemaDirectory;
+
+    /**
+     * Path of the descriptor set written by <code>protoc --include_imports --descriptor_set_out</code> which
+     * defines {@link #cassandraProtobufMessageType}, or <code>null</code> to take the descriptor from the generated
+     * message class.
+     */
+    public final String cassandraProtobufDescriptorFile;
+
+    /**
+     * Message type of the records read by {@link ProtobufCassandraTransformer}: the full name of a message of
+     * {@link #cassandraProtobufDescriptorFile}, or the name of a generated message class.
+     */
+    public final String cassandraProtobufMessageType;
+
+    /**
+     * Maximum number of buffered batches of a shard written asynchronously while the record processor goes on
+     * fetching and transforming records, or 0 to write every batch on the record processor thread (see {@link
+     * EmitPipeline}).
+     */
+    public final int cassandraEmitPipelineDepth;
+
+    /**
+     * Framing of the records of the files read by {@link CassandraBackfill}: <code>lines</code> for a record per
+     * line, such as newline-delimited JSON, or <code>json</code> for concatenated JSON documents, as written by
+     * Kinesis Data Firehose. Gzip-compressed files are detected and decompressed in both cases.
+     */
+    public final String cassandraBackfillFormat;
+
+    /**
+     * Number of files {@link CassandraBackfill} reads and writes at once, or 0 for the number of available
+     * processors.
+     */
+    public final int cassandraBackfillReaders;
+
+    /**
+     * Path of the file {@link CassandraBackfill} keeps its progress in, so an interrupted backfill resumes where it
+     * stopped, or <code>null</code> to read all the files from the beginning.
+     */
+    public final String cassandraBackfillCheckpointFile;
+
+    /**
+     * Directory {@link SSTableCassandraEmitter} writes its SSTables to. Every emitted buffer is written to a new
+     * subdirectory of <code>in-progress</code>, which is moved to <code>ready</code> once its SSTables are
+     * complete.
+     */
+    public final String cassandraSSTableDirectory;
+
+    /**
+     * Directory with the <code>CREATE TABLE</code> statements of the tables {@link SSTableCassandraEmitter} writes,
+     * one keyspace qualified statement per <code>.cql</code> file.
+     */
+    public final String cassandraSSTableSchemaDirectory;
+
+    /**
+     * Size in megabytes of the rows {@link SSTableCassandraEmitter} sorts in memory before it writes them to an
+     * SSTable.
+     */
+    public final int cassandraSSTableBufferSizeMb;
+
+    /**
+     * Name of the field of the transformed records holding their TTL in seconds, or <code>null</code>. The field is
+     * removed from the record and the record is written <code>USING TTL</code> of its value. A record with a TTL
+     * which is not a whole number of seconds from 0 to 630720000 is dropped as a parse failure.
+     */
+    public final String cassandraTtlField;
+
+    /**
+     * Name of the field of the transformed records holding their write timestamp, as epoch milliseconds or an
+     * ISO-8601 string, or <code>null</code>. The field is removed from the record and the record is written
+     * <code>USING TIMESTAMP</code> of its value, which takes precedence over {@link
+     * #cassandraArrivalWriteTimestamp}. A record with a timestamp which cannot be converted is dropped as a parse
+     * failure.
+     */
+    public final String cassandraTimestampField;
+
     /**
      * Configuration constructor.
      *
@@ -92,10 +428,135 @@ public class CassandraKinesisConnectorConfiguration extends KinesisConnectorConf
         cassandraConsistencyLevel = ConsistencyLevel.valueOf(properties
                 .getProperty(ConfigurationOptions.PROP_CASSANDRA_CONSISTENCY_LEVEL,
                         ConfigurationOptions.DEFAULT_CASSANDRA_CONSISTENCY_LEVEL));
+        cassandraPreparedStatementCacheSize = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_PREPARED_STATEMENT_CACHE_SIZE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_PREPARED_STATEMENT_CACHE_SIZE, properties);
+        cassandraMaxInFlightWrites = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_MAX_IN_FLIGHT_WRITES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_MAX_IN_FLIGHT_WRITES, properties);
+        cassandraBatchWrites = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_BATCH_WRITES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_BATCH_WRITES, properties);
+        cassandraMaxBatchSize = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_MAX_BATCH_SIZE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_MAX_BATCH_SIZE, properties);
+        cassandraSchemaAware = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_SCHEMA_AWARE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SCHEMA_AWARE, properties);
+        cassandraJsonMultiRecord = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_JSON_MULTI_RECORD,
+                ConfigurationOptions.DEFAULT_CASSANDRA_JSON_MULTI_RECORD, properties);
+        cassandraDeaggregateRecords = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_DEAGGREGATE_RECORDS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_DEAGGREGATE_RECORDS, properties);
+        cassandraPartitionKeyColumn = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_PARTITION_KEY_COLUMN,
+                ConfigurationOptions.DEFAULT_CASSANDRA_PARTITION_KEY_COLUMN);
+        cassandraSequenceNumberColumn = properties.getProperty(
+                ConfigurationOptions.PROP_CASSANDRA_SEQUENCE_NUMBER_COLUMN,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SEQUENCE_NUMBER_COLUMN);
+        cassandraArrivalTimestampColumn = properties.getProperty(
+                ConfigurationOptions.PROP_CASSANDRA_ARRIVAL_TIMESTAMP_COLUMN,
+                ConfigurationOptions.DEFAULT_CASSANDRA_ARRIVAL_TIMESTAMP_COLUMN);
+        cassandraMetricsRegistry = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_METRICS_REGISTRY,
+                ConfigurationOptions.DEFAULT_CASSANDRA_METRICS_REGISTRY);
+        cassandraMetricsJmxEnabled = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_METRICS_JMX_ENABLED,
+                ConfigurationOptions.DEFAULT_CASSANDRA_METRICS_JMX_ENABLED, properties);
+        cassandraCoalesceWrites = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_COALESCE_WRITES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_COALESCE_WRITES, properties);
+        cassandraArrivalWriteTimestamp = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_ARRIVAL_WRITE_TIMESTAMP,
+                ConfigurationOptions.DEFAULT_CASSANDRA_ARRIVAL_WRITE_TIMESTAMP, properties);
+        cassandraTransformParallelism = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_TRANSFORM_PARALLELISM,
+                ConfigurationOptions.DEFAULT_CASSANDRA_TRANSFORM_PARALLELISM, properties);
+        cassandraAdaptiveConcurrency = getBooleanProperty(ConfigurationOptions.PROP_CASSANDRA_ADAPTIVE_CONCURRENCY,
+                ConfigurationOptions.DEFAULT_CASSANDRA_ADAPTIVE_CONCURRENCY, properties);
+        cassandraMinInFlightWrites = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_MIN_IN_FLIGHT_WRITES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_MIN_IN_FLIGHT_WRITES, properties);
+        cassandraTargetWriteLatencyMillis = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_TARGET_WRITE_LATENCY_MILLIS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_TARGET_WRITE_LATENCY_MILLIS, properties);
+        cassandraCoreConnectionsPerHost = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_CORE_CONNECTIONS_PER_HOST,
+                ConfigurationOptions.DEFAULT_CASSANDRA_CORE_CONNECTIONS_PER_HOST, properties);
+        cassandraMaxConnectionsPerHost = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_MAX_CONNECTIONS_PER_HOST,
+                ConfigurationOptions.DEFAULT_CASSANDRA_MAX_CONNECTIONS_PER_HOST, properties);
+        cassandraMaxRequestsPerConnection = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_MAX_REQUESTS_PER_CONNECTION,
+                ConfigurationOptions.DEFAULT_CASSANDRA_MAX_REQUESTS_PER_CONNECTION, properties);
+        cassandraSpillDirectory = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_SPILL_DIRECTORY,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPILL_DIRECTORY);
+        cassandraSpillSegmentBytes = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_SPILL_SEGMENT_BYTES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPILL_SEGMENT_BYTES, properties);
+        cassandraSpillMaxSegments = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_SPILL_MAX_SEGMENTS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPILL_MAX_SEGMENTS, properties);
+        cassandraSpillFsync = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_SPILL_FSYNC,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPILL_FSYNC);
+        cassandraSpillFsyncIntervalMillis = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_SPILL_FSYNC_INTERVAL_MILLIS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPILL_FSYNC_INTERVAL_MILLIS, properties);
+        cassandraSpillReplayRate = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_SPILL_REPLAY_RATE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPILL_REPLAY_RATE, properties);
+        cassandraRoutes = Route.parse(properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_ROUTES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_ROUTES), cassandraKeyspace, properties);
+        cassandraFilterPartitionKey = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_FILTER_PARTITION_KEY,
+                ConfigurationOptions.DEFAULT_CASSANDRA_FILTER_PARTITION_KEY);
+        cassandraFilterSampleRate = getDoubleProperty(ConfigurationOptions.PROP_CASSANDRA_FILTER_SAMPLE_RATE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_FILTER_SAMPLE_RATE, properties);
+        cassandraFilterFields = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_FILTER_FIELDS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_FILTER_FIELDS);
+        cassandraProjectionFields = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_PROJECTION_FIELDS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_PROJECTION_FIELDS);
+        cassandraWriteRetries = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_WRITE_RETRIES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_WRITE_RETRIES, properties);
+        cassandraRetryBaseDelayMillis = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_RETRY_BASE_DELAY_MILLIS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_RETRY_BASE_DELAY_MILLIS, properties);
+        cassandraRetryMaxDelayMillis = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_RETRY_MAX_DELAY_MILLIS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_RETRY_MAX_DELAY_MILLIS, properties);
+        cassandraSpeculativeExecutionDelayMillis = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_SPECULATIVE_EXECUTION_DELAY_MILLIS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPECULATIVE_EXECUTION_DELAY_MILLIS, properties);
+        cassandraSpeculativeExecutions = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_SPECULATIVE_EXECUTIONS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPECULATIVE_EXECUTIONS, properties);
+        cassandraSpeculativeTables = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_SPECULATIVE_TABLES,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SPECULATIVE_TABLES);
+        cassandraStatusPort = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_STATUS_PORT,
+                ConfigurationOptions.DEFAULT_CASSANDRA_STATUS_PORT, properties);
+        cassandraStatusAddress = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_STATUS_ADDRESS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_STATUS_ADDRESS);
+        cassandraLagFlushThresholdMillis = getIntegerProperty(
+                ConfigurationOptions.PROP_CASSANDRA_LAG_FLUSH_THRESHOLD_MILLIS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_LAG_FLUSH_THRESHOLD_MILLIS, properties);
+        cassandraAvroSchemaFile = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_AVRO_SCHEMA_FILE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_AVRO_SCHEMA_FILE);
+        cassandraAvroSchemaDirectory = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_AVRO_SCHEMA_DIRECTORY,
+                ConfigurationOptions.DEFAULT_CASSANDRA_AVRO_SCHEMA_DIRECTORY);
+        cassandraProtobufDescriptorFile = properties.getProperty(
+                ConfigurationOptions.PROP_CASSANDRA_PROTOBUF_DESCRIPTOR_FILE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_PROTOBUF_DESCRIPTOR_FILE);
+        cassandraProtobufMessageType = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_PROTOBUF_MESSAGE_TYPE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_PROTOBUF_MESSAGE_TYPE);
+        cassandraEmitPipelineDepth = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_EMIT_PIPELINE_DEPTH,
+                ConfigurationOptions.DEFAULT_CASSANDRA_EMIT_PIPELINE_DEPTH, properties);
+        cassandraBackfillFormat = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_BACKFILL_FORMAT,
+                ConfigurationOptions.DEFAULT_CASSANDRA_BACKFILL_FORMAT);
+        cassandraBackfillReaders = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_BACKFILL_READERS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_BACKFILL_READERS, properties);
+        cassandraBackfillCheckpointFile = properties.getProperty(
+                ConfigurationOptions.PROP_CASSANDRA_BACKFILL_CHECKPOINT_FILE,
+                ConfigurationOptions.DEFAULT_CASSANDRA_BACKFILL_CHECKPOINT_FILE);
+        cassandraSSTableDirectory = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_SSTABLE_DIRECTORY,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SSTABLE_DIRECTORY);
+        cassandraSSTableSchemaDirectory = properties.getProperty(
+                ConfigurationOptions.PROP_CASSANDRA_SSTABLE_SCHEMA_DIRECTORY,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SSTABLE_SCHEMA_DIRECTORY);
+        cassandraSSTableBufferSizeMb = getIntegerProperty(ConfigurationOptions.PROP_CASSANDRA_SSTABLE_BUFFER_SIZE_MB,
+                ConfigurationOptions.DEFAULT_CASSANDRA_SSTABLE_BUFFER_SIZE_MB, properties);
+        cassandraTtlField = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_TTL_FIELD,
+                ConfigurationOptions.DEFAULT_CASSANDRA_TTL_FIELD);
+        cassandraTimestampField = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_TIMESTAMP_FIELD,
+                ConfigurationOptions.DEFAULT_CASSANDRA_TIMESTAMP_FIELD);
         cassandraTransformerClass = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_TRANSFORMER_CLASS,
                 ConfigurationOptions.DEFAULT_CASSANDRA_TRANSFORMER_CLASS);
         cassandraEmitterClass = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_EMITTER_CLASS,
                 ConfigurationOptions.DEFAULT_CASSANDRA_EMITTER_CLASS);
+        cassandraBufferClass = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_BUFFER_CLASS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_BUFFER_CLASS);
+        cassandraFilterClass = properties.getProperty(ConfigurationOptions.PROP_CASSANDRA_FILTER_CLASS,
+                ConfigurationOptions.DEFAULT_CASSANDRA_FILTER_CLASS);
     }
 
     private int getIntegerProperty(String property, int defaultValue, Properties properties) {
@@ -108,6 +569,21 @@ public class CassandraKinesisConnectorConfiguration extends KinesisConnectorConf
         }
     }
 
+    private double getDoubleProperty(String property, double defaultValue, Properties properties) {
+        String propertyValue = properties.getProperty(property, Double.toString(defaultValue));
+        try {
+            return Double.parseDouble(propertyValue.trim());
+        } catch (NumberFormatException e) {
+            LOG.error(e);
+            return defaultValue;
+        }
+    }
+
+    private boolean getBooleanProperty(String property, boolean defaultValue, Properties properties) {
+        String propertyValue = properties.getProperty(property, Boolean.toString(defaultValue));
+        return Boolean.parseBoolean(propertyValue.trim());
+    }
+
     /**
      * Cassandra kinesis connector configuration options containing property keys and defaults.
      */
@@ -122,6 +598,16 @@ public class CassandraKinesisConnectorConfiguration extends KinesisConnectorConf
          */
         public static final String PROP_CASSANDRA_EMITTER_CLASS = "cassandraEmitter";
 
+        /**
+         * Configuration property name for specifying {@link CassandraBuffer} implementation.
+         */
+        public static final String PROP_CASSANDRA_BUFFER_CLASS = "cassandraBuffer";
+
+        /**
+         * Configuration property name for specifying {@link CassandraFilter} implementation.
+         */
+        public static final String PROP_CASSANDRA_FILTER_CLASS = "cassandraFilter";
+
         /**
          * Configuration property name used by {@link DefaultCassandraEmitter} for specifying
          * Cassandra cluster contact points.
@@ -165,49 +651,608 @@ public class CassandraKinesisConnectorConfiguration extends KinesisConnectorConf
         public static final String PROP_CASSANDRA_CONSISTENCY_LEVEL = "cassandraConsistencyLevel";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTransformerClass}.
+         * Configuration property name used by {@link DefaultCassandraEmitter} for specifying
+         * the maximum number of cached prepared statements.
          */
-        public static final String DEFAULT_CASSANDRA_TRANSFORMER_CLASS = JsonCassandraTransformer.class.getName();
+        public static final String PROP_CASSANDRA_PREPARED_STATEMENT_CACHE_SIZE = "cassandraPreparedStatementCacheSize";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraEmitterClass}.
+         * Configuration property name used by {@link DefaultCassandraEmitter} for specifying
+         * the maximum number of concurrent in-flight writes.
          */
-        public static final String DEFAULT_CASSANDRA_EMITTER_CLASS = DefaultCassandraEmitter.class.getName();
+        public static final String PROP_CASSANDRA_MAX_IN_FLIGHT_WRITES = "cassandraMaxInFlightWrites";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraContactPoints}.
+         * Configuration property name used by {@link DefaultCassandraEmitter} for enabling
+         * partition-grouped unlogged batches.
          */
-        public static final String DEFAULT_CASSANDRA_CONTACT_POINTS = "127.0.0.1";
+        public static final String PROP_CASSANDRA_BATCH_WRITES = "cassandraBatchWrites";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraPort}.
+         * Configuration property name used by {@link DefaultCassandraEmitter} for specifying
+         * the maximum number of statements in a batch.
          */
-        public static final int DEFAULT_CASSANDRA_PORT = 9042;
+        public static final String PROP_CASSANDRA_MAX_BATCH_SIZE = "cassandraMaxBatchSize";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraUsername}.
+         * Configuration property name for enabling schema-aware column mapping.
          */
-        public static final String DEFAULT_CASSANDRA_USERNAME = null;
+        public static final String PROP_CASSANDRA_SCHEMA_AWARE = "cassandraSchemaAware";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraPassword}.
+         * Configuration property name used by {@link JsonCassandraTransformer} for reading multiple JSON
+         * objects from a single Kinesis record.
          */
-        public static final String DEFAULT_CASSANDRA_PASSWORD = null;
+        public static final String PROP_CASSANDRA_JSON_MULTI_RECORD = "cassandraJsonMultiRecord";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraKeyspace}.
+         * Configuration property name for enabling de-aggregation of KPL aggregated records.
          */
-        public static final String DEFAULT_CASSANDRA_KEYSPACE = "test";
+        public static final String PROP_CASSANDRA_DEAGGREGATE_RECORDS = "cassandraDeaggregateRecords";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTable}.
+         * Configuration property name for the column the Kinesis partition key is written to.
          */
-        public static final String DEFAULT_CASSANDRA_TABLE = "kinesis";
+        public static final String PROP_CASSANDRA_PARTITION_KEY_COLUMN = "cassandraPartitionKeyColumn";
 
         /**
-         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraConsistencyLevel}.
+         * Configuration property name for the column the Kinesis sequence number is written to.
          */
-        public static final String DEFAULT_CASSANDRA_CONSISTENCY_LEVEL = "ONE";
+        public static final String PROP_CASSANDRA_SEQUENCE_NUMBER_COLUMN = "cassandraSequenceNumberColumn";
+
+        /**
+         * Configuration property name for the column the Kinesis approximate arrival timestamp is written to.
+         */
+        public static final String PROP_CASSANDRA_ARRIVAL_TIMESTAMP_COLUMN = "cassandraArrivalTimestampColumn";
+
+        /**
+         * Configuration property name for the name of the shared metric registry.
+         */
+        public static final String PROP_CASSANDRA_METRICS_REGISTRY = "cassandraMetricsRegistry";
+
+        /**
+         * Configuration property name for enabling the JMX metrics reporter.
+         */
+        public static final String PROP_CASSANDRA_METRICS_JMX_ENABLED = "cassandraMetricsJmxEnabled";
+
+        /**
+         * Configuration property name used by {@link DefaultCassandraEmitter} for enabling write coalescing by
+         * primary key.
+         */
+        public static final String PROP_CASSANDRA_COALESCE_WRITES = "cassandraCoalesceWrites";
+
+        /**
+         * Configuration property name for writing records with the Kinesis arrival time as the write timestamp.
+         */
+        public static final String PROP_CASSANDRA_ARRIVAL_WRITE_TIMESTAMP = "cassandraArrivalWriteTimestamp";
+
+        /**
+         * Configuration property name for the parallelism of the transform stage.
+         */
+        public static final String PROP_CASSANDRA_TRANSFORM_PARALLELISM = "cassandraTransformParallelism";
+
+        /**
+         * Configuration property name for enabling adaptive write concurrency.
+         */
+        public static final String PROP_CASSANDRA_ADAPTIVE_CONCURRENCY = "cassandraAdaptiveConcurrency";
+
+        /**
+         * Configuration property name for the minimum number of concurrent writes with adaptive write concurrency.
+         */
+        public static final String PROP_CASSANDRA_MIN_IN_FLIGHT_WRITES = "cassandraMinInFlightWrites";
+
+        /**
+         * Configuration property name for the target write latency of adaptive write concurrency.
+         */
+        public static final String PROP_CASSANDRA_TARGET_WRITE_LATENCY_MILLIS = "cassandraTargetWriteLatencyMillis";
+
+        /**
+         * Configuration property name for the core number of connections per host.
+         */
+        public static final String PROP_CASSANDRA_CORE_CONNECTIONS_PER_HOST = "cassandraCoreConnectionsPerHost";
+
+        /**
+         * Configuration property name for the maximum number of connections per host.
+         */
+        public static final String PROP_CASSANDRA_MAX_CONNECTIONS_PER_HOST = "cassandraMaxConnectionsPerHost";
+
+        /**
+         * Configuration property name for the maximum number of concurrent requests per connection.
+         */
+        public static final String PROP_CASSANDRA_MAX_REQUESTS_PER_CONNECTION = "cassandraMaxRequestsPerConnection";
+
+        /**
+         * Configuration property name for the directory of the spill queue.
+         */
+        public static final String PROP_CASSANDRA_SPILL_DIRECTORY = "cassandraSpillDirectory";
+
+        /**
+         * Configuration property name for the size of a spill queue segment file.
+         */
+        public static final String PROP_CASSANDRA_SPILL_SEGMENT_BYTES = "cassandraSpillSegmentBytes";
+
+        /**
+         * Configuration property name for the maximum number of spill queue segment files.
+         */
+        public static final String PROP_CASSANDRA_SPILL_MAX_SEGMENTS = "cassandraSpillMaxSegments";
+
+        /**
+         * Configuration property name for the fsync policy of the spill queue.
+         */
+        public static final String PROP_CASSANDRA_SPILL_FSYNC = "cassandraSpillFsync";
+
+        /**
+         * Configuration property name for the fsync interval of the spill queue.
+         */
+        public static final String PROP_CASSANDRA_SPILL_FSYNC_INTERVAL_MILLIS = "cassandraSpillFsyncIntervalMillis";
+
+        /**
+         * Configuration property name for the replay rate of the spill queue.
+         */
+        public static final String PROP_CASSANDRA_SPILL_REPLAY_RATE = "cassandraSpillReplayRate";
+
+        /**
+         * Configuration property name for the comma-separated names of the record routes.
+         */
+        public static final String PROP_CASSANDRA_ROUTES = "cassandraRoutes";
+
+        /**
+         * Configuration property name for the partition key pattern of transformed records.
+         */
+        public static final String PROP_CASSANDRA_FILTER_PARTITION_KEY = "cassandraFilterPartitionKey";
+
+        /**
+         * Configuration property name for the sample rate of transformed records.
+         */
+        public static final String PROP_CASSANDRA_FILTER_SAMPLE_RATE = "cassandraFilterSampleRate";
+
+        /**
+         * Configuration property name for the field predicates of transformed records.
+         */
+        public static final String PROP_CASSANDRA_FILTER_FIELDS = "cassandraFilterFields";
+
+        /**
+         * Configuration property name for the fields kept by the transformer.
+         */
+        public static final String PROP_CASSANDRA_PROJECTION_FIELDS = "cassandraProjectionFields";
+
+        /**
+         * Configuration property name for the number of write retries.
+         */
+        public static final String PROP_CASSANDRA_WRITE_RETRIES = "cassandraWriteRetries";
+
+        /**
+         * Configuration property name for the base delay of write retries.
+         */
+        public static final String PROP_CASSANDRA_RETRY_BASE_DELAY_MILLIS = "cassandraRetryBaseDelayMillis";
+
+        /**
+         * Configuration property name for the maximum delay of write retries.
+         */
+        public static final String PROP_CASSANDRA_RETRY_MAX_DELAY_MILLIS = "cassandraRetryMaxDelayMillis";
+
+        /**
+         * Configuration property name for the delay of speculative executions.
+         */
+        public static final String PROP_CASSANDRA_SPECULATIVE_EXECUTION_DELAY_MILLIS =
+                "cassandraSpeculativeExecutionDelayMillis";
+
+        /**
+         * Configuration property name for the maximum number of speculative executions.
+         */
+        public static final String PROP_CASSANDRA_SPECULATIVE_EXECUTIONS = "cassandraSpeculativeExecutions";
+
+        /**
+         * Configuration property name for the tables written with speculative executions.
+         */
+        public static final String PROP_CASSANDRA_SPECULATIVE_TABLES = "cassandraSpeculativeTables";
+
+        /**
+         * Configuration property name for the port of the status endpoint.
+         */
+        public static final String PROP_CASSANDRA_STATUS_PORT = "cassandraStatusPort";
+
+        /**
+         * Configuration property name for the address of the status endpoint.
+         */
+        public static final String PROP_CASSANDRA_STATUS_ADDRESS = "cassandraStatusAddress";
+
+        /**
+         * Configuration property name for the lag above which buffers are flushed after every batch.
+         */
+        public static final String PROP_CASSANDRA_LAG_FLUSH_THRESHOLD_MILLIS = "cassandraLagFlushThresholdMillis";
+
+        /**
+         * Configuration property name for the Avro schema file of {@link AvroCassandraTransformer}.
+         */
+        public static final String PROP_CASSANDRA_AVRO_SCHEMA_FILE = "cassandraAvroSchemaFile";
+
+        /**
+         * Configuration property name for the Avro schema directory of {@link AvroCassandraTransformer}.
+         */
+        public static final String PROP_CASSANDRA_AVRO_SCHEMA_DIRECTORY = "cassandraAvroSchemaDirectory";
+
+        /**
+         * Configuration property name for the Protocol Buffers descriptor set of {@link
+         * ProtobufCassandraTransformer}.
+         */
+        public static final String PROP_CASSANDRA_PROTOBUF_DESCRIPTOR_FILE = "cassandraProtobufDescriptorFile";
+
+        /**
+         * Configuration property name for the Protocol Buffers message type of {@link
+         * ProtobufCassandraTransformer}.
+         */
+        public static final String PROP_CASSANDRA_PROTOBUF_MESSAGE_TYPE = "cassandraProtobufMessageType";
+
+        /**
+         * Configuration property name for the depth of the asynchronous emit pipeline.
+         */
+        public static final String PROP_CASSANDRA_EMIT_PIPELINE_DEPTH = "cassandraEmitPipelineDepth";
+
+        /**
+         * Configuration property name for the record framing of the backfill files.
+         */
+        public static final String PROP_CASSANDRA_BACKFILL_FORMAT = "cassandraBackfillFormat";
+
+        /**
+         * Configuration property name for the number of parallel backfill readers.
+         */
+        public static final String PROP_CASSANDRA_BACKFILL_READERS = "cassandraBackfillReaders";
+
+        /**
+         * Configuration property name for the backfill checkpoint file.
+         */
+        public static final String PROP_CASSANDRA_BACKFILL_CHECKPOINT_FILE = "cassandraBackfillCheckpointFile";
+
+        /**
+         * Configuration property name for the SSTable output directory.
+         */
+        public static final String PROP_CASSANDRA_SSTABLE_DIRECTORY = "cassandraSSTableDirectory";
+
+        /**
+         * Configuration property name for the SSTable schema directory.
+         */
+        public static final String PROP_CASSANDRA_SSTABLE_SCHEMA_DIRECTORY = "cassandraSSTableSchemaDirectory";
+
+        /**
+         * Configuration property name for the SSTable writer buffer size.
+         */
+        public static final String PROP_CASSANDRA_SSTABLE_BUFFER_SIZE_MB = "cassandraSSTableBufferSizeMb";
+
+        /**
+         * Configuration property name for the record field holding the TTL.
+         */
+        public static final String PROP_CASSANDRA_TTL_FIELD = "cassandraTtlField";
+
+        /**
+         * Configuration property name for the record field holding the write timestamp.
+         */
+        public static final String PROP_CASSANDRA_TIMESTAMP_FIELD = "cassandraTimestampField";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTransformerClass}.
+         */
+        public static final String DEFAULT_CASSANDRA_TRANSFORMER_CLASS = JsonCassandraTransformer.class.getName();
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraEmitterClass}.
+         */
+        public static final String DEFAULT_CASSANDRA_EMITTER_CLASS = DefaultCassandraEmitter.class.getName();
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraBufferClass}.
+         */
+        public static final String DEFAULT_CASSANDRA_BUFFER_CLASS = DefaultCassandraBuffer.class.getName();
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraFilterClass}.
+         */
+        public static final String DEFAULT_CASSANDRA_FILTER_CLASS = DefaultCassandraFilter.class.getName();
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraContactPoints}.
+         */
+        public static final String DEFAULT_CASSANDRA_CONTACT_POINTS = "127.0.0.1";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraPort}.
+         */
+        public static final int DEFAULT_CASSANDRA_PORT = 9042;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraUsername}.
+         */
+        public static final String DEFAULT_CASSANDRA_USERNAME = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraPassword}.
+         */
+        public static final String DEFAULT_CASSANDRA_PASSWORD = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraKeyspace}.
+         */
+        public static final String DEFAULT_CASSANDRA_KEYSPACE = "test";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTable}.
+         */
+        public static final String DEFAULT_CASSANDRA_TABLE = "kinesis";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraConsistencyLevel}.
+         */
+        public static final String DEFAULT_CASSANDRA_CONSISTENCY_LEVEL = "ONE";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraPreparedStatementCacheSize}.
+         */
+        public static final int DEFAULT_CASSANDRA_PREPARED_STATEMENT_CACHE_SIZE = 100;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraMaxInFlightWrites}.
+         */
+        public static final int DEFAULT_CASSANDRA_MAX_IN_FLIGHT_WRITES = 256;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraBatchWrites}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_BATCH_WRITES = false;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraMaxBatchSize}.
+         */
+        public static final int DEFAULT_CASSANDRA_MAX_BATCH_SIZE = 20;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSchemaAware}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_SCHEMA_AWARE = false;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraJsonMultiRecord}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_JSON_MULTI_RECORD = false;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraDeaggregateRecords}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_DEAGGREGATE_RECORDS = true;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraPartitionKeyColumn}.
+         */
+        public static final String DEFAULT_CASSANDRA_PARTITION_KEY_COLUMN = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSequenceNumberColumn}.
+         */
+        public static final String DEFAULT_CASSANDRA_SEQUENCE_NUMBER_COLUMN = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraArrivalTimestampColumn}.
+         */
+        public static final String DEFAULT_CASSANDRA_ARRIVAL_TIMESTAMP_COLUMN = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraMetricsRegistry}.
+         */
+        public static final String DEFAULT_CASSANDRA_METRICS_REGISTRY = "cassandra-kinesis";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraMetricsJmxEnabled}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_METRICS_JMX_ENABLED = true;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraCoalesceWrites}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_COALESCE_WRITES = false;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraArrivalWriteTimestamp}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_ARRIVAL_WRITE_TIMESTAMP = false;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTransformParallelism}.
+         */
+        public static final int DEFAULT_CASSANDRA_TRANSFORM_PARALLELISM = 0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraAdaptiveConcurrency}.
+         */
+        public static final boolean DEFAULT_CASSANDRA_ADAPTIVE_CONCURRENCY = false;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraMinInFlightWrites}.
+         */
+        public static final int DEFAULT_CASSANDRA_MIN_IN_FLIGHT_WRITES = 4;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTargetWriteLatencyMillis}.
+         */
+        public static final int DEFAULT_CASSANDRA_TARGET_WRITE_LATENCY_MILLIS = 50;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraCoreConnectionsPerHost}.
+         */
+        public static final int DEFAULT_CASSANDRA_CORE_CONNECTIONS_PER_HOST = 1;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraMaxConnectionsPerHost}.
+         */
+        public static final int DEFAULT_CASSANDRA_MAX_CONNECTIONS_PER_HOST = 1;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraMaxRequestsPerConnection}.
+         */
+        public static final int DEFAULT_CASSANDRA_MAX_REQUESTS_PER_CONNECTION = 1024;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpillDirectory}.
+         */
+        public static final String DEFAULT_CASSANDRA_SPILL_DIRECTORY = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpillSegmentBytes}.
+         */
+        public static final int DEFAULT_CASSANDRA_SPILL_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpillMaxSegments}.
+         */
+        public static final int DEFAULT_CASSANDRA_SPILL_MAX_SEGMENTS = 64;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpillFsync}.
+         */
+        public static final String DEFAULT_CASSANDRA_SPILL_FSYNC = "interval";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpillFsyncIntervalMillis}.
+         */
+        public static final int DEFAULT_CASSANDRA_SPILL_FSYNC_INTERVAL_MILLIS = 1000;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpillReplayRate}.
+         */
+        public static final int DEFAULT_CASSANDRA_SPILL_REPLAY_RATE = 1000;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraRoutes}.
+         */
+        public static final String DEFAULT_CASSANDRA_ROUTES = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraFilterPartitionKey}.
+         */
+        public static final String DEFAULT_CASSANDRA_FILTER_PARTITION_KEY = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraFilterSampleRate}.
+         */
+        public static final double DEFAULT_CASSANDRA_FILTER_SAMPLE_RATE = 1.0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraFilterFields}.
+         */
+        public static final String DEFAULT_CASSANDRA_FILTER_FIELDS = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraProjectionFields}.
+         */
+        public static final String DEFAULT_CASSANDRA_PROJECTION_FIELDS = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraWriteRetries}.
+         */
+        public static final int DEFAULT_CASSANDRA_WRITE_RETRIES = 0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraRetryBaseDelayMillis}.
+         */
+        public static final int DEFAULT_CASSANDRA_RETRY_BASE_DELAY_MILLIS = 50;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraRetryMaxDelayMillis}.
+         */
+        public static final int DEFAULT_CASSANDRA_RETRY_MAX_DELAY_MILLIS = 2000;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpeculativeExecutionDelayMillis}.
+         */
+        public static final int DEFAULT_CASSANDRA_SPECULATIVE_EXECUTION_DELAY_MILLIS = 0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpeculativeExecutions}.
+         */
+        public static final int DEFAULT_CASSANDRA_SPECULATIVE_EXECUTIONS = 1;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSpeculativeTables}.
+         */
+        public static final String DEFAULT_CASSANDRA_SPECULATIVE_TABLES = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraStatusPort}.
+         */
+        public static final int DEFAULT_CASSANDRA_STATUS_PORT = 0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraStatusAddress}.
+         */
+        public static final String DEFAULT_CASSANDRA_STATUS_ADDRESS = "127.0.0.1";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraLagFlushThresholdMillis}.
+         */
+        public static final int DEFAULT_CASSANDRA_LAG_FLUSH_THRESHOLD_MILLIS = 0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraAvroSchemaFile}.
+         */
+        public static final String DEFAULT_CASSANDRA_AVRO_SCHEMA_FILE = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraAvroSchemaDirectory}.
+         */
+        public static final String DEFAULT_CASSANDRA_AVRO_SCHEMA_DIRECTORY = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraProtobufDescriptorFile}.
+         */
+        public static final String DEFAULT_CASSANDRA_PROTOBUF_DESCRIPTOR_FILE = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraProtobufMessageType}.
+         */
+        public static final String DEFAULT_CASSANDRA_PROTOBUF_MESSAGE_TYPE = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraEmitPipelineDepth}.
+         */
+        public static final int DEFAULT_CASSANDRA_EMIT_PIPELINE_DEPTH = 0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraBackfillFormat}.
+         */
+        public static final String DEFAULT_CASSANDRA_BACKFILL_FORMAT = "lines";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraBackfillReaders}.
+         */
+        public static final int DEFAULT_CASSANDRA_BACKFILL_READERS = 0;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraBackfillCheckpointFile}.
+         */
+        public static final String DEFAULT_CASSANDRA_BACKFILL_CHECKPOINT_FILE = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSSTableDirectory}.
+         */
+        public static final String DEFAULT_CASSANDRA_SSTABLE_DIRECTORY = "sstables";
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSSTableSchemaDirectory}.
+         */
+        public static final String DEFAULT_CASSANDRA_SSTABLE_SCHEMA_DIRECTORY = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraSSTableBufferSizeMb}.
+         */
+        public static final int DEFAULT_CASSANDRA_SSTABLE_BUFFER_SIZE_MB = 128;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTtlField}.
+         */
+        public static final String DEFAULT_CASSANDRA_TTL_FIELD = null;
+
+        /**
+         * Default value for {@link CassandraKinesisConnectorConfiguration#cassandraTimestampField}.
+         */
+        public static final String DEFAULT_CASSANDRA_TIMESTAMP_FIELD = null;
     }
 
 }
@@ -6,29 +6,59 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.amazonaws.services.kinesis.connectors.KinesisConnectorConfiguration;
+import com.amazonaws.services.kinesis.clientlibrary.interfaces.IRecordProcessor;
 import com.amazonaws.services.kinesis.connectors.KinesisConnectorExecutorBase;
 import com.amazonaws.services.kinesis.connectors.KinesisConnectorRecordProcessorFactory;
-import com.amazonaws.services.kinesis.connectors.impl.AllPassFilter;
-import com.amazonaws.services.kinesis.connectors.impl.BasicMemoryBuffer;
-import com.amazonaws.services.kinesis.connectors.interfaces.IBuffer;
-import com.amazonaws.services.kinesis.connectors.interfaces.IEmitter;
-import com.amazonaws.services.kinesis.connectors.interfaces.IFilter;
-import com.amazonaws.services.kinesis.connectors.interfaces.IKinesisConnectorPipeline;
-import com.amazonaws.services.kinesis.connectors.interfaces.ITransformer;
-import com.amazonaws.services.kinesis.connectors.interfaces.ITransformerBase;
-import com.amazonaws.services.kinesis.model.Record;
+import com.codahale.metrics.MetricRegistry;
 
 /**
- * An implementation of {@link KinesisConnectorExecutorBase} for Cassandra. It uses {@link CassandraTransformer} and
- * {@link CassandraEmitter} specified by the given {@link CassandraKinesisConnectorConfiguration} as
- * {@link ITransformerBase} and {@link IEmitter} respectively. A simple {@link BasicMemoryBuffer} is used as
- * {@link IBuffer}, and {@link AllPassFilter} as {@link IFilter}.
+ * An implementation of {@link KinesisConnectorExecutorBase} for Cassandra. Its record processors are created by a
+ * {@link CassandraConnectorPipeline}, which uses {@link CassandraTransformer} and {@link CassandraEmitter} specified
+ * by the given {@link CassandraKinesisConnectorConfiguration} as the transformer and the emitter respectively. The
+ * {@link CassandraBuffer} specified by the configuration is used as the buffer, and the {@link CassandraFilter} as
+ * the filter.
+ * <p>
+ * The worker de-aggregates KPL aggregated records before handing them to the record processor. Records which
+ * still arrive aggregated, e.g. when the record processor is driven directly, are split into their user records
+ * here, unless {@link CassandraKinesisConnectorConfiguration#cassandraDeaggregateRecords} is disabled. Every
+ * user record is then transformed separately.
+ * <p>
+ * Kinesis records are transformed as soon as they are received, so only the resulting {@link CassandraRecord}s
+ * are buffered. The record data are passed to
+ * {@link CassandraTransformer#transform(java.nio.ByteBuffer, RecordMetadata)} as a duplicate buffer, without
+ * copying, together with the record metadata. The partition key, sequence number and arrival timestamp are
+ * also written to the columns configured by {@link CassandraKinesisConnectorConfiguration#cassandraPartitionKeyColumn},
+ * {@link CassandraKinesisConnectorConfiguration#cassandraSequenceNumberColumn} and
+ * {@link CassandraKinesisConnectorConfiguration#cassandraArrivalTimestampColumn}, if set, and with
+ * {@link CassandraKinesisConnectorConfiguration#cassandraArrivalWriteTimestamp} enabled the arrival timestamp
+ * becomes the write timestamp of the records. The fields named by
+ * {@link CassandraKinesisConnectorConfiguration#cassandraTtlField} and
+ * {@link CassandraKinesisConnectorConfiguration#cassandraTimestampField} are moved out of the record values into
+ * its TTL and write timestamp, so every record is written with its own retention and ordering.
+ * <p>
+ * Records rejected by the partition key or sampling condition of the {@link FilterSpec} are not transformed
+ * at all.
+ * <p>
+ * With {@link CassandraKinesisConnectorConfiguration#cassandraRoutes} set, the transformed records, including
+ * their metadata columns, are then routed to the tables of the matching routes by a {@link RecordRouter}, so
+ * one input record may be written to several tables.
+ * <p>
+ * With {@link CassandraKinesisConnectorConfiguration#cassandraTransformParallelism} set, the records of every
+ * <code>GetRecords</code> batch are transformed in parallel by a {@link ParallelTransformer} before they are
+ * buffered in their original order.
+ * <p>
+ * Every shard is processed by a {@link CassandraRecordProcessor}, and all the components register their metrics
+ * with the registry provided by {@link ConnectorMetrics}. With
+ * {@link CassandraKinesisConnectorConfiguration#cassandraStatusPort} set, the lag of the shards is also reported
+ * by a {@link StatusServer} while the worker runs.
  */
-public class CassandraKinesisConnectorExecutor extends KinesisConnectorExecutorBase<byte[], List<CassandraRecord>> {
+public class CassandraKinesisConnectorExecutor
+        extends KinesisConnectorExecutorBase<List<CassandraRecord>, List<CassandraRecord>> {
     private static final Logger LOGGER = LoggerFactory.getLogger(CassandraKinesisConnectorExecutor.class);
 
     private CassandraKinesisConnectorConfiguration config;
+    private MetricRegistry metrics;
+    private StatusServer statusServer;
 
     /**
      * Constructor.
@@ -37,65 +67,37 @@ public class CassandraKinesisConnectorExecutor extends KinesisConnectorExecutorB
     public CassandraKinesisConnectorExecutor(CassandraKinesisConnectorConfiguration config) {
         super();
         this.config = config;
+        this.metrics = ConnectorMetrics.registry(config);
         initialize(config);
+        try {
+            this.statusServer = StatusServer.start(config);
+        } catch (IOException e) {
+            LOGGER.error("Failed to start the status endpoint on " + config.cassandraStatusAddress + ":"
+                    + config.cassandraStatusPort, e);
+        }
     }
 
     @Override
-    public KinesisConnectorRecordProcessorFactory<byte[], List<CassandraRecord>>
-            getKinesisConnectorRecordProcessorFactory() {
-        return new KinesisConnectorRecordProcessorFactory<>(
-                new IKinesisConnectorPipeline<byte[], List<CassandraRecord>>() {
-            @Override
-            public IEmitter<List<CassandraRecord>> getEmitter(KinesisConnectorConfiguration configuration) {
-                LOGGER.info("Creating CassandraEmitter for class name {}", config.cassandraEmitterClass);
-                CassandraEmitter emitter = null;
-                try {
-                    emitter = (CassandraEmitter) Class.forName(config.cassandraEmitterClass).newInstance();
-                    emitter.init(config);
-                } catch (Exception e) {
-                    LOGGER.error("Failed to create CassandraEmitter by class name", e);
-                }
-                return emitter;
-            }
-
-            @Override
-            public IBuffer<byte[]> getBuffer(KinesisConnectorConfiguration configuration) {
-                return new BasicMemoryBuffer<>(configuration);
-            }
-
-            @Override
-            public ITransformerBase<byte[], List<CassandraRecord>> getTransformer(
-                    KinesisConnectorConfiguration configuration) {
-                LOGGER.info("Creating CassandraTransformer for class name {}", config.cassandraTransformerClass);
-                CassandraTransformer transformer;
-                try {
-                    transformer =
-                            (CassandraTransformer) Class.forName(config.cassandraTransformerClass).newInstance();
-                    transformer.init(config);
-                } catch (Exception e) {
-                    LOGGER.error("Failed to create CassandraTransformer by class name", e);
-                    throw new IllegalStateException(e);
-                }
-
-                return new ITransformer<byte[], List<CassandraRecord>>() {
-
-                    @Override
-                    public List<CassandraRecord> fromClass(byte[] record) throws IOException {
-                        return transformer.transform(record);
-                    }
-
-                    @Override
-                    public byte[] toClass(Record record) throws IOException {
-                        return record.getData().array();
-                    }
-
-                };
+    public void run() {
+        try {
+            super.run();
+        } finally {
+            if (statusServer != null) {
+                statusServer.stop();
             }
+        }
+    }
 
+    @Override
+    public KinesisConnectorRecordProcessorFactory<List<CassandraRecord>, List<CassandraRecord>>
+            getKinesisConnectorRecordProcessorFactory() {
+        final CassandraConnectorPipeline pipeline = new CassandraConnectorPipeline(config, metrics);
+        return new KinesisConnectorRecordProcessorFactory<List<CassandraRecord>, List<CassandraRecord>>(pipeline,
+                config) {
             @Override
-            public IFilter<byte[]> getFilter(KinesisConnectorConfiguration configuration) {
-                return new AllPassFilter<>();
+            public IRecordProcessor createProcessor() {
+                return pipeline.createProcessor();
             }
-        }, config);
+        };
     }
 }
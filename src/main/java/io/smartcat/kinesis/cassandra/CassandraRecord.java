@@ -1,48 +1,105 @@
 package io.smartcat.kinesis.cassandra;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 
 /**
  * Represents a data container for a single Cassandra insert record.
- * It consists of a map with column names and respective values for
+ * It consists of column names and respective values for
  * the specified table and keyspace.
+ * <p>
+ * The keyspace, table and column names are kept in a {@link RecordLayout} shared by all the records with
+ * the same columns, while the record itself only holds the values: integer, long, double and boolean
+ * values in a primitive array, the rest in a reference array, both indexed by the column ordinal.
+ * Values are boxed again when read through {@link #getValue(String)} or {@link #getValues()}.
  */
 public class CassandraRecord {
-    private String keyspace;
-    private String table;
-    private Map<String, Object> values;
+    /**
+     * Value of {@link #getTimestamp()} for records written with the time of the write.
+     */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    /**
+     * Value of {@link #getTtl()} for records written with the default TTL of their table.
+     */
+    public static final int NO_TTL = -1;
+
+    private static final long[] NO_PRIMITIVES = new long[0];
+    private static final Object[] NO_OBJECTS = new Object[0];
+
+    private RecordLayout layout;
+    private long[] primitives = NO_PRIMITIVES;
+    private Object[] objects = NO_OBJECTS;
+    private long timestamp = NO_TIMESTAMP;
+    private int ttl = NO_TTL;
 
     /**
      * @return the keyspace
      */
     public String getKeyspace() {
-        return keyspace;
+        return layout.getKeyspace();
     }
 
     /**
      * @param keyspace the keyspace to set
      */
     public void setKeyspace(String keyspace) {
-        this.keyspace = keyspace;
+        relayout(keyspace, layout.getTable(), null);
     }
 
     /**
      * @return the table
      */
     public String getTable() {
-        return table;
+        return layout.getTable();
     }
 
     /**
      * @param table the table to set
      */
     public void setTable(String table) {
-        this.table = table;
+        relayout(layout.getKeyspace(), table, null);
+    }
+
+    /**
+     * @return the write timestamp in microseconds since the epoch, or {@link #NO_TIMESTAMP}
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Sets the timestamp the record is written <code>USING</code>.
+     *
+     * @param timestamp the write timestamp in microseconds since the epoch, or {@link #NO_TIMESTAMP}
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the time to live in seconds, or {@link #NO_TTL}
+     */
+    public int getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Sets the time to live the record is written <code>USING</code>.
+     *
+     * @param ttl the time to live in seconds, 0 for a record which never expires, or {@link #NO_TTL}
+     */
+    public void setTtl(int ttl) {
+        this.ttl = ttl;
     }
 
     /**
@@ -52,7 +109,8 @@ public class CassandraRecord {
      * @return the respective value or null
      */
     public Object getValue(String name) {
-        return values.get(name);
+        final int ordinal = layout.ordinalOf(name);
+        return ordinal < 0 ? null : getValue(ordinal);
     }
 
     /**
@@ -62,21 +120,60 @@ public class CassandraRecord {
      * @param value the value to set
      */
     public void setValue(String name, Object value) {
-        this.values.put(name, value);
+        final RecordLayout.Kind kind = RecordLayout.Kind.of(value);
+        final int ordinal = layout.ordinalOf(name);
+        if (ordinal < 0) {
+            layout = layout.with(name, kind);
+            final int added = layout.size() - 1;
+            if (kind.isPrimitive() && layout.getPrimitiveSlots() > primitives.length) {
+                primitives = Arrays.copyOf(primitives, Math.max(4, primitives.length * 2));
+            } else if (!kind.isPrimitive() && layout.getObjectSlots() > objects.length) {
+                objects = Arrays.copyOf(objects, Math.max(4, objects.length * 2));
+            }
+            store(added, value);
+        } else if (layout.getKind(ordinal) == kind) {
+            store(ordinal, value);
+        } else {
+            // the column changes its slot, so the record is rebuilt with the new value in place
+            final Object[] values = toArray();
+            values[ordinal] = value;
+            replay(layout.getKeyspace(), layout.getTable(), values, -1);
+        }
     }
 
     /**
+     * Removes the value of the given column name.
+     *
+     * @param name the column name
+     * @return the removed value or null
+     */
+    public Object removeValue(String name) {
+        final int ordinal = layout.ordinalOf(name);
+        if (ordinal < 0) {
+            return null;
+        }
+        final Object[] values = toArray();
+        replay(layout.getKeyspace(), layout.getTable(), values, ordinal);
+        return values[ordinal];
+    }
+
+    /**
+     * Returns a view of the values, keyed by column name in the order the columns were set. Changes to the
+     * view are written through to the record.
+     *
      * @return the values
      */
     public Map<String, Object> getValues() {
-        return values;
+        return new ValuesView();
     }
 
     /**
+     * Replaces all the values of the record with the given ones.
+     *
      * @param values the values to set
      */
     public void setValues(Map<String, Object> values) {
-        this.values = values;
+        relayout(layout.getKeyspace(), layout.getTable(), values);
     }
 
     /**
@@ -86,25 +183,193 @@ public class CassandraRecord {
      * @param table    the table name
      */
     public CassandraRecord(String keyspace, String table) {
-        this.keyspace = keyspace;
-        this.table = table;
-        this.values = new HashMap<>();
+        this.layout = RecordLayout.empty(keyspace, table);
+    }
+
+    /**
+     * @return the layout of the record
+     */
+    RecordLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @param ordinal the column ordinal in the record layout
+     * @return the respective value
+     */
+    Object getValue(int ordinal) {
+        final int slot = layout.getSlot(ordinal);
+        switch (layout.getKind(ordinal)) {
+        case INT:
+            return (int) primitives[slot];
+        case LONG:
+            return primitives[slot];
+        case DOUBLE:
+            return Double.longBitsToDouble(primitives[slot]);
+        case BOOLEAN:
+            return primitives[slot] != 0;
+        default:
+            return objects[slot];
+        }
+    }
+
+    private void store(int ordinal, Object value) {
+        final int slot = layout.getSlot(ordinal);
+        switch (layout.getKind(ordinal)) {
+        case INT:
+            primitives[slot] = (Integer) value;
+            break;
+        case LONG:
+            primitives[slot] = (Long) value;
+            break;
+        case DOUBLE:
+            primitives[slot] = Double.doubleToRawLongBits((Double) value);
+            break;
+        case BOOLEAN:
+            primitives[slot] = (Boolean) value ? 1 : 0;
+            break;
+        default:
+            objects[slot] = value;
+        }
+    }
+
+    private Object[] toArray() {
+        final Object[] values = new Object[layout.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getValue(i);
+        }
+        return values;
+    }
+
+    private void relayout(String keyspace, String table, Map<String, Object> values) {
+        if (values == null) {
+            replay(keyspace, table, toArray(), -1);
+            return;
+        }
+        reset(keyspace, table);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            setValue(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void replay(String keyspace, String table, Object[] values, int skipped) {
+        final RecordLayout previous = reset(keyspace, table);
+        for (int i = 0; i < values.length; i++) {
+            if (i != skipped) {
+                setValue(previous.getColumn(i), values[i]);
+            }
+        }
+    }
+
+    private RecordLayout reset(String keyspace, String table) {
+        final RecordLayout previous = layout;
+        layout = RecordLayout.empty(keyspace, table);
+        // most rebuilds keep the columns, so the arrays are sized for the previous layout
+        primitives = new long[previous.getPrimitiveSlots()];
+        objects = new Object[previous.getObjectSlots()];
+        return previous;
     }
 
     @Override
     public String toString() {
-        return keyspace + "." + table + ":" + values.toString();
+        return layout.getKeyspace() + "." + layout.getTable() + ":" + getValues().toString();
     }
 
     /**
-     * Generates a CQL INSERT statement for this record.
+     * Generates an idempotent CQL INSERT statement for this record.
      *
      * @return the CQL INSERT statement
      */
     public Statement toCqlStatement() {
-        final Statement statement = QueryBuilder.insertInto(keyspace, table)
-                .values(new ArrayList<>(values.keySet()), new ArrayList<>(values.values()));
+        final String[] names = new String[layout.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = layout.getColumn(i);
+        }
+        final Insert statement = QueryBuilder.insertInto(layout.getKeyspace(), layout.getTable())
+                .values(names, toArray());
+        if (timestamp != NO_TIMESTAMP) {
+            statement.using(QueryBuilder.timestamp(timestamp));
+        }
+        if (ttl != NO_TTL) {
+            statement.using(QueryBuilder.ttl(ttl));
+        }
+        statement.setIdempotent(true);
 
         return statement;
     }
+
+    /**
+     * The values of the record as a map.
+     */
+    private final class ValuesView extends AbstractMap<String, Object> {
+
+        @Override
+        public int size() {
+            return layout.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && layout.ordinalOf((String) key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? getValue((String) key) : null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            final Object previous = getValue(key);
+            setValue(key, value);
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return key instanceof String ? removeValue((String) key) : null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return layout.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int next;
+                        private String last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < layout.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            last = layout.getColumn(next);
+                            return new SimpleImmutableEntry<>(last, getValue(next++));
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            removeValue(last);
+                            last = null;
+                            next--;
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
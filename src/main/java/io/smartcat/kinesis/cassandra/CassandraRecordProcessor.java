@@ -0,0 +1,181 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.amazonaws.services.kinesis.clientlibrary.interfaces.IRecordProcessorCheckpointer;
+import com.amazonaws.services.kinesis.clientlibrary.lib.worker.ShutdownReason;
+import com.amazonaws.services.kinesis.connectors.KinesisConnectorRecordProcessor;
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IEmitter;
+import com.amazonaws.services.kinesis.connectors.interfaces.IFilter;
+import com.amazonaws.services.kinesis.connectors.interfaces.ITransformerBase;
+import com.amazonaws.services.kinesis.model.Record;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * A {@link KinesisConnectorRecordProcessor} which keeps per-shard metrics: the number of Kinesis records
+ * received, the number of rows written, the number of currently buffered records, and the lag of the shard
+ * behind the stream and of the data written to Cassandra (see {@link ShardLag}). The lag is also passed to a
+ * {@link CassandraBuffer}, which may flush sooner while the shard is lagging. If the transformer is a
+ * {@link ParallelTransformer}, every batch of records is transformed in parallel before it is processed.
+ * <p>
+ * With {@link CassandraKinesisConnectorConfiguration#cassandraEmitPipelineDepth} set, the buffered batches are
+ * written by an {@link EmitPipeline} while the next records are processed, and the checkpoints are passed through
+ * the pipeline, which holds each of them back until its batch is written.
+ */
+class CassandraRecordProcessor extends KinesisConnectorRecordProcessor<List<CassandraRecord>, List<CassandraRecord>> {
+
+    private final IBuffer<List<CassandraRecord>> buffer;
+    private final MeteredEmitter emitter;
+    private final EmitPipeline pipeline;
+    private final MetricRegistry metrics;
+    private final ParallelTransformer parallelTransformer;
+
+    private String shardId;
+    private String shardPrefix;
+    private Meter recordsIn;
+    private ShardLag lag;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer      the buffer
+     * @param filter      the filter
+     * @param emitter     the emitter
+     * @param transformer the transformer
+     * @param config      actual configuration
+     * @param metrics     the metric registry
+     */
+    CassandraRecordProcessor(IBuffer<List<CassandraRecord>> buffer, IFilter<List<CassandraRecord>> filter,
+            IEmitter<List<CassandraRecord>> emitter,
+            ITransformerBase<List<CassandraRecord>, List<CassandraRecord>> transformer,
+            CassandraKinesisConnectorConfiguration config, MetricRegistry metrics) {
+        this(buffer, filter, new MeteredEmitter(emitter), transformer, config, metrics);
+    }
+
+    private CassandraRecordProcessor(IBuffer<List<CassandraRecord>> buffer, IFilter<List<CassandraRecord>> filter,
+            MeteredEmitter emitter, ITransformerBase<List<CassandraRecord>, List<CassandraRecord>> transformer,
+            CassandraKinesisConnectorConfiguration config, MetricRegistry metrics) {
+        this(buffer, filter, emitter, config.cassandraEmitPipelineDepth > 0 ? new EmitPipeline(emitter,
+                config.cassandraEmitPipelineDepth, config.RETRY_LIMIT, config.BACKOFF_INTERVAL) : null,
+                transformer, config, metrics);
+    }
+
+    private CassandraRecordProcessor(IBuffer<List<CassandraRecord>> buffer, IFilter<List<CassandraRecord>> filter,
+            MeteredEmitter emitter, EmitPipeline pipeline,
+            ITransformerBase<List<CassandraRecord>, List<CassandraRecord>> transformer,
+            CassandraKinesisConnectorConfiguration config, MetricRegistry metrics) {
+        super(buffer, filter, pipeline != null ? pipeline : emitter, transformer, config);
+        this.buffer = buffer;
+        this.emitter = emitter;
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+        this.parallelTransformer = transformer instanceof ParallelTransformer ? (ParallelTransformer) transformer
+                : null;
+    }
+
+    @Override
+    public void initialize(String shardId) {
+        super.initialize(shardId);
+        this.shardId = shardId;
+        shardPrefix = MetricRegistry.name("shard", shardId);
+        recordsIn = metrics.meter(MetricRegistry.name(shardPrefix, "records", "in"));
+        emitter.rowsOut = metrics.meter(MetricRegistry.name(shardPrefix, "rows", "out"));
+        lag = ShardLag.register(shardId);
+        if (pipeline == null) {
+            emitter.lag = lag;
+        } else {
+            // batches complete after newer records were received, so the pipeline marks each one itself
+            pipeline.setLag(lag);
+        }
+        register(MetricRegistry.name(shardPrefix, "buffer", "records"), () -> buffer.getRecords().size());
+        register(MetricRegistry.name(shardPrefix, "millisBehindLatest"), lag::getMillisBehindLatest);
+        register(MetricRegistry.name(shardPrefix, "freshnessMillis"), lag::getFreshnessMillis);
+        if (pipeline != null) {
+            register(MetricRegistry.name(shardPrefix, "emit", "pending"), pipeline::getPending);
+        }
+    }
+
+    private void register(String name, Gauge<?> gauge) {
+        metrics.remove(name);
+        metrics.register(name, gauge);
+    }
+
+    @Override
+    public void processRecords(List<Record> records, IRecordProcessorCheckpointer checkpointer) {
+        recordsIn.mark(records.size());
+        lag.received(records);
+        if (buffer instanceof CassandraBuffer) {
+            ((CassandraBuffer) buffer).setMillisBehindLatest(lag.getMillisBehindLatest());
+        }
+        final IRecordProcessorCheckpointer shardCheckpointer = pipeline == null ? checkpointer
+                : pipeline.checkpointer(checkpointer);
+        if (parallelTransformer == null) {
+            super.processRecords(records, shardCheckpointer);
+            return;
+        }
+        parallelTransformer.prefetch(records);
+        try {
+            super.processRecords(records, shardCheckpointer);
+        } finally {
+            parallelTransformer.clear();
+        }
+    }
+
+    @Override
+    public void shutdown(IRecordProcessorCheckpointer checkpointer, ShutdownReason reason) {
+        super.shutdown(pipeline == null ? checkpointer : pipeline.checkpointer(checkpointer), reason);
+        if (lag != null) {
+            ShardLag.unregister(shardId, lag);
+        }
+        if (shardPrefix != null) {
+            metrics.removeMatching((name, metric) -> name.startsWith(shardPrefix + "."));
+        }
+    }
+
+    /**
+     * Counts the rows written successfully by the wrapped emitter.
+     */
+    private static final class MeteredEmitter implements IEmitter<List<CassandraRecord>> {
+        private final IEmitter<List<CassandraRecord>> emitter;
+        private Meter rowsOut;
+        private ShardLag lag;
+
+        MeteredEmitter(IEmitter<List<CassandraRecord>> emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer)
+                throws IOException {
+            final List<List<CassandraRecord>> failed = emitter.emit(buffer);
+            rowsOut.mark(rows(buffer.getRecords()) - rows(failed));
+            if (failed.isEmpty() && lag != null) {
+                lag.written();
+            }
+            return failed;
+        }
+
+        @Override
+        public void fail(List<List<CassandraRecord>> records) {
+            emitter.fail(records);
+        }
+
+        @Override
+        public void shutdown() {
+            emitter.shutdown();
+        }
+
+        private static long rows(List<List<CassandraRecord>> records) {
+            long rows = 0;
+            for (List<CassandraRecord> cassRecords : records) {
+                rows += cassRecords.size();
+            }
+            return rows;
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package io.smartcat.kinesis.cassandra;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
  * An implementation of this interface is responsible for transforming a record coming
  * from Kinesis stream (<code>byte[]</code>) into a list of {@link CassandraRecord}s.
+ * <p>
+ * The connector calls {@link #transform(ByteBuffer, RecordMetadata)}, which copies the record data and
+ * delegates to {@link #transform(byte[])} by default. Implementations able to read the data in place
+ * should override it.
+ * <p>
+ * With {@link CassandraKinesisConnectorConfiguration#cassandraTransformParallelism} set, a single instance
+ * transforms the records of a shard from several threads at once, so it has to be thread-safe.
  */
 public interface CassandraTransformer {
     /**
@@ -22,4 +30,19 @@ public interface CassandraTransformer {
      * @return one or more cassandra records
      */
     List<CassandraRecord> transform(byte[] record);
+
+    /**
+     * Converts a Kinesis input record into one or more {@link CassandraRecord}s. The record data are the
+     * remaining bytes of the given buffer, which may be read-only or direct. Implementations must not
+     * modify the buffer position or limit.
+     *
+     * @param data     the record data
+     * @param metadata the record metadata
+     * @return one or more cassandra records
+     */
+    default List<CassandraRecord> transform(ByteBuffer data, RecordMetadata metadata) {
+        final byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return transform(bytes);
+    }
 }
@@ -0,0 +1,18 @@
+package io.smartcat.kinesis.cassandra;
+
+/**
+ * Converts a value produced by a {@link CassandraTransformer} into the Java type expected by the
+ * driver codec of a Cassandra column.
+ *
+ * @see ColumnConverters
+ */
+interface ColumnConverter {
+    /**
+     * Converts the given value.
+     *
+     * @param value the value to convert, never <code>null</code>
+     * @return the converted value
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    Object convert(Object value);
+}
@@ -0,0 +1,335 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.TupleType;
+import com.datastax.driver.core.TupleValue;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.UDTValue;
+import com.datastax.driver.core.UserType;
+import com.google.common.net.InetAddresses;
+
+/**
+ * Factory of {@link ColumnConverter}s for CQL types. Converters accept the values produced by the
+ * built-in transformers (strings, booleans, numbers, lists and maps) as well as values that are
+ * already of the target Java type:
+ * <ul>
+ * <li><code>tinyint</code>, <code>smallint</code>, <code>int</code> and <code>bigint</code> from numbers or
+ * strings, rejecting fractions and values out of range instead of truncating them,</li>
+ * <li><code>timestamp</code> from epoch milliseconds or ISO-8601 strings,</li>
+ * <li><code>date</code> from days since epoch or <code>yyyy-MM-dd</code> strings,</li>
+ * <li><code>time</code> from nanoseconds of day or <code>HH:mm:ss[.fffffffff]</code> strings,</li>
+ * <li><code>uuid</code>, <code>timeuuid</code>, <code>inet</code>, <code>decimal</code> and
+ * <code>varint</code> from their string representations or numbers,</li>
+ * <li><code>blob</code> from Base64 strings,</li>
+ * <li>collections and tuples from lists, and maps and UDTs from maps, converting every element.</li>
+ * </ul>
+ */
+final class ColumnConverters {
+
+    private static final ColumnConverter IDENTITY = value -> value;
+
+    private ColumnConverters() {
+        // prevent class instantiation
+    }
+
+    /**
+     * Creates a converter for the given CQL type.
+     *
+     * @param type     the CQL type
+     * @param registry the codec registry used for UDT fields and tuple components
+     * @return the converter
+     */
+    static ColumnConverter forType(DataType type, CodecRegistry registry) {
+        switch (type.getName()) {
+        case ASCII:
+        case TEXT:
+        case VARCHAR:
+            return Object::toString;
+        case BOOLEAN:
+            return ColumnConverters::toBoolean;
+        case TINYINT:
+            return value -> (byte) toLong(value, "tinyint", Byte.MIN_VALUE, Byte.MAX_VALUE);
+        case SMALLINT:
+            return value -> (short) toLong(value, "smallint", Short.MIN_VALUE, Short.MAX_VALUE);
+        case INT:
+            return value -> (int) toLong(value, "int", Integer.MIN_VALUE, Integer.MAX_VALUE);
+        case BIGINT:
+        case COUNTER:
+            return value -> toLong(value, "bigint", Long.MIN_VALUE, Long.MAX_VALUE);
+        case FLOAT:
+            return value -> toNumber(value).floatValue();
+        case DOUBLE:
+            return value -> toNumber(value).doubleValue();
+        case VARINT:
+            return ColumnConverters::toBigInteger;
+        case DECIMAL:
+            return ColumnConverters::toBigDecimal;
+        case TIMESTAMP:
+            return ColumnConverters::toTimestamp;
+        case DATE:
+            return ColumnConverters::toDate;
+        case TIME:
+            return ColumnConverters::toTime;
+        case UUID:
+        case TIMEUUID:
+            return value -> value instanceof UUID ? value : UUID.fromString(value.toString());
+        case INET:
+            return value -> value instanceof InetAddress ? value : InetAddresses.forString(value.toString());
+        case BLOB:
+            return ColumnConverters::toBlob;
+        case LIST:
+            return listConverter(forType(type.getTypeArguments().get(0), registry));
+        case SET:
+            return setConverter(forType(type.getTypeArguments().get(0), registry));
+        case MAP:
+            return mapConverter(forType(type.getTypeArguments().get(0), registry),
+                    forType(type.getTypeArguments().get(1), registry));
+        case UDT:
+            return udtConverter((UserType) type, registry);
+        case TUPLE:
+            return tupleConverter((TupleType) type, registry);
+        default:
+            return IDENTITY;
+        }
+    }
+
+    private static Boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        final String text = value.toString();
+        if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+            return Boolean.valueOf(text);
+        }
+        throw new IllegalArgumentException("Cannot convert " + value + " to boolean");
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    /**
+     * Converts a value to an integer exactly, rejecting fractions and values outside the range of the target type
+     * instead of truncating them.
+     */
+    private static long toLong(Object value, String type, long min, long max) {
+        final long result;
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            result = ((Number) value).longValue();
+        } else {
+            try {
+                result = toBigDecimal(value).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Cannot convert " + value + " to " + type, e);
+            }
+        }
+        if (result < min || result > max) {
+            throw new IllegalArgumentException("Cannot convert " + value + " to " + type);
+        }
+        return result;
+    }
+
+    private static BigInteger toBigInteger(Object value) {
+        if (value instanceof BigInteger) {
+            return (BigInteger) value;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toBigIntegerExact();
+        }
+        return new BigInteger(value.toString().trim());
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Number) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    private static Date toTimestamp(Object value) {
+        if (value instanceof Date) {
+            return (Date) value;
+        }
+        if (value instanceof Number) {
+            return new Date(((Number) value).longValue());
+        }
+        final String text = value.toString().trim();
+        if (isInteger(text)) {
+            return new Date(Long.parseLong(text));
+        }
+        return Date.from(OffsetDateTime.parse(text).toInstant());
+    }
+
+    private static boolean isInteger(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = text.charAt(0) == '-' ? 1 : 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static LocalDate toDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof Number) {
+            return LocalDate.fromDaysSinceEpoch(((Number) value).intValue());
+        }
+        final java.time.LocalDate date = java.time.LocalDate.parse(value.toString().trim());
+        return LocalDate.fromYearMonthDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    private static Long toTime(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return LocalTime.parse(value.toString().trim()).toNanoOfDay();
+    }
+
+    private static ByteBuffer toBlob(Object value) {
+        if (value instanceof ByteBuffer) {
+            return (ByteBuffer) value;
+        }
+        if (value instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) value);
+        }
+        return ByteBuffer.wrap(Base64.getDecoder().decode(value.toString()));
+    }
+
+    private static Collection<?> toCollection(Object value) {
+        if (value instanceof Collection) {
+            return (Collection<?>) value;
+        }
+        throw new IllegalArgumentException("Cannot convert " + value + " to a collection");
+    }
+
+    private static Map<?, ?> toMap(Object value) {
+        if (value instanceof Map) {
+            return (Map<?, ?>) value;
+        }
+        throw new IllegalArgumentException("Cannot convert " + value + " to a map");
+    }
+
+    private static ColumnConverter listConverter(ColumnConverter elementConverter) {
+        return value -> {
+            final Collection<?> elements = toCollection(value);
+            final List<Object> list = new ArrayList<>(elements.size());
+            for (Object element : elements) {
+                list.add(element == null ? null : elementConverter.convert(element));
+            }
+            return list;
+        };
+    }
+
+    private static ColumnConverter setConverter(ColumnConverter elementConverter) {
+        return value -> {
+            final Collection<?> elements = toCollection(value);
+            final Set<Object> set = new LinkedHashSet<>();
+            for (Object element : elements) {
+                set.add(element == null ? null : elementConverter.convert(element));
+            }
+            return set;
+        };
+    }
+
+    private static ColumnConverter mapConverter(ColumnConverter keyConverter, ColumnConverter valueConverter) {
+        return value -> {
+            final Map<?, ?> entries = toMap(value);
+            final Map<Object, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : entries.entrySet()) {
+                map.put(keyConverter.convert(entry.getKey()),
+                        entry.getValue() == null ? null : valueConverter.convert(entry.getValue()));
+            }
+            return map;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ColumnConverter udtConverter(UserType type, CodecRegistry registry) {
+        final Map<String, ColumnConverter> converters = new LinkedHashMap<>();
+        final Map<String, TypeCodec<Object>> codecs = new LinkedHashMap<>();
+        for (String field : type.getFieldNames()) {
+            converters.put(field, forType(type.getFieldType(field), registry));
+            codecs.put(field, registry.codecFor(type.getFieldType(field)));
+        }
+        return value -> {
+            if (value instanceof UDTValue) {
+                return value;
+            }
+            final UDTValue udt = type.newValue();
+            for (Map.Entry<?, ?> entry : toMap(value).entrySet()) {
+                final String field = entry.getKey().toString();
+                final ColumnConverter converter = converters.get(field);
+                if (converter != null && entry.getValue() != null) {
+                    udt.set(field, converter.convert(entry.getValue()), codecs.get(field));
+                }
+            }
+            return udt;
+        };
+    }
+
+    private static ColumnConverter tupleConverter(TupleType type, CodecRegistry registry) {
+        final List<DataType> components = type.getComponentTypes();
+        final ColumnConverter[] converters = new ColumnConverter[components.size()];
+        final List<TypeCodec<Object>> codecs = new ArrayList<>(components.size());
+        for (int i = 0; i < converters.length; i++) {
+            converters[i] = forType(components.get(i), registry);
+            codecs.add(registry.codecFor(components.get(i)));
+        }
+        return value -> {
+            if (value instanceof TupleValue) {
+                return value;
+            }
+            final TupleValue tuple = type.newValue();
+            int i = 0;
+            for (Object element : toCollection(value)) {
+                if (i >= converters.length) {
+                    throw new IllegalArgumentException("Too many components for " + type + ": " + value);
+                }
+                if (element != null) {
+                    tuple.set(i, converters[i].convert(element), codecs.get(i));
+                }
+                i++;
+            }
+            return tuple;
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+
+/**
+ * Limits the number of concurrent writes with a window adjusted by the outcome of the writes (AIMD).
+ * <ul>
+ * <li>Until the first overload, the window grows by one on every write completed within the target latency
+ * (slow start), and afterwards by one per window of such writes.</li>
+ * <li>A write slower than the target latency shrinks the window by {@value #LATENCY_DECREASE}, and a
+ * {@link WriteTimeoutException} or {@link OverloadedException} halves it. The window shrinks at most once per
+ * target latency, so a burst of slow writes counts as a single overload.</li>
+ * </ul>
+ * The window is kept between the given minimum and maximum, so a limiter with equal bounds is a plain
+ * semaphore. Adaptive limiters are shared by all the emitters of a cluster in the JVM (see
+ * {@link #shared(CassandraKinesisConnectorConfiguration)}), so the window reflects the total load the
+ * connector puts on the cluster.
+ */
+class ConcurrencyLimiter {
+
+    private static final double LATENCY_DECREASE = 0.9;
+    private static final double OVERLOAD_DECREASE = 0.5;
+    private static final ConcurrentMap<String, ConcurrencyLimiter> SHARED = new ConcurrentHashMap<>();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+
+    private double limit;
+    private int inFlight;
+    private boolean slowStart = true;
+    private long lastDecreaseNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param minLimit           the minimum window
+     * @param maxLimit           the maximum window
+     * @param initialLimit       the initial window
+     * @param targetLatencyNanos the write latency above which the window shrinks
+     */
+    ConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, long targetLatencyNanos) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos;
+    }
+
+    /**
+     * Returns a limiter for the writes of a single emitter. With
+     * {@link CassandraKinesisConnectorConfiguration#cassandraAdaptiveConcurrency} enabled, it is the adaptive
+     * limiter shared by all the emitters writing to the same cluster, otherwise a fixed limiter of
+     * {@link CassandraKinesisConnectorConfiguration#cassandraMaxInFlightWrites}.
+     *
+     * @param config actual configuration
+     * @return the limiter
+     */
+    static ConcurrencyLimiter shared(CassandraKinesisConnectorConfiguration config) {
+        if (!config.cassandraAdaptiveConcurrency) {
+            return new ConcurrencyLimiter(config.cassandraMaxInFlightWrites, config.cassandraMaxInFlightWrites,
+                    config.cassandraMaxInFlightWrites, Long.MAX_VALUE);
+        }
+        final String key = config.cassandraContactPoints + ":" + config.cassandraPort;
+        return SHARED.computeIfAbsent(key, k -> {
+            final ConcurrencyLimiter limiter = new ConcurrencyLimiter(config.cassandraMinInFlightWrites,
+                    config.cassandraMaxInFlightWrites, config.cassandraMinInFlightWrites,
+                    TimeUnit.MILLISECONDS.toNanos(config.cassandraTargetWriteLatencyMillis));
+            final MetricRegistry metrics = ConnectorMetrics.registry(config);
+            final String name = MetricRegistry.name("emitter", "concurrencyLimit");
+            metrics.remove(name);
+            metrics.register(name, (Gauge<Integer>) limiter::getLimit);
+            return limiter;
+        });
+    }
+
+    /**
+     * Waits until the number of writes in flight is below the window, and counts a new write.
+     */
+    synchronized void acquire() {
+        boolean interrupted = false;
+        while (inFlight >= (int) limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        inFlight++;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts a completed write and adjusts the window by its outcome.
+     *
+     * @param latencyNanos the write latency
+     * @param error        the write error, or <code>null</code> if the write succeeded
+     */
+    synchronized void release(long latencyNanos, Throwable error) {
+        inFlight--;
+        if (error instanceof WriteTimeoutException || error instanceof OverloadedException) {
+            decrease(OVERLOAD_DECREASE);
+        } else if (latencyNanos > targetLatencyNanos) {
+            decrease(LATENCY_DECREASE);
+        } else if (error == null && inFlight + 1 >= limit / 2) {
+            // grows only while the window is in use
+            limit = Math.min(maxLimit, limit + (slowStart ? 1 : 1 / limit));
+        }
+        notifyAll();
+    }
+
+    /**
+     * Counts a write which was not executed, without adjusting the window.
+     */
+    synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * @return the current window
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    private void decrease(double factor) {
+        final long now = System.nanoTime();
+        if (now - lastDecreaseNanos < targetLatencyNanos) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        slowStart = false;
+        limit = Math.max(minLimit, limit * factor);
+    }
+}
@@ -0,0 +1,75 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Provides the {@link MetricRegistry} the connector components register their metrics with. The registry is
+ * the shared registry named by {@link CassandraKinesisConnectorConfiguration#cassandraMetricsRegistry}, so an
+ * application can plug in its own registry (and reporters) by adding it to {@link SharedMetricRegistries}
+ * under that name before the connector starts. Unless
+ * {@link CassandraKinesisConnectorConfiguration#cassandraMetricsJmxEnabled} is disabled, a {@link JmxReporter}
+ * is started once per registry.
+ * <p>
+ * The built-in components register the following metrics:
+ * <ul>
+ * <li><code>shard.&lt;shardId&gt;.records.in</code> - meter of Kinesis records received by a shard,</li>
+ * <li><code>shard.&lt;shardId&gt;.rows.out</code> - meter of rows written by a shard,</li>
+ * <li><code>shard.&lt;shardId&gt;.buffer.records</code> - gauge of records buffered by a shard,</li>
+ * <li><code>shard.&lt;shardId&gt;.millisBehindLatest</code> - gauge of the estimated time a shard is behind the
+ * tip of the stream,</li>
+ * <li><code>shard.&lt;shardId&gt;.freshnessMillis</code> - gauge of the age of the newest record a shard wrote to
+ * Cassandra,</li>
+ * <li><code>shard.&lt;shardId&gt;.emit.pending</code> - gauge of batches a shard emitted and not written yet, with
+ * the asynchronous emit pipeline enabled,</li>
+ * <li><code>transformer.time</code> - timer of record transformations,</li>
+ * <li><code>transformer.rows</code> - meter of rows produced by transformations,</li>
+ * <li><code>transformer.parseFailures</code> - meter of records which could not be parsed,</li>
+ * <li><code>transformer.unrouted</code> - meter of rows matching no route,</li>
+ * <li><code>transformer.filtered</code> - meter of records and rows rejected by the filter,</li>
+ * <li><code>filter.empty</code> - meter of Kinesis records which produced no rows,</li>
+ * <li><code>buffer.flush.bytes</code>, <code>buffer.flush.rows</code>, <code>buffer.flush.age</code> and
+ * <code>buffer.flush.lag</code> - meters of buffer flushes by the limit which triggered them,</li>
+ * <li><code>buffer.flush.size</code> - histogram of rows per flush,</li>
+ * <li><code>emitter.inFlight</code> - counter of writes in flight,</li>
+ * <li><code>emitter.concurrencyLimit</code> - gauge of the adaptive limit of concurrent writes,</li>
+ * <li><code>emitter.writes.&lt;keyspace&gt;.&lt;table&gt;</code> - timer of writes per table,</li>
+ * <li><code>emitter.errors.&lt;exception&gt;</code> - meter of failed writes by exception type,</li>
+ * <li><code>emitter.coalesced</code> - meter of records merged into other records of the same row,</li>
+ * <li><code>emitter.retries</code> - meter of writes retried after a transient error,</li>
+ * <li><code>spill.appended</code> - meter of failed records stored in the spill queue,</li>
+ * <li><code>spill.replayed</code> - meter of spilled records written to Cassandra,</li>
+ * <li><code>spill.dropped</code> - meter of failed records lost because the spill queue was full or they could
+ * not be bound.</li>
+ * </ul>
+ */
+public final class ConnectorMetrics {
+
+    private static final ConcurrentMap<String, JmxReporter> REPORTERS = new ConcurrentHashMap<>();
+
+    private ConnectorMetrics() {
+        // prevent class instantiation
+    }
+
+    /**
+     * Returns the metric registry for the given configuration, starting its JMX reporter if needed.
+     *
+     * @param config actual configuration
+     * @return the metric registry
+     */
+    public static MetricRegistry registry(CassandraKinesisConnectorConfiguration config) {
+        final MetricRegistry registry = SharedMetricRegistries.getOrCreate(config.cassandraMetricsRegistry);
+        if (config.cassandraMetricsJmxEnabled) {
+            REPORTERS.computeIfAbsent(config.cassandraMetricsRegistry, name -> {
+                final JmxReporter reporter = JmxReporter.forRegistry(registry).inDomain(name).build();
+                reporter.start();
+                return reporter;
+            });
+        }
+        return registry;
+    }
+}
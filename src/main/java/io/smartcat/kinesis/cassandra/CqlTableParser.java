@@ -0,0 +1,237 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TupleType;
+
+/**
+ * Builds a {@link TableSchema} from a <code>CREATE TABLE</code> statement, for components which have to convert
+ * record values without a connection to the cluster, such as {@link SSTableCassandraEmitter}. Only the table
+ * name, the column definitions and the primary key are read, table options are ignored. Unquoted identifiers are
+ * case insensitive, as in CQL. Native types, collections and tuples are resolved, <code>frozen</code> is ignored,
+ * and any other type, such as a user-defined type, is kept as a custom type whose values are not converted.
+ */
+final class CqlTableParser {
+
+    private static final Map<String, DataType> NATIVE_TYPES = new LinkedHashMap<>();
+
+    static {
+        for (DataType type : DataType.allPrimitiveTypes()) {
+            NATIVE_TYPES.put(type.getName().toString(), type);
+        }
+    }
+
+    private final String statement;
+    private int position;
+
+    private CqlTableParser(String statement) {
+        this.statement = statement;
+    }
+
+    /**
+     * Parses the given statement.
+     *
+     * @param statement the <code>CREATE TABLE</code> statement, with a keyspace qualified table name
+     * @param registry  the codec registry
+     * @return the table schema
+     * @throws IllegalArgumentException if the statement cannot be parsed
+     */
+    static TableSchema parse(String statement, CodecRegistry registry) {
+        return new CqlTableParser(statement).parse(registry);
+    }
+
+    private TableSchema parse(CodecRegistry registry) {
+        expectWord("create");
+        expectWord("table");
+        if (acceptWord("if")) {
+            expectWord("not");
+            expectWord("exists");
+        }
+        final String keyspace = identifier();
+        if (!accept('.')) {
+            throw error("keyspace qualified table name expected");
+        }
+        final String table = identifier();
+        expect('(');
+
+        final Map<String, DataType> types = new LinkedHashMap<>();
+        final List<String> primaryKey = new ArrayList<>();
+        do {
+            if (acceptWord("primary")) {
+                expectWord("key");
+                primaryKey.addAll(primaryKey());
+            } else {
+                final String column = identifier();
+                types.put(column, type(registry));
+                if (acceptWord("primary")) {
+                    expectWord("key");
+                    primaryKey.add(column);
+                }
+                acceptWord("static");
+            }
+        } while (accept(','));
+        expect(')');
+
+        if (primaryKey.isEmpty()) {
+            throw error("primary key expected");
+        }
+        return new TableSchema(keyspace, table, types, primaryKey, registry);
+    }
+
+    private List<String> primaryKey() {
+        final List<String> columns = new ArrayList<>();
+        expect('(');
+        do {
+            if (accept('(')) {
+                do {
+                    columns.add(identifier());
+                } while (accept(','));
+                expect(')');
+            } else {
+                columns.add(identifier());
+            }
+        } while (accept(','));
+        expect(')');
+        return columns;
+    }
+
+    private DataType type(CodecRegistry registry) {
+        final String name = identifier();
+        switch (name) {
+        case "frozen":
+            expect('<');
+            final DataType frozen = type(registry);
+            expect('>');
+            return frozen;
+        case "list":
+            expect('<');
+            final DataType element = type(registry);
+            expect('>');
+            return DataType.list(element);
+        case "set":
+            expect('<');
+            final DataType member = type(registry);
+            expect('>');
+            return DataType.set(member);
+        case "map":
+            expect('<');
+            final DataType key = type(registry);
+            expect(',');
+            final DataType value = type(registry);
+            expect('>');
+            return DataType.map(key, value);
+        case "tuple":
+            final List<DataType> components = new ArrayList<>();
+            expect('<');
+            do {
+                components.add(type(registry));
+            } while (accept(','));
+            expect('>');
+            return TupleType.of(ProtocolVersion.NEWEST_SUPPORTED, registry,
+                    components.toArray(new DataType[components.size()]));
+        default:
+            final DataType type = NATIVE_TYPES.get(name);
+            return type != null ? type : DataType.custom(name);
+        }
+    }
+
+    private String identifier() {
+        skipWhitespace();
+        if (position < statement.length() && statement.charAt(position) == '"') {
+            final StringBuilder name = new StringBuilder();
+            for (position++; position < statement.length(); position++) {
+                final char c = statement.charAt(position);
+                if (c == '"') {
+                    if (position + 1 < statement.length() && statement.charAt(position + 1) == '"') {
+                        position++;
+                    } else {
+                        position++;
+                        return name.toString();
+                    }
+                }
+                name.append(c);
+            }
+            throw error("unterminated quoted identifier");
+        }
+        final int start = position;
+        while (position < statement.length() && isWordCharacter(statement.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error("identifier expected");
+        }
+        return statement.substring(start, position).toLowerCase();
+    }
+
+    private boolean acceptWord(String word) {
+        final int start = position;
+        skipWhitespace();
+        final int end = position + word.length();
+        if (end <= statement.length() && statement.regionMatches(true, position, word, 0, word.length())
+                && (end == statement.length() || !isWordCharacter(statement.charAt(end)))) {
+            position = end;
+            return true;
+        }
+        position = start;
+        return false;
+    }
+
+    private void expectWord(String word) {
+        if (!acceptWord(word)) {
+            throw error("'" + word + "' expected");
+        }
+    }
+
+    private boolean accept(char c) {
+        skipWhitespace();
+        if (position < statement.length() && statement.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("'" + c + "' expected");
+        }
+    }
+
+    /**
+     * Skips whitespace and comments, <code>--</code> and <code>//</code> up to the end of the line, and
+     * <code>/* *&#47;</code> up to its end.
+     */
+    private void skipWhitespace() {
+        while (position < statement.length()) {
+            if (Character.isWhitespace(statement.charAt(position))) {
+                position++;
+            } else if (statement.startsWith("--", position) || statement.startsWith("//", position)) {
+                final int end = statement.indexOf('\n', position);
+                position = end < 0 ? statement.length() : end + 1;
+            } else if (statement.startsWith("/*", position)) {
+                final int end = statement.indexOf("*/", position + 2);
+                if (end < 0) {
+                    throw error("unterminated comment");
+                }
+                position = end + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid CREATE TABLE statement, " + message + " at position "
+                + position + ": " + statement);
+    }
+}
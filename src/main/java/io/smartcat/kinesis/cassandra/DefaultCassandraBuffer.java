@@ -0,0 +1,150 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Default implementation of {@link CassandraBuffer}. It holds the transformed records only, and flushes
+ * as soon as any of the following limits is reached:
+ * <ul>
+ * <li>the total size of the buffered Kinesis record payloads reaches
+ * {@link CassandraKinesisConnectorConfiguration#BUFFER_BYTE_SIZE_LIMIT},</li>
+ * <li>the number of buffered rows reaches {@link CassandraKinesisConnectorConfiguration#BUFFER_RECORD_COUNT_LIMIT},
+ * </li>
+ * <li>the first buffered record is older than
+ * {@link CassandraKinesisConnectorConfiguration#BUFFER_MILLISECONDS_LIMIT},</li>
+ * <li>the shard is more than {@link CassandraKinesisConnectorConfiguration#cassandraLagFlushThresholdMillis}
+ * behind the tip of the stream, in which case every batch of records is flushed as soon as it is buffered.</li>
+ * </ul>
+ * Unlike the time since the last flush, the age of the first record keeps the latency of low-volume shards
+ * bounded, while the byte limit keeps the heap usage of hot shards bounded. Kinesis records which produced no
+ * rows are buffered only to advance the sequence number, and count toward the age limit only, so a shard whose
+ * records are all filtered out still checkpoints. The limit which triggered a flush and the number of flushed
+ * rows are recorded as metrics (see {@link ConnectorMetrics}).
+ */
+public class DefaultCassandraBuffer implements CassandraBuffer {
+
+    private final List<List<CassandraRecord>> buffer = new ArrayList<>();
+
+    private long bytesToBuffer;
+    private long rowsToBuffer;
+    private long millisecondsToBuffer;
+    private long lagFlushThresholdMillis;
+    private long millisBehindLatest;
+
+    private long byteCount;
+    private long rowCount;
+    private long firstRecordTimeMillis;
+    private String firstSequenceNumber;
+    private String lastSequenceNumber;
+
+    private Meter bytesFlushes;
+    private Meter rowsFlushes;
+    private Meter ageFlushes;
+    private Meter lagFlushes;
+    private Histogram flushSize;
+
+    @Override
+    public void init(CassandraKinesisConnectorConfiguration config) {
+        this.bytesToBuffer = config.BUFFER_BYTE_SIZE_LIMIT;
+        this.rowsToBuffer = config.BUFFER_RECORD_COUNT_LIMIT;
+        this.millisecondsToBuffer = config.BUFFER_MILLISECONDS_LIMIT;
+        this.lagFlushThresholdMillis = config.cassandraLagFlushThresholdMillis;
+
+        final MetricRegistry metrics = ConnectorMetrics.registry(config);
+        this.bytesFlushes = metrics.meter(MetricRegistry.name("buffer", "flush", "bytes"));
+        this.rowsFlushes = metrics.meter(MetricRegistry.name("buffer", "flush", "rows"));
+        this.ageFlushes = metrics.meter(MetricRegistry.name("buffer", "flush", "age"));
+        this.lagFlushes = metrics.meter(MetricRegistry.name("buffer", "flush", "lag"));
+        this.flushSize = metrics.histogram(MetricRegistry.name("buffer", "flush", "size"));
+    }
+
+    @Override
+    public long getBytesToBuffer() {
+        return bytesToBuffer;
+    }
+
+    @Override
+    public long getNumRecordsToBuffer() {
+        return rowsToBuffer;
+    }
+
+    @Override
+    public long getMillisecondsToBuffer() {
+        return millisecondsToBuffer;
+    }
+
+    @Override
+    public boolean shouldFlush() {
+        if (buffer.isEmpty()) {
+            return false;
+        }
+        final Meter reason;
+        if (byteCount >= bytesToBuffer) {
+            reason = bytesFlushes;
+        } else if (rowCount >= rowsToBuffer) {
+            reason = rowsFlushes;
+        } else if (getCurrentTimeMilliseconds() - firstRecordTimeMillis >= millisecondsToBuffer) {
+            reason = ageFlushes;
+        } else if (lagFlushThresholdMillis > 0 && millisBehindLatest > lagFlushThresholdMillis) {
+            reason = lagFlushes;
+        } else {
+            return false;
+        }
+        reason.mark();
+        flushSize.update(rowCount);
+        return true;
+    }
+
+    @Override
+    public void setMillisBehindLatest(long millisBehindLatest) {
+        this.millisBehindLatest = millisBehindLatest;
+    }
+
+    @Override
+    public void consumeRecord(List<CassandraRecord> record, int recordBytes, String sequenceNumber) {
+        if (buffer.isEmpty()) {
+            firstSequenceNumber = sequenceNumber;
+            firstRecordTimeMillis = getCurrentTimeMilliseconds();
+        }
+        lastSequenceNumber = sequenceNumber;
+        buffer.add(record);
+        if (!record.isEmpty()) {
+            byteCount += recordBytes;
+            rowCount += record.size();
+        }
+    }
+
+    @Override
+    public void clear() {
+        buffer.clear();
+        byteCount = 0;
+        rowCount = 0;
+    }
+
+    @Override
+    public String getFirstSequenceNumber() {
+        return firstSequenceNumber;
+    }
+
+    @Override
+    public String getLastSequenceNumber() {
+        return lastSequenceNumber;
+    }
+
+    @Override
+    public List<List<CassandraRecord>> getRecords() {
+        return buffer;
+    }
+
+    /**
+     * @return the current time in milliseconds
+     */
+    protected long getCurrentTimeMilliseconds() {
+        return System.currentTimeMillis();
+    }
+}
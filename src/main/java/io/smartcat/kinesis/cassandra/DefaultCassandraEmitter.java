@@ -1,65 +1,162 @@
 package io.smartcat.kinesis.cassandra;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
-import com.datastax.driver.core.Cluster;
-import com.datastax.driver.core.QueryOptions;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.AtomicMonotonicTimestampGenerator;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TimestampGenerator;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.QueryValidationException;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * This class in a basic implementation of {@link CassandraEmitter}. It connects to a Cassandra
- * cluster using the given {@link CassandraKinesisConnectorConfiguration} properties. All the
+ * cluster using the given {@link CassandraKinesisConnectorConfiguration} properties, through a session
+ * shared with the other emitters of the JVM configured for the same cluster (see {@link SessionRegistry}),
+ * and built with the configured pooling options. All the
  * given {@link CassandraRecord}s in {@link CassandraEmitter#emit(UnmodifiableBuffer)} are stored
- * into the respective Cassandra table executing {@link Session#executeAsync(String)} with
- * {@link CassandraRecord#toCqlStatement()}.
+ * into the respective Cassandra table executing {@link Session#executeAsync(Statement)} with
+ * a prepared INSERT statement. Prepared statements are cached per keyspace, table and column set
+ * (see {@link CassandraKinesisConnectorConfiguration#cassandraPreparedStatementCacheSize}).
+ * <p>
+ * At most {@link CassandraKinesisConnectorConfiguration#cassandraMaxInFlightWrites} writes are
+ * executed concurrently. {@link #emit(UnmodifiableBuffer)} waits until all the writes of the buffer
+ * complete and returns the records whose writes failed, so they can be retried or passed to
+ * {@link #fail(List)}. With {@link CassandraKinesisConnectorConfiguration#cassandraAdaptiveConcurrency}
+ * enabled, the number of concurrent writes is instead adjusted to the write latency and overload errors
+ * by a {@link ConcurrencyLimiter} shared by all the emitters in the JVM.
+ * <p>
+ * When {@link CassandraKinesisConnectorConfiguration#cassandraBatchWrites} is enabled, records are grouped
+ * by table and partition key and each group is written as an {@link BatchStatement.Type#UNLOGGED} batch of
+ * at most {@link CassandraKinesisConnectorConfiguration#cassandraMaxBatchSize} statements. Such batches touch
+ * a single partition and are routed to one of its replicas by the token-aware load balancing policy.
+ * <p>
+ * When {@link CassandraKinesisConnectorConfiguration#cassandraSchemaAware} is enabled, the metadata of the
+ * target tables is loaded once and cached until the schema changes. Record values are then converted to
+ * the CQL types of their columns (see {@link ColumnConverters}) and bound with precomputed codecs, while
+ * record columns that do not exist in the table are ignored.
+ * <p>
+ * When {@link CassandraKinesisConnectorConfiguration#cassandraCoalesceWrites} is enabled, the records of a
+ * buffer which target the same primary key are merged before they are written (see {@link RecordCoalescer}),
+ * so a row updated several times within one flush is written once, with its final image. If the write of a
+ * merged record fails, all the records it was merged from are returned as failed.
+ * <p>
+ * All the writes are idempotent. A write of records without their own timestamp is stamped once, before its first
+ * attempt, so its retries and speculative executions cannot overwrite a newer version of a row written meanwhile,
+ * and the failed records keep that timestamp when they are returned or spilled. Writes failed by a transient error
+ * are retried up to
+ * {@link CassandraKinesisConnectorConfiguration#cassandraWriteRetries} times with an exponential backoff and
+ * jitter, and with {@link CassandraKinesisConnectorConfiguration#cassandraSpeculativeExecutionDelayMillis} set,
+ * slow writes are also sent to other replicas (see {@link SessionRegistry}).
+ * <p>
+ * When {@link CassandraKinesisConnectorConfiguration#cassandraSpillDirectory} is set, {@link #fail(List)} stores
+ * the records in a local spill queue instead of logging them, and they are written in the background once the
+ * cluster is healthy again (see {@link SpillReplayer}).
+ * <p>
+ * The number of writes in flight, the write latency per table, the failed writes by exception type and the
+ * coalesced records are recorded as metrics (see {@link ConnectorMetrics}).
  */
 public class DefaultCassandraEmitter implements CassandraEmitter {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCassandraEmitter.class);
 
+    private static final TimestampGenerator TIMESTAMPS = new AtomicMonotonicTimestampGenerator();
+
     private CassandraKinesisConnectorConfiguration config;
-    private Cluster cluster;
     private Session session;
+    private boolean sharedSession;
+    private TableSchemaCache schemaCache;
+    private PreparedStatementCache statementCache;
+    private RecordCoalescer coalescer;
+    private ConcurrencyLimiter inFlightWrites;
+    private MetricRegistry metrics;
+    private Counter inFlightCounter;
+    private Meter coalescedRecords;
+    private Meter retriedWrites;
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer>> writeTimers = new ConcurrentHashMap<>();
+    private SpillReplayer spillReplayer;
 
     @Override
     public void init(CassandraKinesisConnectorConfiguration config) {
-        this.config = config;
-
-        LOGGER.info("Connecting to cluster with contact points: {} and port: {}",
-                config.cassandraContactPoints, config.cassandraPort);
-
-        final String[] nodes = config.cassandraContactPoints.split(",");
-
-        final QueryOptions queryOptions = new QueryOptions();
-        queryOptions.setConsistencyLevel(config.cassandraConsistencyLevel);
+        final Session session = SessionRegistry.acquire(config);
+        try {
+            init(config, session);
+        } catch (RuntimeException | Error e) {
+            SessionRegistry.release(session);
+            throw e;
+        }
+        sharedSession = true;
+    }
 
-        cluster = Cluster.builder()
-                .addContactPoints(nodes)
-                .withPort(config.cassandraPort)
-                .withCredentials(config.cassandraUsername, config.cassandraPassword)
-                .withQueryOptions(queryOptions)
-                .build();
-        session = cluster.connect();
+    /**
+     * Initializes the emitter with an already connected session.
+     *
+     * @param config  actual configuration
+     * @param session the session to write with
+     */
+    void init(CassandraKinesisConnectorConfiguration config, Session session) {
+        this.config = config;
+        this.session = session;
+        if (config.cassandraSchemaAware || config.cassandraCoalesceWrites) {
+            schemaCache = new TableSchemaCache(session.getCluster());
+        }
+        statementCache = new PreparedStatementCache(session, config.cassandraPreparedStatementCacheSize,
+                config.cassandraSchemaAware ? schemaCache : null);
+        if (config.cassandraCoalesceWrites) {
+            coalescer = new RecordCoalescer(schemaCache);
+        }
+        inFlightWrites = ConcurrencyLimiter.shared(config);
+        metrics = ConnectorMetrics.registry(config);
+        inFlightCounter = metrics.counter(MetricRegistry.name("emitter", "inFlight"));
+        coalescedRecords = metrics.meter(MetricRegistry.name("emitter", "coalesced"));
+        retriedWrites = metrics.meter(MetricRegistry.name("emitter", "retries"));
+        if (config.cassandraSpillDirectory != null) {
+            try {
+                spillReplayer = SpillReplayer.acquire(config);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open spill queue in " + config.cassandraSpillDirectory, e);
+            }
+        }
     }
 
     @Override
     public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer) throws IOException {
-        if (config == null || !cluster.isClosed()) {
+        if (config == null || session == null || session.isClosed()) {
             throw new IllegalStateException("Emitter has to be initialized first.");
         }
-        insert(buffer.getRecords());
-
-        return Collections.emptyList();
+        return insert(buffer.getRecords());
     }
 
     @Override
     public void fail(List<List<CassandraRecord>> records) {
+        if (spillReplayer != null) {
+            spillReplayer.spill(records);
+            return;
+        }
         for (List<CassandraRecord> cassRecords : records) {
             for (CassandraRecord rec : cassRecords) {
                 LOGGER.error("Could not emit record: " + rec);
@@ -69,23 +166,338 @@ public class DefaultCassandraEmitter implements CassandraEmitter {
 
     @Override
     public void shutdown() {
-        LOGGER.info("Disconnecting from cluster.");
-        if (cluster != null && !cluster.isClosed()) {
-            cluster.close();
-            cluster = null;
+        if (spillReplayer != null) {
+            SpillReplayer.release(spillReplayer);
+            spillReplayer = null;
+        }
+        if (schemaCache != null) {
+            schemaCache.close();
+            schemaCache = null;
+        }
+        if (sharedSession) {
+            SessionRegistry.release(session);
+            sharedSession = false;
+        }
+    }
+
+    private List<List<CassandraRecord>> insert(List<List<CassandraRecord>> records) {
+        RecordCoalescer.Result coalesced = null;
+        List<List<CassandraRecord>> toWrite = records;
+        if (coalescer != null) {
+            coalesced = coalescer.coalesce(records);
+            coalescedRecords.mark(coalesced.getMerged());
+            toWrite = Collections.singletonList(coalesced.getRecords());
+        }
+
+        final List<PendingWrite> writes = config.cassandraBatchWrites ? toBatchedWrites(toWrite)
+                : toSingleWrites(toWrite);
+        final List<PendingWrite> failedWrites = execute(writes);
+
+        final Set<CassandraRecord> failedRecords = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PendingWrite write : failedWrites) {
+            for (CassandraRecord record : write.records) {
+                final List<CassandraRecord> sources = coalesced == null ? Collections.singletonList(record)
+                        : coalesced.getSources(record);
+                final long timestamp = record.getTimestamp() != CassandraRecord.NO_TIMESTAMP ? record.getTimestamp()
+                        : write.timestamp;
+                for (CassandraRecord source : sources) {
+                    if (source.getTimestamp() == CassandraRecord.NO_TIMESTAMP) {
+                        source.setTimestamp(timestamp);
+                    }
+                }
+                failedRecords.addAll(sources);
+            }
+        }
+        if (failedRecords.isEmpty()) {
+            return Collections.emptyList();
         }
+
+        final List<List<CassandraRecord>> failed = new ArrayList<>();
+        for (List<CassandraRecord> cassRecords : records) {
+            final List<CassandraRecord> failedGroup = new ArrayList<>();
+            for (CassandraRecord record : cassRecords) {
+                if (failedRecords.contains(record)) {
+                    failedGroup.add(record);
+                }
+            }
+            if (!failedGroup.isEmpty()) {
+                failed.add(failedGroup);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Executes the given writes, retrying the writes which failed with a transient error up to
+     * {@link CassandraKinesisConnectorConfiguration#cassandraWriteRetries} times. Before every retry the emitter
+     * waits a random time up to an exponentially growing delay (full jitter), so the retries of many shards do
+     * not hit a recovering cluster at once.
+     *
+     * @return the writes which failed
+     */
+    private List<PendingWrite> execute(List<PendingWrite> writes) {
+        final List<PendingWrite> failed = new ArrayList<>();
+        List<PendingWrite> pending = writes;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            for (PendingWrite write : pending) {
+                executeAsync(write);
+            }
+            final List<PendingWrite> retries = new ArrayList<>();
+            for (PendingWrite write : pending) {
+                if (await(write)) {
+                    continue;
+                }
+                if (attempt < config.cassandraWriteRetries && isRetryable(write.error)) {
+                    retries.add(write);
+                } else {
+                    failed.add(write);
+                }
+            }
+            if (!retries.isEmpty() && !backoff(attempt)) {
+                failed.addAll(retries);
+                break;
+            }
+            retriedWrites.mark(retries.size());
+            pending = retries;
+        }
+        return failed;
     }
 
-    private void insert(List<List<CassandraRecord>> records) {
+    private static boolean isRetryable(Throwable error) {
+        return error instanceof DriverException && !(error instanceof QueryValidationException);
+    }
+
+    private boolean backoff(int attempt) {
+        final long delay = Math.min(config.cassandraRetryMaxDelayMillis,
+                (long) config.cassandraRetryBaseDelayMillis << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(delay + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<PendingWrite> toSingleWrites(List<List<CassandraRecord>> records) {
+        final List<PendingWrite> writes = new ArrayList<>();
         for (List<CassandraRecord> cassRecords : records) {
             for (CassandraRecord record : cassRecords) {
-                executeInsertsAsync(record.toCqlStatement());
+                writes.add(new PendingWrite(record, bind(record)));
             }
         }
+        return writes;
     }
 
-    private void executeInsertsAsync(Statement statement) {
-        LOGGER.debug("Inserting {}", statement.toString());
-        session.executeAsync(statement);
+    /**
+     * Groups the records by table and partition key, so that every group can be sent as a single-partition
+     * unlogged batch. The batch routing key is the partition key, so the driver's token-aware load balancing
+     * policy sends it straight to a replica. Records without a routing key are written one by one.
+     * <p>
+     * The statements of a batch share its timestamp, and Cassandra resolves writes of the same cell with the same
+     * timestamp by their values, not by their order. Records without their own timestamp are therefore stamped
+     * with increasing timestamps, so a later version of a row in the same batch wins.
+     */
+    private List<PendingWrite> toBatchedWrites(List<List<CassandraRecord>> records) {
+        final List<PendingWrite> writes = new ArrayList<>();
+        final Map<PartitionKey, PendingWrite> partitions = new LinkedHashMap<>();
+        final ProtocolVersion protocolVersion = protocolVersion();
+        final CodecRegistry codecRegistry = codecRegistry();
+        for (List<CassandraRecord> cassRecords : records) {
+            for (CassandraRecord record : cassRecords) {
+                if (record.getTimestamp() == CassandraRecord.NO_TIMESTAMP) {
+                    record.setTimestamp(TIMESTAMPS.next());
+                }
+                final BoundStatement statement = bind(record);
+                final ByteBuffer routingKey = statement == null ? null
+                        : statement.getRoutingKey(protocolVersion, codecRegistry);
+                if (routingKey == null) {
+                    writes.add(new PendingWrite(record, statement));
+                    continue;
+                }
+
+                final PartitionKey key = new PartitionKey(record.getKeyspace(), record.getTable(), routingKey);
+                PendingWrite partition = partitions.get(key);
+                if (partition == null || partition.records.size() >= config.cassandraMaxBatchSize) {
+                    if (partition != null) {
+                        writes.add(partition);
+                    }
+                    partition = new PendingWrite();
+                    partitions.put(key, partition);
+                }
+                partition.add(record, statement);
+            }
+        }
+        writes.addAll(partitions.values());
+
+        for (PendingWrite write : writes) {
+            write.seal();
+        }
+        return writes;
+    }
+
+    private BoundStatement bind(CassandraRecord record) {
+        try {
+            return statementCache.bind(record);
+        } catch (RuntimeException e) {
+            markError(e);
+            LOGGER.warn("Failed to bind insert for record: " + record, e);
+            return null;
+        }
+    }
+
+    private ProtocolVersion protocolVersion() {
+        return session.getCluster().getConfiguration().getProtocolOptions().getProtocolVersion();
+    }
+
+    private CodecRegistry codecRegistry() {
+        return session.getCluster().getConfiguration().getCodecRegistry();
+    }
+
+    private void executeAsync(PendingWrite write) {
+        write.future = null;
+        write.error = null;
+        if (write.statement == null) {
+            return;
+        }
+        if (write.timestamp == CassandraRecord.NO_TIMESTAMP) {
+            // records with their own timestamp are bound with USING TIMESTAMP, which overrides this one
+            write.timestamp = TIMESTAMPS.next();
+            write.statement.setDefaultTimestamp(write.timestamp);
+        }
+        inFlightWrites.acquire();
+        inFlightCounter.inc();
+        try {
+            LOGGER.debug("Inserting {}", write.records);
+            final Timer.Context context = writeTimer(write.records.get(0)).time();
+            final ResultSetFuture future = session.executeAsync(write.statement);
+            write.future = future;
+            future.addListener(() -> {
+                final long latency = context.stop();
+                inFlightCounter.dec();
+                inFlightWrites.release(latency, failure(future));
+            }, MoreExecutors.sameThreadExecutor());
+        } catch (RuntimeException e) {
+            inFlightCounter.dec();
+            inFlightWrites.cancel();
+            markError(e);
+            LOGGER.warn("Failed to execute insert for records: " + write.records, e);
+        }
+    }
+
+    private static Throwable failure(ResultSetFuture future) {
+        try {
+            future.getUninterruptibly();
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private boolean await(PendingWrite write) {
+        if (write.future == null) {
+            return false;
+        }
+        try {
+            write.future.getUninterruptibly();
+            return true;
+        } catch (RuntimeException e) {
+            write.error = e;
+            markError(e);
+            LOGGER.warn("Insert failed for records: " + write.records, e);
+            return false;
+        }
+    }
+
+    private Timer writeTimer(CassandraRecord record) {
+        ConcurrentMap<String, Timer> tables = writeTimers.get(record.getKeyspace());
+        if (tables == null) {
+            tables = writeTimers.computeIfAbsent(record.getKeyspace(), keyspace -> new ConcurrentHashMap<>());
+        }
+        Timer timer = tables.get(record.getTable());
+        if (timer == null) {
+            timer = tables.computeIfAbsent(record.getTable(), table -> metrics.timer(
+                    MetricRegistry.name("emitter", "writes", record.getKeyspace(), table)));
+        }
+        return timer;
+    }
+
+    private void markError(Exception e) {
+        metrics.meter(MetricRegistry.name("emitter", "errors", e.getClass().getSimpleName())).mark();
+    }
+
+    /**
+     * A single statement (either one INSERT or an unlogged batch of INSERTs) together with the records it writes.
+     */
+    private static final class PendingWrite {
+        private final List<CassandraRecord> records;
+        private final List<Statement> statements;
+        private Statement statement;
+        private long timestamp = CassandraRecord.NO_TIMESTAMP;
+        private ResultSetFuture future;
+        private Throwable error;
+
+        PendingWrite() {
+            this.records = new ArrayList<>();
+            this.statements = new ArrayList<>();
+        }
+
+        PendingWrite(CassandraRecord record, Statement statement) {
+            this.records = Collections.singletonList(record);
+            this.statements = null;
+            this.statement = statement;
+        }
+
+        void add(CassandraRecord record, Statement statement) {
+            records.add(record);
+            statements.add(statement);
+        }
+
+        void seal() {
+            if (statements == null) {
+                return;
+            }
+            if (statements.size() == 1) {
+                statement = statements.get(0);
+            } else {
+                statement = new BatchStatement(BatchStatement.Type.UNLOGGED).addAll(statements);
+            }
+        }
+    }
+
+    /**
+     * Identifies a single partition of a table.
+     */
+    private static final class PartitionKey {
+        private final String keyspace;
+        private final String table;
+        private final ByteBuffer routingKey;
+
+        PartitionKey(String keyspace, String table, ByteBuffer routingKey) {
+            this.keyspace = keyspace;
+            this.table = table;
+            this.routingKey = routingKey;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PartitionKey)) {
+                return false;
+            }
+            final PartitionKey other = (PartitionKey) obj;
+            return keyspace.equals(other.keyspace) && table.equals(other.table)
+                    && routingKey.equals(other.routingKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = keyspace.hashCode();
+            result = 31 * result + table.hashCode();
+            result = 31 * result + routingKey.hashCode();
+            return result;
+        }
     }
 }
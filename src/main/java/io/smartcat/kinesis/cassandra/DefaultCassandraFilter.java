@@ -0,0 +1,30 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.List;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Default implementation of {@link CassandraFilter}. Records are filtered by the {@link FilterSpec} before and
+ * while they are transformed, so this filter only counts the Kinesis records which produced no
+ * {@link CassandraRecord}s. They are still buffered, so the checkpoint advances past them, but they do not count
+ * toward the size limits of the {@link DefaultCassandraBuffer}.
+ */
+public class DefaultCassandraFilter implements CassandraFilter {
+
+    private Meter filtered;
+
+    @Override
+    public void init(CassandraKinesisConnectorConfiguration config) {
+        this.filtered = ConnectorMetrics.registry(config).meter(MetricRegistry.name("filter", "empty"));
+    }
+
+    @Override
+    public boolean keepRecord(List<CassandraRecord> records) {
+        if (records.isEmpty()) {
+            filtered.mark();
+        }
+        return true;
+    }
+}
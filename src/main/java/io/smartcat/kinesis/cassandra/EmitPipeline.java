@@ -0,0 +1,259 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.services.kinesis.clientlibrary.exceptions.InvalidStateException;
+import com.amazonaws.services.kinesis.clientlibrary.exceptions.KinesisClientLibDependencyException;
+import com.amazonaws.services.kinesis.clientlibrary.exceptions.KinesisClientLibException;
+import com.amazonaws.services.kinesis.clientlibrary.exceptions.ShutdownException;
+import com.amazonaws.services.kinesis.clientlibrary.exceptions.ThrottlingException;
+import com.amazonaws.services.kinesis.clientlibrary.interfaces.IRecordProcessorCheckpointer;
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IEmitter;
+import com.amazonaws.services.kinesis.model.Record;
+
+/**
+ * An {@link IEmitter} which writes the batches of a shard asynchronously, so the record processor fetches,
+ * transforms and buffers the next <code>GetRecords</code> batch while the previous ones are being written.
+ * {@link #emit(UnmodifiableBuffer)} chains the write of a batch after the writes of the previous batches of the
+ * shard on a pool shared by all the shards, and returns at once, unless the given number of batches is already
+ * being written. The batches of a shard are written one after another, in the order they were emitted, and a
+ * batch which still fails after the configured retries is handed to the {@link IEmitter#fail(List)} of the
+ * wrapped emitter.
+ * <p>
+ * Checkpoints are coordinated through the checkpointer returned by
+ * {@link #checkpointer(IRecordProcessorCheckpointer)}, which the record processor checkpoints the emitted batches
+ * with. A checkpoint is passed to the KCL only once
+ * its batch and all the previous batches are written, from whichever thread finishes the last of the two, and
+ * the final checkpoint of a shard waits for all the pending writes. {@link #shutdown()} waits for the pending
+ * writes before shutting down the wrapped emitter. Only {@link UnmodifiableBuffer#getRecords()} of the emitted
+ * buffer is read once the emit has returned.
+ */
+class EmitPipeline implements IEmitter<List<CassandraRecord>> {
+    private static final Log LOGGER = LogFactory.getLog(EmitPipeline.class);
+
+    private static ExecutorService sharedExecutor;
+
+    private final IEmitter<List<CassandraRecord>> emitter;
+    private final Executor executor;
+    private final Semaphore capacity;
+    private final int retryLimit;
+    private final long backoffInterval;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+    private Batch last;
+    private ShardLag lag;
+
+    /**
+     * A batch being written, with the sequence number it is checkpointed at.
+     */
+    private static final class Batch {
+        private boolean written;
+        private String sequenceNumber;
+        private IRecordProcessorCheckpointer checkpointer;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param emitter         the emitter writing the batches
+     * @param depth           the maximum number of batches of the shard being written at once
+     * @param retryLimit      the number of attempts to write a batch
+     * @param backoffInterval the delay between the attempts, in milliseconds
+     */
+    EmitPipeline(IEmitter<List<CassandraRecord>> emitter, int depth, int retryLimit, long backoffInterval) {
+        this(emitter, sharedExecutor(), depth, retryLimit, backoffInterval);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param emitter         the emitter writing the batches
+     * @param executor        the executor to write in
+     * @param depth           the maximum number of batches of the shard being written at once
+     * @param retryLimit      the number of attempts to write a batch
+     * @param backoffInterval the delay between the attempts, in milliseconds
+     */
+    EmitPipeline(IEmitter<List<CassandraRecord>> emitter, Executor executor, int depth, int retryLimit,
+            long backoffInterval) {
+        this.emitter = emitter;
+        this.executor = executor;
+        this.capacity = new Semaphore(Math.max(1, depth));
+        this.retryLimit = Math.max(1, retryLimit);
+        this.backoffInterval = backoffInterval;
+    }
+
+    private static synchronized ExecutorService sharedExecutor() {
+        if (sharedExecutor == null) {
+            final AtomicInteger threads = new AtomicInteger();
+            sharedExecutor = Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "emit-pipeline-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * Sets the lag tracker of the shard, which is told the newest arrival timestamp of every batch once the batch
+     * is written, as it was when the batch was emitted.
+     *
+     * @param lag the lag tracker of the shard
+     */
+    void setLag(ShardLag lag) {
+        this.lag = lag;
+    }
+
+    @Override
+    public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer) {
+        final List<List<CassandraRecord>> records = new ArrayList<>(buffer.getRecords());
+        capacity.acquireUninterruptibly();
+        pending.incrementAndGet();
+        final Batch batch = new Batch();
+        last = batch;
+        final ShardLag shardLag = lag;
+        final long arrivalMillis = shardLag == null ? 0 : shardLag.getReceivedArrivalMillis();
+        tail = tail.thenRunAsync(() -> {
+            try {
+                if (write(buffer, records) && shardLag != null) {
+                    shardLag.written(arrivalMillis);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to hand over failed batch of " + records.size() + " records", e);
+            } finally {
+                pending.decrementAndGet();
+                capacity.release();
+                written(batch);
+            }
+        }, executor);
+        return Collections.emptyList();
+    }
+
+    private boolean write(UnmodifiableBuffer<List<CassandraRecord>> buffer, List<List<CassandraRecord>> records) {
+        List<List<CassandraRecord>> unprocessed = records;
+        try {
+            for (int attempt = 0; attempt < retryLimit && !unprocessed.isEmpty(); attempt++) {
+                if (attempt > 0) {
+                    Thread.sleep(backoffInterval);
+                }
+                unprocessed = emitter.emit(new UnmodifiableBuffer<>(buffer, unprocessed));
+            }
+        } catch (Exception e) {
+            LOGGER.error("Unable to write batch of " + records.size() + " records", e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!unprocessed.isEmpty()) {
+            emitter.fail(unprocessed);
+            return false;
+        }
+        return true;
+    }
+
+    private void written(Batch batch) {
+        final String sequenceNumber;
+        final IRecordProcessorCheckpointer checkpointer;
+        synchronized (batch) {
+            batch.written = true;
+            sequenceNumber = batch.sequenceNumber;
+            checkpointer = batch.checkpointer;
+        }
+        if (sequenceNumber != null) {
+            checkpoint(checkpointer, sequenceNumber);
+        }
+    }
+
+    private static void checkpoint(IRecordProcessorCheckpointer checkpointer, String sequenceNumber) {
+        try {
+            checkpointer.checkpoint(sequenceNumber);
+        } catch (KinesisClientLibException | RuntimeException e) {
+            LOGGER.warn("Unable to checkpoint at " + sequenceNumber, e);
+        }
+    }
+
+    /**
+     * Returns a checkpointer which defers the checkpoints of the emitted batches until they are written.
+     *
+     * @param checkpointer the checkpointer of the shard
+     * @return the deferring checkpointer
+     */
+    IRecordProcessorCheckpointer checkpointer(IRecordProcessorCheckpointer checkpointer) {
+        return new IRecordProcessorCheckpointer() {
+            @Override
+            public void checkpoint() throws KinesisClientLibDependencyException, InvalidStateException,
+                    ThrottlingException, ShutdownException {
+                await();
+                checkpointer.checkpoint();
+            }
+
+            @Override
+            public void checkpoint(Record record) throws KinesisClientLibDependencyException, InvalidStateException,
+                    ThrottlingException, ShutdownException {
+                checkpoint(record.getSequenceNumber());
+            }
+
+            @Override
+            public void checkpoint(String sequenceNumber) throws KinesisClientLibDependencyException,
+                    InvalidStateException, ThrottlingException, ShutdownException {
+                final Batch batch = last;
+                if (batch != null) {
+                    synchronized (batch) {
+                        if (!batch.written) {
+                            batch.sequenceNumber = sequenceNumber;
+                            batch.checkpointer = checkpointer;
+                            return;
+                        }
+                    }
+                }
+                checkpointer.checkpoint(sequenceNumber);
+            }
+
+            @Override
+            public void checkpoint(String sequenceNumber, long subSequenceNumber)
+                    throws KinesisClientLibDependencyException, InvalidStateException,
+                    ThrottlingException, ShutdownException {
+                await();
+                checkpointer.checkpoint(sequenceNumber, subSequenceNumber);
+            }
+        };
+    }
+
+    /**
+     * @return the number of batches emitted and not written yet
+     */
+    int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Waits until all the emitted batches are written.
+     */
+    void await() {
+        tail.join();
+    }
+
+    @Override
+    public void fail(List<List<CassandraRecord>> records) {
+        emitter.fail(records);
+    }
+
+    @Override
+    public void shutdown() {
+        await();
+        emitter.shutdown();
+    }
+}
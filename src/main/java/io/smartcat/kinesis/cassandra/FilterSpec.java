@@ -0,0 +1,150 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Filtering and projection of the Kinesis records, configured by
+ * {@link CassandraKinesisConnectorConfiguration#cassandraFilterPartitionKey},
+ * {@link CassandraKinesisConnectorConfiguration#cassandraFilterSampleRate},
+ * {@link CassandraKinesisConnectorConfiguration#cassandraFilterFields} and
+ * {@link CassandraKinesisConnectorConfiguration#cassandraProjectionFields}.
+ * <p>
+ * The partition key and sampling conditions only need the record metadata, so records are checked with
+ * {@link #accepts(RecordMetadata)} before they are parsed. The field predicates and the projection are
+ * applied by the transformer while it parses a record: fields which are neither projected nor constrained are
+ * skipped without being read, and parsing stops at the first predicate the record does not match.
+ */
+public final class FilterSpec {
+    private static final FilterSpec ALL = new FilterSpec(null, 1.0, null, null);
+
+    private final Pattern partitionKey;
+    private final double sampleRate;
+    private final Map<String, Set<String>> predicates;
+    private final Set<String> projection;
+
+    /**
+     * Constructor.
+     *
+     * @param partitionKey the pattern of the accepted partition keys, or <code>null</code>
+     * @param sampleRate   the fraction of the accepted records
+     * @param predicates   the accepted values by field, or <code>null</code>
+     * @param projection   the projected fields, or <code>null</code> for all the fields
+     */
+    public FilterSpec(Pattern partitionKey, double sampleRate, Map<String, Set<String>> predicates,
+            Set<String> projection) {
+        this.partitionKey = partitionKey;
+        this.sampleRate = sampleRate;
+        this.predicates = predicates == null ? Collections.emptyMap() : predicates;
+        this.projection = projection;
+    }
+
+    /**
+     * Creates the filter of the given configuration.
+     *
+     * @param config actual configuration
+     * @return the filter, accepting all the records and fields if none is configured
+     */
+    public static FilterSpec of(CassandraKinesisConnectorConfiguration config) {
+        if (config.cassandraFilterPartitionKey == null && config.cassandraFilterSampleRate >= 1.0
+                && config.cassandraFilterFields == null && config.cassandraProjectionFields == null) {
+            return ALL;
+        }
+        Map<String, Set<String>> predicates = null;
+        if (config.cassandraFilterFields != null) {
+            predicates = new HashMap<>();
+            for (String predicate : config.cassandraFilterFields.split(";")) {
+                final int equals = predicate.indexOf('=');
+                if (equals < 0) {
+                    continue;
+                }
+                predicates.put(predicate.substring(0, equals).trim(), split(predicate.substring(equals + 1)));
+            }
+        }
+        return new FilterSpec(
+                config.cassandraFilterPartitionKey == null ? null : Pattern.compile(config.cassandraFilterPartitionKey),
+                config.cassandraFilterSampleRate, predicates,
+                config.cassandraProjectionFields == null ? null : split(config.cassandraProjectionFields));
+    }
+
+    /**
+     * Checks whether a Kinesis record has to be transformed at all, by its partition key and sequence number.
+     *
+     * @param metadata the record metadata, or <code>null</code> if unknown
+     * @return <code>true</code> if the record is accepted
+     */
+    public boolean accepts(RecordMetadata metadata) {
+        if (metadata == null) {
+            return true;
+        }
+        if (partitionKey != null && (metadata.getPartitionKey() == null
+                || !partitionKey.matcher(metadata.getPartitionKey()).matches())) {
+            return false;
+        }
+        return sampleRate >= 1.0 || sample(metadata) < sampleRate;
+    }
+
+    /**
+     * @param field a field name
+     * @return <code>true</code> if the field is kept in the transformed records
+     */
+    public boolean isProjected(String field) {
+        return projection == null || projection.contains(field);
+    }
+
+    /**
+     * @param field a field name
+     * @return <code>true</code> if the field has a predicate
+     */
+    public boolean isConstrained(String field) {
+        return !predicates.isEmpty() && predicates.containsKey(field);
+    }
+
+    /**
+     * Checks the value of a constrained field.
+     *
+     * @param field the field name
+     * @param value the field value
+     * @return <code>true</code> if the value is accepted
+     */
+    public boolean accepts(String field, Object value) {
+        final Set<String> values = predicates.get(field);
+        return values == null || value != null && values.contains(value.toString());
+    }
+
+    /**
+     * @return the number of constrained fields, all of which a record has to contain
+     */
+    public int getConstrainedFieldCount() {
+        return predicates.size();
+    }
+
+    /**
+     * Maps the sequence number to a uniformly distributed number in [0, 1), so that a record is sampled the
+     * same way every time it is processed.
+     */
+    private static double sample(RecordMetadata metadata) {
+        long hash = metadata.getSequenceNumber() == null ? 0 : metadata.getSequenceNumber().hashCode();
+        hash = hash * 31 + metadata.getSubSequenceNumber();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static Set<String> split(String list) {
+        final Set<String> items = new HashSet<>();
+        for (String item : list.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+}
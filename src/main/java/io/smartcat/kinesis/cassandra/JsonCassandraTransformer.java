@@ -1,56 +1,223 @@
 package io.smartcat.kinesis.cassandra;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 
 /**
  * This class implements {@link CassandraTransformer} where input records are expected to
- * be JSON objects (strings). Every JSON top-level property is treated as a Cassandra table
+ * be JSON objects (UTF-8 encoded). Every JSON top-level property is treated as a Cassandra table
  * column. Only JSON properties of type string, boolean or number are processed. {@link CassandraRecord}
  * keyspace and table are set using the
  * {@link CassandraKinesisConnectorConfiguration#cassandraKeyspace} and
  * {@link CassandraKinesisConnectorConfiguration#cassandraTable}.
+ * <p>
+ * Records are parsed with a streaming {@link JsonParser} created by a shared, thread-safe
+ * {@link JsonFactory}, straight from the input bytes. Heap buffers are read from their backing array, and
+ * read-only or direct buffers through a stream, so the record data are never copied. Values are put into the resulting
+ * {@link CassandraRecord} as they are read, and nested objects and arrays are skipped without
+ * being materialized.
+ * <p>
+ * If {@link CassandraKinesisConnectorConfiguration#cassandraJsonMultiRecord} is enabled, a Kinesis record
+ * may contain any number of JSON objects separated by whitespace, e.g. newline-delimited JSON, and every
+ * object becomes a separate {@link CassandraRecord}. The objects are read one by one from the same parser.
+ * If an object cannot be parsed, the objects read before it are still returned.
+ * <p>
+ * Fields which are not projected by the {@link FilterSpec} are skipped without being read, and an object
+ * stops being parsed at the first field which does not match a predicate of the {@link FilterSpec}.
+ * <p>
+ * If {@link CassandraKinesisConnectorConfiguration#cassandraSchemaAware} is enabled, nested objects and
+ * arrays are kept as maps and lists, integers that do not fit into a long are kept as big integers, and
+ * decimal numbers are kept exactly. Those values are converted to the column types by the emitter.
  */
 public class JsonCassandraTransformer implements CassandraTransformer {
     private static final Log LOGGER = LogFactory.getLog(JsonCassandraTransformer.class);
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private CassandraKinesisConnectorConfiguration config;
+    private Meter parseFailures;
+    private Meter filtered;
+    private FilterSpec filter;
 
     @Override
     public void init(CassandraKinesisConnectorConfiguration config) {
         this.config = config;
+        this.parseFailures = ConnectorMetrics.registry(config)
+                .meter(MetricRegistry.name("transformer", "parseFailures"));
+        this.filtered = ConnectorMetrics.registry(config).meter(MetricRegistry.name("transformer", "filtered"));
+        this.filter = FilterSpec.of(config);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public List<CassandraRecord> transform(byte[] record) {
-        final ObjectMapper mapper = new ObjectMapper();
-        final String input = new String(record);
-        final List<CassandraRecord> output = new ArrayList<>();
-
-        Map<String, Object> map = null;
-        try {
-            map = mapper.readValue(input, Map.class);
-            CassandraRecord outRecord = new CassandraRecord(config.cassandraKeyspace, config.cassandraTable);
-            for (String prop : map.keySet()) {
-                Object value = map.get(prop);
-                if (value instanceof String || value instanceof Boolean || value instanceof Integer
-                        || value instanceof Long || value instanceof Double) {
-                    outRecord.setValue(prop, value);
+        return transform(ByteBuffer.wrap(record), null);
+    }
+
+    @Override
+    public List<CassandraRecord> transform(ByteBuffer data, RecordMetadata metadata) {
+        final List<CassandraRecord> output = new ArrayList<>(1);
+
+        try (JsonParser parser = createParser(data)) {
+            JsonToken token = parser.nextToken();
+            do {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("JSON object expected");
                 }
-            }
-            output.add(outRecord);
+                final CassandraRecord record = readRecord(parser);
+                if (record != null) {
+                    output.add(record);
+                } else {
+                    filtered.mark();
+                }
+                token = config.cassandraJsonMultiRecord ? parser.nextToken() : null;
+            } while (token != null);
         } catch (IOException e) {
-            LOGGER.warn("Unable to parse as JSON object: " + input);
+            parseFailures.mark();
+            LOGGER.warn("Unable to parse as JSON object: " + StandardCharsets.UTF_8.decode(data.duplicate()));
         }
 
         return output;
     }
+
+    /**
+     * Creates a parser reading the remaining bytes of the given buffer in place, without copying them.
+     */
+    private static JsonParser createParser(ByteBuffer data) throws IOException {
+        if (data.hasArray()) {
+            return JSON_FACTORY.createParser(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        }
+        return JSON_FACTORY.createParser(new ByteBufferBackedInputStream(data.duplicate()));
+    }
+
+    /**
+     * Reads the fields of the current object into a record, skipping the fields which are neither projected nor
+     * constrained by the {@link FilterSpec}. Returns <code>null</code> if a constrained field is missing, or as
+     * soon as a field does not match its predicate. A single-record input is then not read any further, while
+     * the remaining fields of a multi-record input are skipped up to the next object.
+     */
+    private CassandraRecord readRecord(JsonParser parser) throws IOException {
+        final CassandraRecord outRecord = new CassandraRecord(config.cassandraKeyspace, config.cassandraTable);
+        int matched = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String prop = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            final boolean projected = filter.isProjected(prop);
+            final boolean constrained = filter.isConstrained(prop);
+            if (!projected && !constrained) {
+                parser.skipChildren();
+                continue;
+            }
+            final Object value = readValue(parser, token);
+            if (constrained) {
+                if (!filter.accepts(prop, value)) {
+                    if (config.cassandraJsonMultiRecord) {
+                        skipFields(parser);
+                    }
+                    return null;
+                }
+                matched++;
+            }
+            if (projected && value != null) {
+                outRecord.setValue(prop, value);
+            }
+        }
+        if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+            throw new IOException("Unexpected end of JSON object");
+        }
+        return matched < filter.getConstrainedFieldCount() ? null : outRecord;
+    }
+
+    private static void skipFields(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+            throw new IOException("Unexpected end of JSON object");
+        }
+    }
+
+    /**
+     * Reads the current value if it is a string, boolean, integer, long or double. Any other value,
+     * including objects and arrays, is skipped. In schema-aware mode, big integers and decimals are kept
+     * exactly, and objects and arrays are read into maps and lists, leaving the conversion to the
+     * emitter.
+     */
+    private Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case VALUE_NUMBER_INT:
+            switch (parser.getNumberType()) {
+            case INT:
+                return parser.getIntValue();
+            case LONG:
+                return parser.getLongValue();
+            default:
+                return config.cassandraSchemaAware ? parser.getBigIntegerValue() : null;
+            }
+        case VALUE_NUMBER_FLOAT:
+            return config.cassandraSchemaAware ? parser.getDecimalValue() : parser.getDoubleValue();
+        case START_OBJECT:
+            if (config.cassandraSchemaAware) {
+                return readObject(parser);
+            }
+            parser.skipChildren();
+            return null;
+        case START_ARRAY:
+            if (config.cassandraSchemaAware) {
+                return readArray(parser);
+            }
+            parser.skipChildren();
+            return null;
+        default:
+            return null;
+        }
+    }
+
+    private Map<String, Object> readObject(JsonParser parser) throws IOException {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final Object value = readValue(parser, parser.nextToken());
+            if (value != null) {
+                map.put(name, value);
+            }
+        }
+        return map;
+    }
+
+    private List<Object> readArray(JsonParser parser) throws IOException {
+        final List<Object> list = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new IOException("Unexpected end of JSON array");
+            }
+            final Object value = readValue(parser, token);
+            if (value != null) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
 }
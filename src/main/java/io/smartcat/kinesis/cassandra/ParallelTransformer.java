@@ -0,0 +1,126 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.amazonaws.services.kinesis.connectors.interfaces.ICollectionTransformer;
+import com.amazonaws.services.kinesis.model.Record;
+
+/**
+ * Transforms the records of a <code>GetRecords</code> batch in parallel, ahead of the record processor.
+ * {@link #prefetch(List)} splits the batch into chunks which are transformed by a fork-join pool shared by all
+ * the shards of the worker, and keeps the results. The record processor then walks the batch in its original
+ * order as usual, and {@link #toClass(Record)} only hands out the results, so buffering and checkpointing are
+ * not affected by the order in which the chunks complete.
+ * <p>
+ * A record whose transformation failed in the pool is transformed again on the record processor thread, so
+ * failures are reported exactly as without the parallel stage. The wrapped transformer has to be thread-safe.
+ */
+class ParallelTransformer implements ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>> {
+
+    private static final int MIN_CHUNK_SIZE = 8;
+
+    private static ForkJoinPool sharedPool;
+
+    private final ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>> transformer;
+    private final ForkJoinPool pool;
+    private final Map<Record, Collection<List<CassandraRecord>>> transformed = new IdentityHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param transformer the transformer to run in parallel
+     * @param parallelism the parallelism of the shared pool, used by the first instance only
+     */
+    ParallelTransformer(ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>> transformer,
+            int parallelism) {
+        this(transformer, sharedPool(parallelism));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transformer the transformer to run in parallel
+     * @param pool        the pool to transform in
+     */
+    ParallelTransformer(ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>> transformer,
+            ForkJoinPool pool) {
+        this.transformer = transformer;
+        this.pool = pool;
+    }
+
+    private static synchronized ForkJoinPool sharedPool(int parallelism) {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool(parallelism);
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Transforms the given records in parallel and keeps the results until they are taken by
+     * {@link #toClass(Record)} or {@link #clear()} is called.
+     *
+     * @param records the records of a <code>GetRecords</code> batch
+     */
+    void prefetch(List<Record> records) {
+        transformed.clear();
+        final int chunks = Math.min(pool.getParallelism(), records.size() / MIN_CHUNK_SIZE);
+        if (chunks < 2) {
+            return;
+        }
+
+        final int chunkSize = (records.size() + chunks - 1) / chunks;
+        final List<ForkJoinTask<List<Collection<List<CassandraRecord>>>>> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < records.size(); from += chunkSize) {
+            final List<Record> chunk = records.subList(from, Math.min(from + chunkSize, records.size()));
+            tasks.add(pool.submit(() -> transformAll(chunk)));
+        }
+
+        int index = 0;
+        for (ForkJoinTask<List<Collection<List<CassandraRecord>>>> task : tasks) {
+            for (Collection<List<CassandraRecord>> output : task.join()) {
+                final Record record = records.get(index++);
+                if (output != null) {
+                    transformed.put(record, output);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the results which were not taken.
+     */
+    void clear() {
+        transformed.clear();
+    }
+
+    private List<Collection<List<CassandraRecord>>> transformAll(List<Record> records) {
+        final List<Collection<List<CassandraRecord>>> output = new ArrayList<>(records.size());
+        for (Record record : records) {
+            try {
+                output.add(transformer.toClass(record));
+            } catch (IOException | RuntimeException e) {
+                // transformed again, and reported, by the record processor
+                output.add(null);
+            }
+        }
+        return output;
+    }
+
+    @Override
+    public Collection<List<CassandraRecord>> toClass(Record record) throws IOException {
+        final Collection<List<CassandraRecord>> output = transformed.remove(record);
+        return output != null ? output : transformer.toClass(record);
+    }
+
+    @Override
+    public List<CassandraRecord> fromClass(List<CassandraRecord> record) throws IOException {
+        return transformer.fromClass(record);
+    }
+}
@@ -0,0 +1,303 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.Insert;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+
+/**
+ * A bounded cache of INSERT {@link PreparedStatement}s keyed by keyspace, table and the ordered
+ * set of columns of a {@link CassandraRecord}. Records sharing the same shape reuse the same
+ * prepared statement and are bound positionally, so Cassandra parses each distinct INSERT only
+ * once. When the cache is full, the least recently used statement is evicted. Records with a write
+ * timestamp (see {@link CassandraRecord#getTimestamp()}) or a TTL (see {@link CassandraRecord#getTtl()}) are
+ * bound to a separate statement of the same shape for every combination of the two, with
+ * <code>USING TIMESTAMP</code> and <code>TTL</code> bind markers. Statements are marked idempotent.
+ * <p>
+ * If a {@link TableSchemaCache} is given, cached statements also carry the converters and codecs of
+ * their columns, and are prepared again once the schema of their table changes. The columns a
+ * {@link RecordLayout} binds, in statement order, are resolved once per layout and schema, so records are
+ * bound by index without looking up their columns.
+ */
+class PreparedStatementCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private final Session session;
+    private final TableSchemaCache schemas;
+    private final Map<StatementKey, CachedStatement> statements;
+    private final Map<RecordLayout, BindPlan> plans;
+
+    /**
+     * Constructor.
+     *
+     * @param session  the session used to prepare statements
+     * @param capacity the maximum number of cached statements
+     */
+    PreparedStatementCache(Session session, int capacity) {
+        this(session, capacity, null);
+    }
+
+    /**
+     * Constructor for schema-aware binding. Record columns which do not exist in the target table are
+     * ignored, and values are converted to the column types using the precomputed {@link TableSchema}
+     * converters and codecs.
+     *
+     * @param session  the session used to prepare statements
+     * @param capacity the maximum number of cached statements
+     * @param schemas  the table schema cache, or <code>null</code> to bind record values as they are
+     */
+    PreparedStatementCache(Session session, final int capacity, TableSchemaCache schemas) {
+        this.session = session;
+        this.schemas = schemas;
+        this.statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.plans = new LinkedHashMap<RecordLayout, BindPlan>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RecordLayout, BindPlan> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Binds the given record to the respective prepared INSERT statement, preparing it first if needed.
+     *
+     * @param record the record to bind
+     * @return the bound statement
+     */
+    BoundStatement bind(CassandraRecord record) {
+        if (schemas != null) {
+            return bindWithSchema(record, schemas.get(record.getKeyspace(), record.getTable()));
+        }
+
+        final RecordLayout layout = record.getLayout();
+        final boolean timestamp = record.getTimestamp() != CassandraRecord.NO_TIMESTAMP;
+        final boolean ttl = record.getTtl() != CassandraRecord.NO_TTL;
+        final StatementKey key = new StatementKey(layout.getKeyspace(), layout.getTable(),
+                layout.getSortedColumns(), timestamp, ttl);
+        final PreparedStatement prepared = get(key, null).prepared;
+
+        final int[] ordinals = layout.getSortedOrdinals();
+        final Object[] values = new Object[ordinals.length + (timestamp ? 1 : 0) + (ttl ? 1 : 0)];
+        int i = 0;
+        for (; i < ordinals.length; i++) {
+            values[i] = record.getValue(ordinals[i]);
+        }
+        if (timestamp) {
+            values[i++] = record.getTimestamp();
+        }
+        if (ttl) {
+            values[i] = record.getTtl();
+        }
+        return prepared.bind(values);
+    }
+
+    private BoundStatement bindWithSchema(CassandraRecord record, TableSchema schema) {
+        final boolean timestamp = record.getTimestamp() != CassandraRecord.NO_TIMESTAMP;
+        final boolean ttl = record.getTtl() != CassandraRecord.NO_TTL;
+        final BindPlan plan = plan(record.getLayout(), schema);
+        final CachedStatement cached = plan.statement(timestamp, ttl);
+
+        final BoundStatement bound = cached.prepared.bind();
+        final int[] ordinals = plan.ordinals;
+        int i = 0;
+        for (; i < ordinals.length; i++) {
+            final TableSchema.Column column = cached.columns[i];
+            final Object value = column.convert(record.getValue(ordinals[i]));
+            if (value == null) {
+                bound.setToNull(i);
+            } else {
+                bound.set(i, value, column.getCodec());
+            }
+        }
+        if (timestamp) {
+            bound.setLong(i++, record.getTimestamp());
+        }
+        if (ttl) {
+            bound.setInt(i, record.getTtl());
+        }
+        return bound;
+    }
+
+    private BindPlan plan(RecordLayout layout, TableSchema schema) {
+        synchronized (this) {
+            final BindPlan plan = plans.get(layout);
+            if (plan != null && plan.schema == schema) {
+                return plan;
+            }
+        }
+
+        final TreeMap<String, Integer> columns = new TreeMap<>();
+        for (int i = 0; i < layout.size(); i++) {
+            final TableSchema.Column column = schema.getColumn(layout.getColumn(i));
+            if (column != null) {
+                columns.put(column.getName(), i);
+            }
+        }
+        final int[] ordinals = new int[columns.size()];
+        int i = 0;
+        for (int ordinal : columns.values()) {
+            ordinals[i++] = ordinal;
+        }
+        final BindPlan plan = new BindPlan(layout, schema, new ArrayList<>(columns.keySet()), ordinals);
+        synchronized (this) {
+            plans.put(layout, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * @return the number of currently cached statements
+     */
+    synchronized int size() {
+        return statements.size();
+    }
+
+    private CachedStatement get(StatementKey key, TableSchema schema) {
+        synchronized (this) {
+            final CachedStatement cached = statements.get(key);
+            if (cached != null && cached.schema == schema) {
+                return cached;
+            }
+        }
+
+        // Prepare outside of the lock; a concurrent duplicate prepare is harmless.
+        final PreparedStatement prepared = session.prepare(key.toInsert(schema != null));
+        // INSERTs of full values are idempotent, so they may be retried and executed speculatively
+        prepared.setIdempotent(true);
+        LOGGER.debug("Prepared {}", prepared.getQueryString());
+        final CachedStatement cached = new CachedStatement(prepared, schema, key.columns);
+        synchronized (this) {
+            statements.put(key, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * A prepared statement with the table schema and columns it was prepared for.
+     */
+    private static final class CachedStatement {
+        private final PreparedStatement prepared;
+        private final TableSchema schema;
+        private final TableSchema.Column[] columns;
+
+        CachedStatement(PreparedStatement prepared, TableSchema schema, List<String> columnNames) {
+            this.prepared = prepared;
+            this.schema = schema;
+            if (schema == null) {
+                this.columns = null;
+            } else {
+                this.columns = new TableSchema.Column[columnNames.size()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = schema.getColumn(columnNames.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * The columns of a {@link RecordLayout} which exist in a table schema, in the order of the statement bind
+     * markers, with the statements they are bound to.
+     */
+    private final class BindPlan {
+        private final RecordLayout layout;
+        private final TableSchema schema;
+        private final List<String> columns;
+        private final int[] ordinals;
+        private final AtomicReferenceArray<CachedStatement> statements = new AtomicReferenceArray<>(4);
+
+        BindPlan(RecordLayout layout, TableSchema schema, List<String> columns, int[] ordinals) {
+            this.layout = layout;
+            this.schema = schema;
+            this.columns = columns;
+            this.ordinals = ordinals;
+        }
+
+        CachedStatement statement(boolean timestamp, boolean ttl) {
+            final int index = (timestamp ? 1 : 0) | (ttl ? 2 : 0);
+            CachedStatement cached = statements.get(index);
+            if (cached == null) {
+                cached = get(new StatementKey(layout.getKeyspace(), layout.getTable(), columns, timestamp, ttl),
+                        schema);
+                statements.set(index, cached);
+            }
+            return cached;
+        }
+    }
+
+    /**
+     * Cache key identifying an INSERT statement shape.
+     */
+    private static final class StatementKey {
+        private final String keyspace;
+        private final String table;
+        private final List<String> columns;
+        private final boolean timestamp;
+        private final boolean ttl;
+
+        StatementKey(String keyspace, String table, List<String> columns, boolean timestamp, boolean ttl) {
+            this.keyspace = keyspace;
+            this.table = table;
+            this.columns = columns;
+            this.timestamp = timestamp;
+            this.ttl = ttl;
+        }
+
+        Insert toInsert(boolean quoteColumns) {
+            final Insert insert = QueryBuilder.insertInto(keyspace, table);
+            for (String column : columns) {
+                insert.value(quoteColumns ? Metadata.quote(column) : column, QueryBuilder.bindMarker());
+            }
+            if (timestamp) {
+                insert.using(QueryBuilder.timestamp(QueryBuilder.bindMarker()));
+            }
+            if (ttl) {
+                insert.using(QueryBuilder.ttl(QueryBuilder.bindMarker()));
+            }
+            return insert;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof StatementKey)) {
+                return false;
+            }
+            final StatementKey other = (StatementKey) obj;
+            return timestamp == other.timestamp && ttl == other.ttl && keyspace.equals(other.keyspace)
+                    && table.equals(other.table) && columns.equals(other.columns);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = keyspace.hashCode();
+            result = 31 * result + table.hashCode();
+            result = 31 * result + columns.hashCode();
+            result = 31 * result + Boolean.hashCode(timestamp);
+            result = 31 * result + Boolean.hashCode(ttl);
+            return result;
+        }
+    }
+}
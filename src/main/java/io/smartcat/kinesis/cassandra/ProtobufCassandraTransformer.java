@@ -0,0 +1,154 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+/**
+ * This class implements {@link CassandraTransformer} where input records are Protocol Buffers messages of the
+ * {@link CassandraKinesisConnectorConfiguration#cassandraProtobufMessageType}. Every top-level field of the
+ * message is treated as a Cassandra table column named after the field, and {@link CassandraRecord} keyspace and
+ * table are set using the {@link CassandraKinesisConnectorConfiguration#cassandraKeyspace} and
+ * {@link CassandraKinesisConnectorConfiguration#cassandraTable}.
+ * <p>
+ * The message type is taken from the descriptor set of
+ * {@link CassandraKinesisConnectorConfiguration#cassandraProtobufDescriptorFile}, or from the generated message
+ * class if no descriptor set is configured. It is compiled once into a {@link ProtobufSchema}, which decodes the
+ * message fields directly into the {@link CassandraRecord}. Fields which are not projected by the
+ * {@link FilterSpec} are skipped without being decoded, and a record stops being read at the first field which
+ * does not match a predicate of the {@link FilterSpec}.
+ * <p>
+ * The transformer is thread-safe.
+ */
+public class ProtobufCassandraTransformer implements CassandraTransformer {
+    private static final Log LOGGER = LogFactory.getLog(ProtobufCassandraTransformer.class);
+
+    private CassandraKinesisConnectorConfiguration config;
+    private Meter parseFailures;
+    private Meter filtered;
+    private FilterSpec filter;
+    private ProtobufSchema schema;
+
+    @Override
+    public void init(CassandraKinesisConnectorConfiguration config) {
+        this.config = config;
+        this.parseFailures = ConnectorMetrics.registry(config)
+                .meter(MetricRegistry.name("transformer", "parseFailures"));
+        this.filtered = ConnectorMetrics.registry(config).meter(MetricRegistry.name("transformer", "filtered"));
+        this.filter = FilterSpec.of(config);
+        if (config.cassandraProtobufMessageType == null) {
+            throw new IllegalStateException(CassandraKinesisConnectorConfiguration.ConfigurationOptions
+                    .PROP_CASSANDRA_PROTOBUF_MESSAGE_TYPE + " has to be set");
+        }
+        final Descriptor descriptor = config.cassandraProtobufDescriptorFile == null
+                ? generatedDescriptor(config.cassandraProtobufMessageType)
+                : fileDescriptor(config.cassandraProtobufDescriptorFile, config.cassandraProtobufMessageType);
+        this.schema = ProtobufSchema.compile(descriptor, config.cassandraSchemaAware, filter);
+        LOGGER.info("Compiled Protocol Buffers message type " + schema.getName());
+    }
+
+    @Override
+    public List<CassandraRecord> transform(byte[] record) {
+        return transform(ByteBuffer.wrap(record), null);
+    }
+
+    @Override
+    public List<CassandraRecord> transform(ByteBuffer data, RecordMetadata metadata) {
+        final List<CassandraRecord> output = new ArrayList<>(1);
+        try {
+            final CassandraRecord record = new CassandraRecord(config.cassandraKeyspace, config.cassandraTable);
+            if (schema.read(CodedInputStream.newInstance(data.duplicate()), filter, record)) {
+                output.add(record);
+            } else {
+                filtered.mark();
+            }
+        } catch (IOException e) {
+            parseFailures.mark();
+            LOGGER.warn("Unable to parse as " + schema.getName() + " message: " + e.getMessage());
+        }
+        return output;
+    }
+
+    /**
+     * Returns the descriptor of the given generated message class.
+     */
+    private static Descriptor generatedDescriptor(String className) {
+        try {
+            return (Descriptor) Class.forName(className).getMethod("getDescriptor").invoke(null);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("Unable to get descriptor of message class " + className, e);
+        }
+    }
+
+    /**
+     * Builds the files of the given descriptor set and finds the given message type in them.
+     */
+    private static Descriptor fileDescriptor(String path, String messageType) {
+        final Map<String, FileDescriptorProto> protos = new HashMap<>();
+        try (InputStream in = Files.newInputStream(Paths.get(path))) {
+            for (FileDescriptorProto proto : FileDescriptorSet.parseFrom(in).getFileList()) {
+                protos.put(proto.getName(), proto);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read descriptor set " + path, e);
+        }
+        final Map<String, FileDescriptor> files = new HashMap<>();
+        try {
+            for (String name : protos.keySet()) {
+                final FileDescriptor file = build(name, protos, files);
+                final String prefix = file.getPackage().isEmpty() ? "" : file.getPackage() + ".";
+                if (!messageType.startsWith(prefix)) {
+                    continue;
+                }
+                final String[] names = messageType.substring(prefix.length()).split("\\.");
+                Descriptor descriptor = file.findMessageTypeByName(names[0]);
+                for (int i = 1; i < names.length && descriptor != null; i++) {
+                    descriptor = descriptor.findNestedTypeByName(names[i]);
+                }
+                if (descriptor != null) {
+                    return descriptor;
+                }
+            }
+        } catch (DescriptorValidationException e) {
+            throw new IllegalStateException("Invalid descriptor set " + path, e);
+        }
+        throw new IllegalStateException("Message type " + messageType + " not found in " + path);
+    }
+
+    private static FileDescriptor build(String name, Map<String, FileDescriptorProto> protos,
+            Map<String, FileDescriptor> files) throws DescriptorValidationException {
+        FileDescriptor file = files.get(name);
+        if (file == null) {
+            final FileDescriptorProto proto = protos.get(name);
+            if (proto == null) {
+                throw new IllegalStateException("Descriptor set misses " + name
+                        + ", write it with protoc --include_imports");
+            }
+            final FileDescriptor[] dependencies = new FileDescriptor[proto.getDependencyCount()];
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = build(proto.getDependency(i), protos, files);
+            }
+            file = FileDescriptor.buildFrom(proto, dependencies);
+            files.put(name, file);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,257 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A Protocol Buffers message type compiled into a table of its fields indexed by field number, which decodes the
+ * wire format straight into the values of a {@link CassandraRecord}, without building messages. The fields which
+ * are neither projected nor constrained by the {@link FilterSpec}, and unknown fields, are skipped.
+ * <p>
+ * Scalar values are decoded to their Java types, enums to the names of their values and bytes to
+ * {@link ByteBuffer}s. Nested messages and repeated fields are read into maps and lists in schema-aware mode,
+ * and skipped otherwise. Packed and unpacked repeated fields are both accepted.
+ */
+final class ProtobufSchema {
+
+    private static final int MAX_INDEXED_FIELD_NUMBER = 1024;
+
+    private final String name;
+    private final Field[] indexed;
+    private final Map<Integer, Field> sparse = new HashMap<>();
+
+    /**
+     * A compiled field.
+     */
+    private static final class Field {
+        private final String name;
+        private final FieldDescriptor descriptor;
+        private final int wireType;
+        private final boolean projected;
+        private final boolean constrained;
+        private ProtobufSchema message;
+
+        private Field(FieldDescriptor descriptor, boolean projected, boolean constrained) {
+            this.name = descriptor.getName();
+            this.descriptor = descriptor;
+            this.wireType = descriptor.getLiteType().getWireType();
+            this.projected = projected;
+            this.constrained = constrained;
+        }
+    }
+
+    private ProtobufSchema(Descriptor descriptor, int maxIndexedNumber) {
+        this.name = descriptor.getFullName();
+        this.indexed = new Field[maxIndexedNumber + 1];
+    }
+
+    /**
+     * Compiles the given message type.
+     *
+     * @param descriptor  the message type
+     * @param schemaAware whether nested messages and repeated fields are read
+     * @param filter      the filter applied to the top-level fields
+     * @return the compiled message type
+     */
+    static ProtobufSchema compile(Descriptor descriptor, boolean schemaAware, FilterSpec filter) {
+        return compile(descriptor, schemaAware, filter, new IdentityHashMap<>());
+    }
+
+    private static ProtobufSchema compile(Descriptor descriptor, boolean schemaAware, FilterSpec filter,
+            Map<Descriptor, ProtobufSchema> nested) {
+        int maxIndexedNumber = 0;
+        for (FieldDescriptor field : descriptor.getFields()) {
+            if (field.getNumber() <= MAX_INDEXED_FIELD_NUMBER) {
+                maxIndexedNumber = Math.max(maxIndexedNumber, field.getNumber());
+            }
+        }
+        final ProtobufSchema schema = new ProtobufSchema(descriptor, maxIndexedNumber);
+        if (filter == null) {
+            nested.put(descriptor, schema);
+        }
+        for (FieldDescriptor descriptorField : descriptor.getFields()) {
+            final boolean projected = filter == null || filter.isProjected(descriptorField.getName());
+            final boolean constrained = filter != null && filter.isConstrained(descriptorField.getName());
+            final boolean composite = descriptorField.isRepeated()
+                    || descriptorField.getType() == FieldDescriptor.Type.MESSAGE;
+            if (!projected && !constrained || composite && !schemaAware
+                    || descriptorField.getType() == FieldDescriptor.Type.GROUP) {
+                continue;
+            }
+            final Field field = new Field(descriptorField, projected, constrained);
+            if (descriptorField.getType() == FieldDescriptor.Type.MESSAGE) {
+                final ProtobufSchema message = nested.get(descriptorField.getMessageType());
+                field.message = message != null ? message
+                        : compile(descriptorField.getMessageType(), schemaAware, null, nested);
+            }
+            if (descriptorField.getNumber() <= MAX_INDEXED_FIELD_NUMBER) {
+                schema.indexed[descriptorField.getNumber()] = field;
+            } else {
+                schema.sparse.put(descriptorField.getNumber(), field);
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Reads a message into the given Cassandra record, stopping at the first field which does not match a
+     * predicate of the given filter.
+     *
+     * @param in     the input, positioned at the message
+     * @param filter the filter the schema was compiled with
+     * @param record the record to fill
+     * @return <code>false</code> if the record is filtered out
+     * @throws IOException if the message is malformed
+     */
+    boolean read(CodedInputStream in, FilterSpec filter, CassandraRecord record) throws IOException {
+        int matched = 0;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            final Field field = field(WireFormat.getTagFieldNumber(tag));
+            if (field == null || field.descriptor.isRepeated() && !field.projected) {
+                in.skipField(tag);
+                continue;
+            }
+            if (field.descriptor.isRepeated()) {
+                @SuppressWarnings("unchecked")
+                List<Object> list = (List<Object>) record.getValue(field.name);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    record.setValue(field.name, list);
+                }
+                readRepeated(in, tag, field, list);
+                continue;
+            }
+            final Object value = readValue(in, tag, field);
+            if (field.constrained) {
+                if (!filter.accepts(field.name, value)) {
+                    return false;
+                }
+                matched++;
+            }
+            if (field.projected && value != null) {
+                record.setValue(field.name, value);
+            }
+        }
+        return matched >= filter.getConstrainedFieldCount();
+    }
+
+    /**
+     * @return the full name of the message type
+     */
+    String getName() {
+        return name;
+    }
+
+    private Field field(int number) {
+        return number < indexed.length ? indexed[number] : sparse.get(number);
+    }
+
+    private Map<String, Object> readMessage(CodedInputStream in) throws IOException {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            final Field field = field(WireFormat.getTagFieldNumber(tag));
+            if (field == null) {
+                in.skipField(tag);
+            } else if (field.descriptor.isRepeated()) {
+                @SuppressWarnings("unchecked")
+                List<Object> list = (List<Object>) map.get(field.name);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    map.put(field.name, list);
+                }
+                readRepeated(in, tag, field, list);
+            } else {
+                final Object value = readValue(in, tag, field);
+                if (value != null) {
+                    map.put(field.name, value);
+                }
+            }
+        }
+        return map;
+    }
+
+    private static void readRepeated(CodedInputStream in, int tag, Field field, List<Object> list)
+            throws IOException {
+        if ((tag & 0x7) == WireFormat.WIRETYPE_LENGTH_DELIMITED
+                && field.wireType != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+            final int limit = in.pushLimit(in.readRawVarint32());
+            while (in.getBytesUntilLimit() > 0) {
+                list.add(readScalar(in, field));
+            }
+            in.popLimit(limit);
+        } else {
+            final Object value = readValue(in, tag, field);
+            if (value != null) {
+                list.add(value);
+            }
+        }
+    }
+
+    private static Object readValue(CodedInputStream in, int tag, Field field) throws IOException {
+        if ((tag & 0x7) != field.wireType) {
+            in.skipField(tag);
+            return null;
+        }
+        if (field.message != null) {
+            final int limit = in.pushLimit(in.readRawVarint32());
+            final Map<String, Object> message = field.message.readMessage(in);
+            in.checkLastTagWas(0);
+            in.popLimit(limit);
+            return message;
+        }
+        return readScalar(in, field);
+    }
+
+    private static Object readScalar(CodedInputStream in, Field field) throws IOException {
+        switch (field.descriptor.getType()) {
+        case DOUBLE:
+            return in.readDouble();
+        case FLOAT:
+            return in.readFloat();
+        case INT64:
+            return in.readInt64();
+        case UINT64:
+            return in.readUInt64();
+        case INT32:
+            return in.readInt32();
+        case FIXED64:
+            return in.readFixed64();
+        case FIXED32:
+            return in.readFixed32();
+        case BOOL:
+            return in.readBool();
+        case STRING:
+            return in.readString();
+        case BYTES:
+            return ByteBuffer.wrap(in.readByteArray());
+        case UINT32:
+            return in.readUInt32();
+        case ENUM:
+            final int number = in.readEnum();
+            final EnumValueDescriptor value = field.descriptor.getEnumType().findValueByNumber(number);
+            return value != null ? value.getName() : Integer.toString(number);
+        case SFIXED32:
+            return in.readSFixed32();
+        case SFIXED64:
+            return in.readSFixed64();
+        case SINT32:
+            return in.readSInt32();
+        case SINT64:
+            return in.readSInt64();
+        default:
+            throw new IOException("Unsupported field type " + field.descriptor.getType());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the records of a single flush which target the same row. Records are grouped by keyspace, table
+ * and the values of the primary key columns taken from the {@link TableSchema}, and the records of a group
+ * are merged in buffer order, i.e. in Kinesis sequence order, so that the last value of every column wins.
+ * Only records with the same write timestamp and TTL are merged: a record of the row with another timestamp or
+ * TTL starts a new group, written after the previous group of the row, so the records stay in sequence order.
+ * <p>
+ * Records which do not set all the primary key columns, or whose key values cannot be converted to the
+ * column types, are passed through unchanged.
+ */
+class RecordCoalescer {
+
+    private final TableSchemaCache schemas;
+
+    /**
+     * Constructor.
+     *
+     * @param schemas the table schema cache the primary keys are read from
+     */
+    RecordCoalescer(TableSchemaCache schemas) {
+        this.schemas = schemas;
+    }
+
+    /**
+     * Coalesces the given records.
+     *
+     * @param records the records of a flush, in sequence order
+     * @return the coalesced records, and for every merged record, the records it was merged from
+     */
+    Result coalesce(List<List<CassandraRecord>> records) {
+        final List<List<CassandraRecord>> groups = new ArrayList<>();
+        final Map<Object, List<CassandraRecord>> rows = new HashMap<>();
+        int count = 0;
+        for (List<CassandraRecord> cassRecords : records) {
+            for (CassandraRecord record : cassRecords) {
+                count++;
+                final Object key = rowKey(record);
+                List<CassandraRecord> row = rows.get(key);
+                if (row == null || row.get(0).getTimestamp() != record.getTimestamp()
+                        || row.get(0).getTtl() != record.getTtl()) {
+                    row = new ArrayList<>(1);
+                    rows.put(key, row);
+                    groups.add(row);
+                }
+                row.add(record);
+            }
+        }
+
+        final List<CassandraRecord> coalesced = new ArrayList<>(groups.size());
+        final Map<CassandraRecord, List<CassandraRecord>> sources = new IdentityHashMap<>();
+        for (List<CassandraRecord> row : groups) {
+            if (row.size() == 1) {
+                coalesced.add(row.get(0));
+                continue;
+            }
+            final CassandraRecord merged = merge(row);
+            coalesced.add(merged);
+            sources.put(merged, row);
+        }
+        return new Result(coalesced, sources, count - coalesced.size());
+    }
+
+    private Object rowKey(CassandraRecord record) {
+        final TableSchema schema;
+        final Object[] key;
+        try {
+            schema = schemas.get(record.getKeyspace(), record.getTable());
+            final List<String> primaryKey = schema.getPrimaryKey();
+            key = new Object[primaryKey.size() + 2];
+            key[0] = record.getKeyspace();
+            key[1] = record.getTable();
+            for (Map.Entry<String, Object> entry : record.getValues().entrySet()) {
+                final TableSchema.Column column = schema.getColumn(entry.getKey());
+                final int index = column == null ? -1 : primaryKey.indexOf(column.getName());
+                if (index >= 0) {
+                    key[index + 2] = column.convert(entry.getValue());
+                }
+            }
+        } catch (RuntimeException e) {
+            // unknown table or unconvertible key, left to fail when bound
+            return record;
+        }
+        for (Object value : key) {
+            if (value == null) {
+                return record;
+            }
+        }
+        return Arrays.asList(key);
+    }
+
+    private static CassandraRecord merge(List<CassandraRecord> row) {
+        final CassandraRecord first = row.get(0);
+        final CassandraRecord merged = new CassandraRecord(first.getKeyspace(), first.getTable());
+        for (CassandraRecord record : row) {
+            for (Map.Entry<String, Object> entry : record.getValues().entrySet()) {
+                merged.setValue(entry.getKey(), entry.getValue());
+            }
+        }
+        merged.setTimestamp(first.getTimestamp());
+        merged.setTtl(first.getTtl());
+        return merged;
+    }
+
+    /**
+     * Outcome of {@link RecordCoalescer#coalesce(List)}.
+     */
+    static final class Result {
+        private final List<CassandraRecord> records;
+        private final Map<CassandraRecord, List<CassandraRecord>> sources;
+        private final int merged;
+
+        Result(List<CassandraRecord> records, Map<CassandraRecord, List<CassandraRecord>> sources, int merged) {
+            this.records = records;
+            this.sources = sources;
+            this.merged = merged;
+        }
+
+        /**
+         * @return the records to write
+         */
+        List<CassandraRecord> getRecords() {
+            return records;
+        }
+
+        /**
+         * @param record a record to write
+         * @return the buffered records the given record was merged from, or the record itself
+         */
+        List<CassandraRecord> getSources(CassandraRecord record) {
+            final List<CassandraRecord> merged = sources.get(record);
+            return merged != null ? merged : Collections.singletonList(record);
+        }
+
+        /**
+         * @return the number of records which were merged into others and will not be written separately
+         */
+        int getMerged() {
+            return merged;
+        }
+    }
+}
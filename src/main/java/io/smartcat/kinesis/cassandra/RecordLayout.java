@@ -0,0 +1,263 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The shape of a {@link CassandraRecord}: its keyspace, table and the ordered columns with the kinds of their
+ * values. Layouts are interned, so all the records of a table which set the same columns in the same order
+ * share a single layout instance, and a record only keeps a reference to it and a flat array of values.
+ * <p>
+ * A layout is extended one column at a time through cached transitions, which makes building a record from
+ * a stream of properties a hash lookup per property. Numeric and boolean columns are stored in a
+ * <code>long[]</code> and the rest in an <code>Object[]</code>, so every column has a slot in one of the
+ * two arrays. The number of interned layouts is bounded. Once the limit is reached, layouts are interned
+ * anew, starting from empty layouts, and the previous layouts are collected when no record uses them any more,
+ * so the layouts of the current records stay shared even when the shape of the records changes over time.
+ */
+final class RecordLayout {
+
+    /**
+     * The kind of a column value, deciding the array and the encoding of its slot.
+     */
+    enum Kind {
+        /** {@link Integer} stored in a primitive slot. */
+        INT,
+        /** {@link Long} stored in a primitive slot. */
+        LONG,
+        /** {@link Double} stored as raw long bits in a primitive slot. */
+        DOUBLE,
+        /** {@link Boolean} stored as 0 or 1 in a primitive slot. */
+        BOOLEAN,
+        /** Any other value (including <code>null</code>) stored in a reference slot. */
+        OBJECT;
+
+        static Kind of(Object value) {
+            if (value instanceof Integer) {
+                return INT;
+            } else if (value instanceof Long) {
+                return LONG;
+            } else if (value instanceof Double) {
+                return DOUBLE;
+            } else if (value instanceof Boolean) {
+                return BOOLEAN;
+            }
+            return OBJECT;
+        }
+
+        boolean isPrimitive() {
+            return this != OBJECT;
+        }
+    }
+
+    static final int MAX_INTERNED_LAYOUTS = 10000;
+    private static final Object NULL_NAME = new Object();
+    private static final AtomicReference<Generation> CURRENT = new AtomicReference<>(new Generation());
+
+    private final Generation generation;
+    private final String keyspace;
+    private final String table;
+    private final String[] columns;
+    private final Kind[] kinds;
+    private final int[] slots;
+    private final int primitiveSlots;
+    private final int objectSlots;
+    private final Map<String, Integer> ordinals;
+    private final ConcurrentMap<String, Transition> transitions = new ConcurrentHashMap<>();
+
+    private volatile List<String> sortedColumns;
+    private volatile int[] sortedOrdinals;
+
+    private RecordLayout(Generation generation, String keyspace, String table, String[] columns, Kind[] kinds) {
+        this.generation = generation;
+        this.keyspace = keyspace;
+        this.table = table;
+        this.columns = columns;
+        this.kinds = kinds;
+        this.slots = new int[columns.length];
+        this.ordinals = new HashMap<>(columns.length * 2);
+        int primitives = 0;
+        int objects = 0;
+        for (int i = 0; i < columns.length; i++) {
+            slots[i] = kinds[i].isPrimitive() ? primitives++ : objects++;
+            ordinals.put(columns[i], i);
+        }
+        this.primitiveSlots = primitives;
+        this.objectSlots = objects;
+    }
+
+    /**
+     * Returns the interned layout of a record without columns.
+     *
+     * @param keyspace the keyspace name
+     * @param table    the table name
+     * @return the empty layout
+     */
+    static RecordLayout empty(String keyspace, String table) {
+        Generation generation = CURRENT.get();
+        if (generation.isFull()) {
+            CURRENT.compareAndSet(generation, new Generation());
+            generation = CURRENT.get();
+        }
+        final Object keyspaceKey = keyspace == null ? NULL_NAME : keyspace;
+        final Object tableKey = table == null ? NULL_NAME : table;
+        ConcurrentMap<Object, RecordLayout> tables = generation.roots.get(keyspaceKey);
+        final RecordLayout root = tables == null ? null : tables.get(tableKey);
+        if (root != null) {
+            return root;
+        }
+        final RecordLayout layout = new RecordLayout(generation, keyspace, table, new String[0], new Kind[0]);
+        if (tables == null) {
+            tables = generation.roots.computeIfAbsent(keyspaceKey, name -> new ConcurrentHashMap<>());
+        }
+        final RecordLayout existing = tables.putIfAbsent(tableKey, layout);
+        if (existing != null) {
+            return existing;
+        }
+        generation.interned.incrementAndGet();
+        return layout;
+    }
+
+    /**
+     * Returns the layout with the given column appended.
+     *
+     * @param column the column name, which must not be part of this layout
+     * @param kind   the kind of the column values
+     * @return the extended layout
+     */
+    RecordLayout with(String column, Kind kind) {
+        Transition transition = transitions.get(column);
+        final RecordLayout next = transition == null ? null : transition.targets.get(kind.ordinal());
+        if (next != null) {
+            return next;
+        }
+        final String[] nextColumns = Arrays.copyOf(columns, columns.length + 1);
+        final Kind[] nextKinds = Arrays.copyOf(kinds, kinds.length + 1);
+        nextColumns[columns.length] = column;
+        nextKinds[kinds.length] = kind;
+        final RecordLayout layout = new RecordLayout(generation, keyspace, table, nextColumns, nextKinds);
+        if (generation.isFull()) {
+            return layout;
+        }
+        if (transition == null) {
+            transition = transitions.computeIfAbsent(column, name -> new Transition());
+        }
+        if (!transition.targets.compareAndSet(kind.ordinal(), null, layout)) {
+            return transition.targets.get(kind.ordinal());
+        }
+        generation.interned.incrementAndGet();
+        return layout;
+    }
+
+    String getKeyspace() {
+        return keyspace;
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    int size() {
+        return columns.length;
+    }
+
+    String getColumn(int ordinal) {
+        return columns[ordinal];
+    }
+
+    Kind getKind(int ordinal) {
+        return kinds[ordinal];
+    }
+
+    /**
+     * @param ordinal the column ordinal
+     * @return the index of the column slot in the primitive or the object array, depending on its kind
+     */
+    int getSlot(int ordinal) {
+        return slots[ordinal];
+    }
+
+    int getPrimitiveSlots() {
+        return primitiveSlots;
+    }
+
+    int getObjectSlots() {
+        return objectSlots;
+    }
+
+    /**
+     * @param column the column name
+     * @return the column ordinal, or -1 if the layout does not contain the column
+     */
+    int ordinalOf(String column) {
+        final Integer ordinal = ordinals.get(column);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * @return the column names in natural order
+     */
+    List<String> getSortedColumns() {
+        if (sortedColumns == null) {
+            sortColumns();
+        }
+        return sortedColumns;
+    }
+
+    /**
+     * @return the column ordinals in the natural order of the column names
+     */
+    int[] getSortedOrdinals() {
+        if (sortedOrdinals == null) {
+            sortColumns();
+        }
+        return sortedOrdinals;
+    }
+
+    private void sortColumns() {
+        final Integer[] order = new Integer[columns.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> columns[i]));
+        final List<String> names = new ArrayList<>(order.length);
+        final int[] sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            names.add(columns[order[i]]);
+            sorted[i] = order[i];
+        }
+        sortedOrdinals = sorted;
+        sortedColumns = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * A set of interned layouts, from the empty layouts of the tables through all their transitions. A full
+     * generation is replaced by a new one, while its layouts stop interning further transitions.
+     */
+    private static final class Generation {
+        private final ConcurrentMap<Object, ConcurrentMap<Object, RecordLayout>> roots = new ConcurrentHashMap<>();
+        private final AtomicInteger interned = new AtomicInteger();
+
+        boolean isFull() {
+            return interned.get() >= MAX_INTERNED_LAYOUTS;
+        }
+    }
+
+    /**
+     * The layouts with a column appended to a layout, by the kind of the column values.
+     */
+    private static final class Transition {
+        private final AtomicReferenceArray<RecordLayout> targets =
+                new AtomicReferenceArray<>(Kind.values().length);
+    }
+}
@@ -0,0 +1,77 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.Date;
+
+import com.amazonaws.services.kinesis.clientlibrary.types.UserRecord;
+import com.amazonaws.services.kinesis.model.Record;
+
+/**
+ * Metadata of a Kinesis record passed to {@link CassandraTransformer} along with the record data.
+ */
+public final class RecordMetadata {
+    private final String partitionKey;
+    private final String sequenceNumber;
+    private final long subSequenceNumber;
+    private final Date approximateArrivalTimestamp;
+
+    /**
+     * Constructor.
+     *
+     * @param partitionKey                the record partition key
+     * @param sequenceNumber              the record sequence number
+     * @param subSequenceNumber           the user record sub-sequence number within an aggregated record
+     * @param approximateArrivalTimestamp the approximate time the record was added to the stream
+     */
+    public RecordMetadata(String partitionKey, String sequenceNumber, long subSequenceNumber,
+            Date approximateArrivalTimestamp) {
+        this.partitionKey = partitionKey;
+        this.sequenceNumber = sequenceNumber;
+        this.subSequenceNumber = subSequenceNumber;
+        this.approximateArrivalTimestamp = approximateArrivalTimestamp;
+    }
+
+    /**
+     * Creates metadata of the given Kinesis record.
+     *
+     * @param record the Kinesis record, or a de-aggregated {@link UserRecord}
+     * @return the record metadata
+     */
+    public static RecordMetadata of(Record record) {
+        final long subSequenceNumber = record instanceof UserRecord ? ((UserRecord) record).getSubSequenceNumber() : 0;
+        return new RecordMetadata(record.getPartitionKey(), record.getSequenceNumber(), subSequenceNumber,
+                record.getApproximateArrivalTimestamp());
+    }
+
+    /**
+     * @return the partition key
+     */
+    public String getPartitionKey() {
+        return partitionKey;
+    }
+
+    /**
+     * @return the sequence number
+     */
+    public String getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * @return the sub-sequence number, or 0 if the record was not aggregated
+     */
+    public long getSubSequenceNumber() {
+        return subSequenceNumber;
+    }
+
+    /**
+     * @return the approximate arrival timestamp, or <code>null</code> if unknown
+     */
+    public Date getApproximateArrivalTimestamp() {
+        return approximateArrivalTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return partitionKey + ":" + sequenceNumber + "/" + subSequenceNumber;
+    }
+}
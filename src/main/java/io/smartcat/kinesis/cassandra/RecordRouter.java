@@ -0,0 +1,52 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.codahale.metrics.Meter;
+
+/**
+ * Routes transformed records to the tables of the configured {@link Route}s. Every record is written to all the
+ * routes it matches, with the columns projected by each route, so a single pass over the stream fills several
+ * denormalized tables. Records matching no route are dropped and counted.
+ */
+class RecordRouter {
+
+    private final List<Route> routes;
+    private final Meter unrouted;
+
+    /**
+     * Constructor.
+     *
+     * @param routes   the routes
+     * @param unrouted meter of the records matching no route
+     */
+    RecordRouter(List<Route> routes, Meter unrouted) {
+        this.routes = routes;
+        this.unrouted = unrouted;
+    }
+
+    /**
+     * Routes the given records.
+     *
+     * @param records  the transformed records
+     * @param metadata the metadata of the Kinesis record, or <code>null</code> if unknown
+     * @return the records to write, in the order of the input records and the routes
+     */
+    List<CassandraRecord> route(List<CassandraRecord> records, RecordMetadata metadata) {
+        final List<CassandraRecord> routed = new ArrayList<>(records.size() * routes.size());
+        for (CassandraRecord record : records) {
+            boolean matched = false;
+            for (Route route : routes) {
+                if (route.matches(record, metadata)) {
+                    routed.add(route.project(record));
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                unrouted.mark();
+            }
+        }
+        return routed;
+    }
+}
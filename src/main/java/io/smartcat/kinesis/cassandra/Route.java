@@ -0,0 +1,199 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A route of transformed records to a Cassandra table, configured by the properties prefixed with
+ * <code>cassandraRoute.&lt;name&gt;.</code>:
+ * <ul>
+ * <li><code>table</code> - the target table, as <code>table</code> or <code>keyspace.table</code>
+ * (required),</li>
+ * <li><code>field</code> and <code>values</code> - the record column and the comma-separated values it has to
+ * match, <code>values</code> is required with <code>field</code>,</li>
+ * <li><code>partitionKey</code> - the regular expression the Kinesis partition key has to match,</li>
+ * <li><code>columns</code> - the comma-separated columns written to the table, each either <code>column</code>
+ * or <code>source:column</code>; all the columns of the record are written if not set,</li>
+ * <li><code>ttl</code> - the TTL in seconds of the records written to the table, unless they have their own
+ * (see {@link CassandraRecord#getTtl()}).</li>
+ * </ul>
+ * A record matches a route if it matches both its conditions, and a route without conditions matches every
+ * record. A record is written to the tables of all the routes it matches (see
+ * {@link CassandraKinesisConnectorConfiguration#cassandraRoutes}).
+ */
+public final class Route {
+    /**
+     * Prefix of the route properties.
+     */
+    public static final String PROPERTY_PREFIX = "cassandraRoute.";
+
+    private final String name;
+    private final String keyspace;
+    private final String table;
+    private final String field;
+    private final Set<String> values;
+    private final Pattern partitionKey;
+    private final Map<String, String> columns;
+    private final int ttl;
+
+    /**
+     * Constructor.
+     *
+     * @param name         the route name
+     * @param keyspace     the target keyspace
+     * @param table        the target table
+     * @param field        the column matched by the route, or <code>null</code>
+     * @param values       the values of the matched column
+     * @param partitionKey the pattern of the matched Kinesis partition keys, or <code>null</code>
+     * @param columns      the written columns by their source columns, or <code>null</code> for all the columns
+     * @param ttl          the TTL of the written records without one, or {@link CassandraRecord#NO_TTL}
+     */
+    public Route(String name, String keyspace, String table, String field, Set<String> values,
+            Pattern partitionKey, Map<String, String> columns, int ttl) {
+        this.name = name;
+        this.keyspace = keyspace;
+        this.table = table;
+        this.field = field;
+        this.values = values == null ? Collections.emptySet() : Collections.unmodifiableSet(values);
+        this.partitionKey = partitionKey;
+        this.columns = columns == null ? null : Collections.unmodifiableMap(columns);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Parses the routes with the given comma-separated names.
+     *
+     * @param names           the route names
+     * @param defaultKeyspace the keyspace of the tables given without one
+     * @param properties      user-defined properties
+     * @return the routes
+     * @throws IllegalArgumentException if a route has no table, a field without values or an invalid TTL
+     */
+    public static List<Route> parse(String names, String defaultKeyspace, Properties properties) {
+        final List<Route> routes = new ArrayList<>();
+        if (names == null) {
+            return routes;
+        }
+        for (String name : split(names)) {
+            final String prefix = PROPERTY_PREFIX + name + ".";
+            final String target = properties.getProperty(prefix + "table");
+            if (target == null || target.trim().isEmpty()) {
+                throw new IllegalArgumentException("Route " + name + " has no table");
+            }
+            final int dot = target.indexOf('.');
+            final String keyspace = dot < 0 ? defaultKeyspace : target.substring(0, dot).trim();
+            final String table = target.substring(dot + 1).trim();
+
+            final String field = properties.getProperty(prefix + "field");
+            final String values = properties.getProperty(prefix + "values");
+            if (field != null && (values == null || split(values).isEmpty())) {
+                throw new IllegalArgumentException("Route " + name + " has a field but no values");
+            }
+            final String partitionKey = properties.getProperty(prefix + "partitionKey");
+            final String ttl = properties.getProperty(prefix + "ttl");
+            Map<String, String> columns = null;
+            final String projection = properties.getProperty(prefix + "columns");
+            if (projection != null) {
+                columns = new LinkedHashMap<>();
+                for (String column : split(projection)) {
+                    final int colon = column.indexOf(':');
+                    columns.put(colon < 0 ? column : column.substring(0, colon).trim(),
+                            colon < 0 ? column : column.substring(colon + 1).trim());
+                }
+            }
+            routes.add(new Route(name, keyspace, table, field == null ? null : field.trim(),
+                    values == null ? null : new HashSet<>(split(values)),
+                    partitionKey == null ? null : Pattern.compile(partitionKey.trim()), columns,
+                    ttl == null ? CassandraRecord.NO_TTL : Integer.parseInt(ttl.trim())));
+        }
+        return routes;
+    }
+
+    /**
+     * Checks whether the given record matches the route.
+     *
+     * @param record   the transformed record
+     * @param metadata the metadata of the Kinesis record, or <code>null</code> if unknown
+     * @return <code>true</code> if the record matches
+     */
+    public boolean matches(CassandraRecord record, RecordMetadata metadata) {
+        if (field != null) {
+            final Object value = record.getValue(field);
+            if (value == null || !values.contains(value.toString())) {
+                return false;
+            }
+        }
+        if (partitionKey != null) {
+            return metadata != null && metadata.getPartitionKey() != null
+                    && partitionKey.matcher(metadata.getPartitionKey()).matches();
+        }
+        return true;
+    }
+
+    /**
+     * Creates the record written to the route table, with the projected columns of the given record.
+     *
+     * @param record the transformed record
+     * @return the routed record
+     */
+    public CassandraRecord project(CassandraRecord record) {
+        final CassandraRecord routed = new CassandraRecord(keyspace, table);
+        if (columns == null) {
+            routed.setValues(record.getValues());
+        } else {
+            for (Map.Entry<String, String> column : columns.entrySet()) {
+                final Object value = record.getValue(column.getKey());
+                if (value != null) {
+                    routed.setValue(column.getValue(), value);
+                }
+            }
+        }
+        routed.setTimestamp(record.getTimestamp());
+        routed.setTtl(record.getTtl() != CassandraRecord.NO_TTL ? record.getTtl() : ttl);
+        return routed;
+    }
+
+    /**
+     * @return the route name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the target keyspace
+     */
+    public String getKeyspace() {
+        return keyspace;
+    }
+
+    /**
+     * @return the target table
+     */
+    public String getTable() {
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        return name + " -> " + keyspace + "." + table;
+    }
+
+    private static List<String> split(String list) {
+        final List<String> items = new ArrayList<>();
+        for (String item : Arrays.asList(list.split(","))) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+}
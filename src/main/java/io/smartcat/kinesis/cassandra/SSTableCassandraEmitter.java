@@ -0,0 +1,377 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.io.sstable.CQLSSTableWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.utils.UUIDs;
+
+/**
+ * A {@link CassandraEmitter} which writes the records to SSTables on the local disk instead of sending them to
+ * the cluster, for backfills too large to be written row by row. The SSTables are loaded into the cluster with
+ * <code>sstableloader</code>, which streams them directly to the replicas of their token ranges, bypassing
+ * the write path.
+ * <p>
+ * The SSTables are written by {@link CQLSSTableWriter}, whose <code>cassandra-all</code> jar is a provided
+ * dependency of the connector: the jar of the Cassandra version of the cluster has to be added to the classpath. The
+ * table schemas are read from the <code>CREATE TABLE</code> statements in
+ * {@link CassandraKinesisConnectorConfiguration#cassandraSSTableSchemaDirectory}, so no connection to the cluster
+ * is needed, and the record values are converted to the CQL types of their columns (see
+ * {@link ColumnConverters}). Rows are sorted in memory by the writer, up to
+ * {@link CassandraKinesisConnectorConfiguration#cassandraSSTableBufferSizeMb}, so larger buffers make fewer and
+ * larger SSTables.
+ * <p>
+ * Every emitted buffer is written to a new generation directory under
+ * {@link CassandraKinesisConnectorConfiguration#cassandraSSTableDirectory}<code>/in-progress</code>, with a
+ * <code>&lt;keyspace&gt;/&lt;table&gt;</code> subdirectory per table, as <code>sstableloader</code> expects. Once
+ * all its SSTables are complete, the generation is moved to <code>ready</code>, so only complete SSTables are
+ * ever loaded, and the records are checkpointed only once they are durable. Since every buffer makes its own
+ * SSTables, the buffer limits of the connector should be raised well above their defaults for backfills.
+ * Records with the same columns share an SSTable, and records with a timestamp or a TTL are written with them.
+ */
+public class SSTableCassandraEmitter implements CassandraEmitter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SSTableCassandraEmitter.class);
+
+    private static final String IN_PROGRESS = "in-progress";
+    private static final String READY = "ready";
+
+    private final Map<String, TableSchema> schemas = new HashMap<>();
+    private final Map<String, String> statements = new HashMap<>();
+    private Path directory;
+    private int bufferSizeMb;
+
+    /**
+     * Writes the rows of an SSTable.
+     */
+    interface RowWriter extends Closeable {
+        /**
+         * Adds a row.
+         *
+         * @param values the values bound to the insert statement
+         * @throws IOException if the row cannot be written
+         */
+        void addRow(List<Object> values) throws IOException;
+    }
+
+    @Override
+    public void init(CassandraKinesisConnectorConfiguration config) {
+        if (config.cassandraSSTableSchemaDirectory == null) {
+            throw new IllegalStateException("No SSTable schema directory configured");
+        }
+        directory = Paths.get(config.cassandraSSTableDirectory);
+        bufferSizeMb = config.cassandraSSTableBufferSizeMb;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(config.cassandraSSTableSchemaDirectory),
+                "*.cql")) {
+            for (Path file : files) {
+                String statement = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+                if (statement.endsWith(";")) {
+                    statement = statement.substring(0, statement.length() - 1);
+                }
+                final TableSchema schema = CqlTableParser.parse(statement, CodecRegistry.DEFAULT_INSTANCE);
+                final String name = schema.getKeyspace() + "." + schema.getTable();
+                schemas.put(name, schema);
+                statements.put(name, statement);
+                LOGGER.info("Loaded schema of {}.{} from {}", schema.getKeyspace(), schema.getTable(), file);
+            }
+            Files.createDirectories(directory.resolve(IN_PROGRESS));
+            Files.createDirectories(directory.resolve(READY));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load SSTable schemas from "
+                    + config.cassandraSSTableSchemaDirectory, e);
+        }
+    }
+
+    @Override
+    public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer) throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("Emitter has to be initialized first.");
+        }
+        final List<List<CassandraRecord>> groups = new ArrayList<>(buffer.getRecords());
+        final List<List<CassandraRecord>> failed = new ArrayList<>();
+        while (!writeGeneration(groups, failed)) {
+            LOGGER.info("Rewriting {} record groups to a new generation", groups.size());
+        }
+        return failed;
+    }
+
+    /**
+     * Writes the given record groups to a new generation. The rows of a group are converted before any of them is
+     * written, and a group which cannot be converted is failed. Rows cannot be removed from an SSTable, so if a
+     * group fails after some of its rows were written, the generation is deleted and the group is failed, and the
+     * remaining groups have to be written to a new generation.
+     *
+     * @param groups the record groups, the failed groups are removed
+     * @param failed the failed record groups
+     * @return <code>true</code> if the generation is complete, <code>false</code> if it has to be rewritten
+     */
+    private boolean writeGeneration(List<List<CassandraRecord>> groups, List<List<CassandraRecord>> failed)
+            throws IOException {
+        final String generation = UUIDs.timeBased().toString();
+        final Path output = directory.resolve(IN_PROGRESS).resolve(generation);
+        final Map<String, Table> tables = new HashMap<>();
+        try {
+            for (Iterator<List<CassandraRecord>> iterator = groups.iterator(); iterator.hasNext();) {
+                final List<CassandraRecord> records = iterator.next();
+                final List<Row> rows = new ArrayList<>(records.size());
+                try {
+                    for (CassandraRecord record : records) {
+                        rows.add(row(output, tables, record));
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Could not convert records for SSTable", e);
+                    failed.add(records);
+                    iterator.remove();
+                    continue;
+                }
+                for (int i = 0; i < rows.size(); i++) {
+                    try {
+                        rows.get(i).write();
+                    } catch (IllegalArgumentException e) {
+                        LOGGER.warn("Could not write records to SSTable", e);
+                        failed.add(records);
+                        iterator.remove();
+                        if (i == 0) {
+                            break;
+                        }
+                        discard(tables, output);
+                        return false;
+                    }
+                }
+            }
+            for (Table table : tables.values()) {
+                table.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            discard(tables, output);
+            throw e;
+        }
+        if (Files.exists(output)) {
+            Files.move(output, directory.resolve(READY).resolve(generation), StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Wrote SSTables of {} tables to generation {}", tables.size(), generation);
+        }
+        return true;
+    }
+
+    private Row row(Path output, Map<String, Table> tables, CassandraRecord record) {
+        String name = record.getKeyspace() + "." + record.getTable();
+        if (!schemas.containsKey(name)) {
+            name = name.toLowerCase();
+        }
+        final TableSchema schema = schemas.get(name);
+        if (schema == null) {
+            throw new IllegalArgumentException("No schema for table " + record.getKeyspace() + "." + record.getTable());
+        }
+        final List<String> names = new ArrayList<>(record.getValues().keySet());
+        Collections.sort(names);
+        final boolean timestamp = record.getTimestamp() != CassandraRecord.NO_TIMESTAMP;
+        final boolean ttl = record.getTtl() != CassandraRecord.NO_TTL;
+        final String key = name + names + timestamp + ttl;
+
+        Table table = tables.get(key);
+        if (table == null) {
+            table = new Table(schema, statements.get(name), names, timestamp, ttl,
+                    output.resolve(schema.getKeyspace()).resolve(schema.getTable()));
+            tables.put(key, table);
+        }
+        final List<Object> values = new ArrayList<>(table.columns.size() + 2);
+        for (int i = 0; i < names.size(); i++) {
+            values.add(table.columns.get(i).convert(record.getValue(names.get(i))));
+        }
+        if (timestamp) {
+            values.add(record.getTimestamp());
+        }
+        if (ttl) {
+            values.add(record.getTtl());
+        }
+        return new Row(table, values);
+    }
+
+    private static void discard(Map<String, Table> tables, Path output) {
+        for (Table table : tables.values()) {
+            table.closeQuietly();
+        }
+        delete(output);
+    }
+
+    /**
+     * Creates the SSTable writer of a table.
+     *
+     * @param tableDirectory the directory to write the SSTables in
+     * @param schema         the <code>CREATE TABLE</code> statement of the table
+     * @param insert         the insert statement the rows are bound to
+     * @return the writer
+     * @throws IOException if the writer cannot be created
+     */
+    RowWriter createWriter(Path tableDirectory, String schema, String insert) throws IOException {
+        try {
+            return CqlSSTableWriter.create(tableDirectory.toFile(), schema, insert, bufferSizeMb);
+        } catch (NoClassDefFoundError e) {
+            throw new IOException("CQLSSTableWriter not found, add cassandra-all to the classpath", e);
+        }
+    }
+
+    @Override
+    public void fail(List<List<CassandraRecord>> records) {
+        for (List<CassandraRecord> cassRecords : records) {
+            for (CassandraRecord rec : cassRecords) {
+                LOGGER.error("Could not emit record: " + rec);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    private static void delete(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> tree = Files.walk(path)) {
+            tree.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete incomplete SSTables in " + path, e);
+        }
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * The SSTable written for the records of a table with the same columns.
+     */
+    private static final class Table {
+        private final List<TableSchema.Column> columns = new ArrayList<>();
+        private final String schemaStatement;
+        private final String insertStatement;
+        private final Path directory;
+        private RowWriter writer;
+
+        private Table(TableSchema schema, String schemaStatement, List<String> names, boolean timestamp,
+                boolean ttl, Path directory) {
+            for (String name : names) {
+                final TableSchema.Column column = schema.getColumn(name);
+                if (column == null) {
+                    throw new IllegalArgumentException("Table " + schema.getKeyspace() + "." + schema.getTable()
+                            + " has no column " + name);
+                }
+                columns.add(column);
+            }
+            for (String key : schema.getPrimaryKey()) {
+                if (!columns.contains(schema.getColumn(key))) {
+                    throw new IllegalArgumentException("Primary key column " + key + " is missing");
+                }
+            }
+            this.schemaStatement = schemaStatement;
+            this.directory = directory;
+
+            final StringBuilder insert = new StringBuilder("INSERT INTO ").append(quote(schema.getKeyspace()))
+                    .append('.').append(quote(schema.getTable())).append(" (");
+            final StringBuilder markers = new StringBuilder();
+            for (TableSchema.Column column : columns) {
+                if (markers.length() > 0) {
+                    insert.append(", ");
+                    markers.append(", ");
+                }
+                insert.append(quote(column.getName()));
+                markers.append('?');
+            }
+            insert.append(") VALUES (").append(markers).append(')');
+            if (timestamp) {
+                insert.append(" USING TIMESTAMP ?");
+            }
+            if (ttl) {
+                insert.append(timestamp ? " AND TTL ?" : " USING TTL ?");
+            }
+            this.insertStatement = insert.toString();
+        }
+
+        private void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                close();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not close SSTable writer", e);
+            }
+        }
+    }
+
+    /**
+     * A converted row, written to the SSTable of its table.
+     */
+    private final class Row {
+        private final Table table;
+        private final List<Object> values;
+
+        private Row(Table table, List<Object> values) {
+            this.table = table;
+            this.values = values;
+        }
+
+        private void write() throws IOException {
+            if (table.writer == null) {
+                Files.createDirectories(table.directory);
+                table.writer = createWriter(table.directory, table.schemaStatement, table.insertStatement);
+            }
+            table.writer.addRow(values);
+        }
+    }
+
+    /**
+     * Adapts {@link CQLSSTableWriter}, in its own class so the emitter can be loaded without
+     * <code>cassandra-all</code>.
+     */
+    private static final class CqlSSTableWriter implements RowWriter {
+        private final CQLSSTableWriter writer;
+
+        private CqlSSTableWriter(CQLSSTableWriter writer) {
+            this.writer = writer;
+        }
+
+        static CqlSSTableWriter create(File directory, String schema, String insert, int bufferSizeMb) {
+            return new CqlSSTableWriter(CQLSSTableWriter.builder().inDirectory(directory).forTable(schema)
+                    .using(insert).withBufferSizeInMB(bufferSizeMb).build());
+        }
+
+        @Override
+        public void addRow(List<Object> values) throws IOException {
+            try {
+                writer.addRow(values);
+            } catch (InvalidRequestException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.QueryOptions;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
+
+/**
+ * Process-wide registry of Cassandra sessions. Emitters configured with the same contact points, port,
+ * credentials, consistency level, pooling and speculative execution options share a single {@link Cluster} and
+ * {@link Session}, so a worker processing many shards keeps one set of connection pools, event loops and
+ * metadata. Sessions are reference counted: the cluster is connected by the first
+ * {@link #acquire(CassandraKinesisConnectorConfiguration)} and closed by the last {@link #release(Session)}.
+ */
+final class SessionRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionRegistry.class);
+
+    private static final Map<List<Object>, SharedSession> SESSIONS = new HashMap<>();
+
+    private SessionRegistry() {
+        // prevent class instantiation
+    }
+
+    /**
+     * Returns the session for the given configuration, connecting to the cluster if no emitter uses it yet.
+     *
+     * @param config actual configuration
+     * @return the shared session
+     */
+    static Session acquire(CassandraKinesisConnectorConfiguration config) {
+        return acquire(config, SessionRegistry::connect);
+    }
+
+    /**
+     * Returns the session for the given configuration, connecting with the given function if no emitter uses it
+     * yet.
+     *
+     * @param config    actual configuration
+     * @param connector connects a session for a configuration
+     * @return the shared session
+     */
+    static synchronized Session acquire(CassandraKinesisConnectorConfiguration config,
+            Function<CassandraKinesisConnectorConfiguration, Session> connector) {
+        final List<Object> key = key(config);
+        SharedSession shared = SESSIONS.get(key);
+        if (shared == null) {
+            shared = new SharedSession(key, connector.apply(config));
+            SESSIONS.put(key, shared);
+        }
+        shared.references++;
+        return shared.session;
+    }
+
+    /**
+     * Releases the given session, closing its cluster once it is not used anymore.
+     *
+     * @param session a session returned by {@link #acquire(CassandraKinesisConnectorConfiguration)}
+     */
+    static synchronized void release(Session session) {
+        for (SharedSession shared : SESSIONS.values()) {
+            if (shared.session != session) {
+                continue;
+            }
+            if (--shared.references == 0) {
+                SESSIONS.remove(shared.key);
+                LOGGER.info("Disconnecting from cluster.");
+                session.getCluster().close();
+            }
+            return;
+        }
+    }
+
+    private static Session connect(CassandraKinesisConnectorConfiguration config) {
+        LOGGER.info("Connecting to cluster with contact points: {} and port: {}",
+                config.cassandraContactPoints, config.cassandraPort);
+
+        final String[] nodes = config.cassandraContactPoints.split(",");
+
+        final QueryOptions queryOptions = new QueryOptions();
+        queryOptions.setConsistencyLevel(config.cassandraConsistencyLevel);
+
+        final PoolingOptions poolingOptions = new PoolingOptions()
+                .setConnectionsPerHost(HostDistance.LOCAL, config.cassandraCoreConnectionsPerHost,
+                        Math.max(config.cassandraCoreConnectionsPerHost, config.cassandraMaxConnectionsPerHost))
+                .setMaxRequestsPerConnection(HostDistance.LOCAL, config.cassandraMaxRequestsPerConnection);
+
+        final Cluster.Builder builder = Cluster.builder()
+                .addContactPoints(nodes)
+                .withPort(config.cassandraPort)
+                .withCredentials(config.cassandraUsername, config.cassandraPassword)
+                .withQueryOptions(queryOptions)
+                .withPoolingOptions(poolingOptions);
+        if (config.cassandraSpeculativeExecutionDelayMillis > 0) {
+            builder.withSpeculativeExecutionPolicy(speculativeExecutionPolicy(config));
+        }
+        final Cluster cluster = builder.build();
+        try {
+            return cluster.connect();
+        } catch (RuntimeException e) {
+            cluster.close();
+            throw e;
+        }
+    }
+
+    private static SpeculativeExecutionPolicy speculativeExecutionPolicy(
+            CassandraKinesisConnectorConfiguration config) {
+        final SpeculativeExecutionPolicy policy = new ConstantSpeculativeExecutionPolicy(
+                config.cassandraSpeculativeExecutionDelayMillis, Math.max(1, config.cassandraSpeculativeExecutions));
+        if (config.cassandraSpeculativeTables == null) {
+            return policy;
+        }
+        final Set<String> tables = new HashSet<>();
+        for (String table : config.cassandraSpeculativeTables.split(",")) {
+            if (!table.trim().isEmpty()) {
+                tables.add(table.trim());
+            }
+        }
+        return new TableSpeculativeExecutionPolicy(policy, tables);
+    }
+
+    private static List<Object> key(CassandraKinesisConnectorConfiguration config) {
+        return Arrays.asList(config.cassandraContactPoints, config.cassandraPort, config.cassandraUsername,
+                config.cassandraPassword, config.cassandraConsistencyLevel, config.cassandraCoreConnectionsPerHost,
+                config.cassandraMaxConnectionsPerHost, config.cassandraMaxRequestsPerConnection,
+                config.cassandraSpeculativeExecutionDelayMillis, config.cassandraSpeculativeExecutions,
+                config.cassandraSpeculativeTables);
+    }
+
+    /**
+     * A session with the number of emitters using it.
+     */
+    private static final class SharedSession {
+        private final List<Object> key;
+        private final Session session;
+        private int references;
+
+        SharedSession(List<Object> key, Session session) {
+            this.key = key;
+            this.session = session;
+        }
+    }
+}
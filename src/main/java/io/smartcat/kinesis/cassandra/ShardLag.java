@@ -0,0 +1,136 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.amazonaws.services.kinesis.model.Record;
+
+/**
+ * Tracks how far behind real time a shard is, both in reading the stream and in writing to Cassandra:
+ * <ul>
+ * <li>millis behind latest - the age of the newest record of the last <code>GetRecords</code> batch. The record
+ * processor interface of the connector library does not pass the <code>MillisBehindLatest</code> returned by
+ * Kinesis, so it is estimated from the approximate arrival timestamps of the records,</li>
+ * <li>freshness - the age of the newest record confirmed written to Cassandra, measured by its approximate
+ * arrival timestamp.</li>
+ * </ul>
+ * The trackers of the shards processed by the JVM are registered by shard id, so they can be reported by the
+ * {@link StatusServer}.
+ */
+final class ShardLag {
+    private static final ConcurrentMap<String, ShardLag> SHARDS = new ConcurrentHashMap<>();
+    private static final long UNKNOWN = -1;
+
+    private volatile long millisBehindLatest;
+    private volatile long receivedArrivalMillis = UNKNOWN;
+    private volatile long writtenArrivalMillis = UNKNOWN;
+
+    /**
+     * Registers a new tracker for the given shard, replacing the previous one.
+     *
+     * @param shardId the shard id
+     * @return the tracker
+     */
+    static ShardLag register(String shardId) {
+        final ShardLag lag = new ShardLag();
+        SHARDS.put(shardId, lag);
+        return lag;
+    }
+
+    /**
+     * Removes the given tracker of the given shard.
+     *
+     * @param shardId the shard id
+     * @param lag     the tracker returned by {@link #register(String)}
+     */
+    static void unregister(String shardId, ShardLag lag) {
+        SHARDS.remove(shardId, lag);
+    }
+
+    /**
+     * @return the trackers of all the registered shards by shard id
+     */
+    static Map<String, ShardLag> all() {
+        return Collections.unmodifiableMap(new TreeMap<>(SHARDS));
+    }
+
+    /**
+     * Counts a batch of records received from the stream.
+     *
+     * @param records the records
+     */
+    void received(List<Record> records) {
+        long newest = UNKNOWN;
+        for (Record record : records) {
+            final Date arrival = record.getApproximateArrivalTimestamp();
+            if (arrival != null) {
+                newest = Math.max(newest, arrival.getTime());
+            }
+        }
+        if (newest != UNKNOWN) {
+            receivedArrivalMillis = Math.max(receivedArrivalMillis, newest);
+            millisBehindLatest = Math.max(0, currentTimeMillis() - newest);
+        } else if (records.isEmpty()) {
+            millisBehindLatest = 0;
+        }
+    }
+
+    /**
+     * Marks all the records received so far as written to Cassandra.
+     */
+    void written() {
+        written(receivedArrivalMillis);
+    }
+
+    /**
+     * Marks the records which arrived up to the given time as written to Cassandra, for batches written after
+     * newer records were received. The written arrival timestamp never moves back.
+     *
+     * @param arrivalMillis the approximate arrival timestamp of the newest written record, as returned by
+     *                      {@link #getReceivedArrivalMillis()} when its batch was emitted
+     */
+    synchronized void written(long arrivalMillis) {
+        if (arrivalMillis > writtenArrivalMillis) {
+            writtenArrivalMillis = arrivalMillis;
+        }
+    }
+
+    /**
+     * @return the approximate arrival timestamp of the newest record received so far, or -1 if unknown
+     */
+    long getReceivedArrivalMillis() {
+        return receivedArrivalMillis;
+    }
+
+    /**
+     * @return the estimated time the shard reader is behind the tip of the stream, in milliseconds
+     */
+    long getMillisBehindLatest() {
+        return millisBehindLatest;
+    }
+
+    /**
+     * @return the age of the newest record written to Cassandra in milliseconds, or -1 if none was written yet
+     */
+    long getFreshnessMillis() {
+        final long written = writtenArrivalMillis;
+        return written == UNKNOWN ? UNKNOWN : Math.max(0, currentTimeMillis() - written);
+    }
+
+    /**
+     * @return the approximate arrival timestamp of the newest record written to Cassandra, or -1 if none was
+     *         written yet
+     */
+    long getWrittenArrivalMillis() {
+        return writtenArrivalMillis;
+    }
+
+    private static long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,230 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of {@link CassandraRecord}s for the {@link SpillQueue}. A record is written as its
+ * keyspace, table, write timestamp, TTL and columns, every value prefixed by a one byte type tag. The types produced
+ * by the built-in transformers and column converters are supported (including nested lists, sets and maps),
+ * other values are written as their string representation.
+ */
+final class SpillCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte FLOAT = 6;
+    private static final byte SHORT = 7;
+    private static final byte BYTE = 8;
+    private static final byte BIG_INTEGER = 9;
+    private static final byte BIG_DECIMAL = 10;
+    private static final byte DATE = 11;
+    private static final byte UUID_VALUE = 12;
+    private static final byte BYTES = 13;
+    private static final byte INET = 14;
+    private static final byte LIST = 15;
+    private static final byte SET = 16;
+    private static final byte MAP = 17;
+
+    private SpillCodec() {
+        // prevent class instantiation
+    }
+
+    /**
+     * Writes the given record.
+     *
+     * @param record the record
+     * @param out    the output
+     * @throws IOException if the output fails
+     */
+    static void write(CassandraRecord record, DataOutput out) throws IOException {
+        writeString(record.getKeyspace(), out);
+        writeString(record.getTable(), out);
+        out.writeLong(record.getTimestamp());
+        out.writeInt(record.getTtl());
+        final Map<String, Object> values = record.getValues();
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeString(entry.getKey(), out);
+            writeValue(entry.getValue(), out);
+        }
+    }
+
+    /**
+     * Reads a record written by {@link #write(CassandraRecord, DataOutput)}.
+     *
+     * @param in the input
+     * @return the record
+     * @throws IOException if the input fails or is malformed
+     */
+    static CassandraRecord read(DataInput in) throws IOException {
+        final CassandraRecord record = new CassandraRecord(readString(in), readString(in));
+        record.setTimestamp(in.readLong());
+        record.setTtl(in.readInt());
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            record.setValue(readString(in), readValue(in));
+        }
+        return record;
+    }
+
+    private static void writeValue(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString((String) value, out);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(((BigInteger) value).toByteArray(), out);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeInt(((BigDecimal) value).scale());
+            writeBytes(((BigDecimal) value).unscaledValue().toByteArray(), out);
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof UUID) {
+            out.writeByte(UUID_VALUE);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof ByteBuffer) {
+            final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.writeByte(BYTES);
+            writeBytes(bytes, out);
+        } else if (value instanceof InetAddress) {
+            out.writeByte(INET);
+            writeBytes(((InetAddress) value).getAddress(), out);
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            out.writeInt(((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writeValue(entry.getKey(), out);
+                writeValue(entry.getValue(), out);
+            }
+        } else if (value instanceof Collection) {
+            out.writeByte(value instanceof Set ? SET : LIST);
+            out.writeInt(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                writeValue(element, out);
+            }
+        } else {
+            out.writeByte(STRING);
+            writeString(value.toString(), out);
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return readString(in);
+        case INT:
+            return in.readInt();
+        case LONG:
+            return in.readLong();
+        case DOUBLE:
+            return in.readDouble();
+        case BOOLEAN:
+            return in.readBoolean();
+        case FLOAT:
+            return in.readFloat();
+        case SHORT:
+            return in.readShort();
+        case BYTE:
+            return in.readByte();
+        case BIG_INTEGER:
+            return new BigInteger(readBytes(in));
+        case BIG_DECIMAL:
+            final int scale = in.readInt();
+            return new BigDecimal(new BigInteger(readBytes(in)), scale);
+        case DATE:
+            return new Date(in.readLong());
+        case UUID_VALUE:
+            return new UUID(in.readLong(), in.readLong());
+        case BYTES:
+            return ByteBuffer.wrap(readBytes(in));
+        case INET:
+            return InetAddress.getByAddress(readBytes(in));
+        case LIST:
+        case SET:
+            final int elements = in.readInt();
+            final Collection<Object> collection = tag == SET ? new LinkedHashSet<>() : new ArrayList<>(elements);
+            for (int i = 0; i < elements; i++) {
+                collection.add(readValue(in));
+            }
+            return collection;
+        case MAP:
+            final int entries = in.readInt();
+            final Map<Object, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                map.put(readValue(in), readValue(in));
+            }
+            return map;
+        default:
+            throw new IOException("Unknown value type " + tag);
+        }
+    }
+
+    private static void writeString(String value, DataOutput out) throws IOException {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8), out);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(byte[] bytes, DataOutput out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,430 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local, persistent FIFO queue of {@link CassandraRecord}s, written as an append log of memory-mapped segment
+ * files. Every entry holds a single record encoded by {@link SpillCodec}, prefixed by its length and CRC32, so a
+ * torn write at the end of a segment is detected and ignored when the queue is opened again.
+ * <p>
+ * Records are read from the oldest segment with {@link #peek(int)} and removed with {@link #commit(Position)}
+ * once they have been written to Cassandra. A segment is deleted and unmapped once all of its records are
+ * committed. The committed read position is kept in a small memory-mapped file and flushed with the segments, so
+ * after a restart only the records committed since the last flush are read again.
+ * <p>
+ * Records without a write timestamp are stamped with the time they are appended, so a record written once the
+ * cluster is healthy again, or written again after a restart, does not overwrite newer versions of its row.
+ * <p>
+ * Appended records are flushed to disk according to the {@link FsyncPolicy}. The queue holds at most the given
+ * number of segments; records which do not fit are rejected.
+ */
+class SpillQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillQueue.class);
+
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String POSITION_FILE = "spill.position";
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * When appended records are flushed to disk.
+     */
+    enum FsyncPolicy {
+        /** After every append. */
+        ALWAYS,
+        /** At most once per the configured interval, on append or {@link SpillQueue#flush()}. */
+        INTERVAL,
+        /** Left to the operating system. */
+        NEVER
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private final CRC32 crc = new CRC32();
+    private final FileChannel positionChannel;
+    private final MappedByteBuffer committed;
+
+    private int readOffset;
+    private long nextSegmentId;
+    private long lastFsyncNanos = System.nanoTime();
+    private boolean dirty;
+
+    /**
+     * Opens the queue in the given directory, recovering the records of existing segments.
+     *
+     * @param directory          the directory of the segment files
+     * @param segmentBytes       the size of a segment file
+     * @param maxSegments        the maximum number of segment files
+     * @param fsyncPolicy        when appended records are flushed to disk
+     * @param fsyncIntervalMillis the flush interval of {@link FsyncPolicy#INTERVAL}
+     * @throws IOException if the directory or a segment cannot be opened
+     */
+    SpillQueue(Path directory, int segmentBytes, int maxSegments, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis)
+            throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+
+        Files.createDirectories(directory);
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            final String name = file.getFileName().toString();
+            final long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length()));
+            final Segment segment = new Segment(id, file, (int) Math.max(segmentBytes, Files.size(file)));
+            segment.recover();
+            segments.add(segment);
+            nextSegmentId = id + 1;
+        }
+        positionChannel = FileChannel.open(directory.resolve(POSITION_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        committed = positionChannel.map(FileChannel.MapMode.READ_WRITE, 0, 12);
+        final long committedSegmentId = committed.getLong(0);
+        nextSegmentId = Math.max(nextSegmentId, committedSegmentId);
+        // segments before the committed one were read completely, but not deleted before the restart
+        while (!segments.isEmpty() && segments.peekFirst().id < committedSegmentId) {
+            segments.removeFirst().delete();
+        }
+        if (!segments.isEmpty() && segments.peekFirst().id == committedSegmentId) {
+            readOffset = Math.min(committed.getInt(8), segments.peekFirst().writeOffset);
+        }
+        if (!segments.isEmpty()) {
+            LOGGER.info("Recovered {} spill segments from {}", segments.size(), directory);
+        }
+    }
+
+    /**
+     * Opens the queue configured by {@link CassandraKinesisConnectorConfiguration#cassandraSpillDirectory}.
+     *
+     * @param config actual configuration
+     * @return the queue
+     * @throws IOException if the queue cannot be opened
+     */
+    static SpillQueue open(CassandraKinesisConnectorConfiguration config) throws IOException {
+        return new SpillQueue(Paths.get(config.cassandraSpillDirectory), config.cassandraSpillSegmentBytes,
+                config.cassandraSpillMaxSegments, FsyncPolicy.valueOf(config.cassandraSpillFsync.toUpperCase()),
+                config.cassandraSpillFsyncIntervalMillis);
+    }
+
+    /**
+     * Appends the given records.
+     *
+     * @param records the records to append
+     * @return the number of records which were rejected because the queue is full
+     * @throws IOException if a segment cannot be created or flushed
+     */
+    synchronized int append(List<CassandraRecord> records) throws IOException {
+        int rejected = 0;
+        final long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        for (CassandraRecord record : records) {
+            if (record.getTimestamp() == CassandraRecord.NO_TIMESTAMP) {
+                record.setTimestamp(now);
+            }
+            encoded.reset();
+            SpillCodec.write(record, new DataOutputStream(encoded));
+            final byte[] bytes = encoded.toByteArray();
+            final Segment segment = writableSegment(HEADER_BYTES + bytes.length);
+            if (segment == null) {
+                rejected++;
+                continue;
+            }
+            crc.reset();
+            crc.update(bytes, 0, bytes.length);
+            segment.buffer.position(segment.writeOffset);
+            segment.buffer.putInt(bytes.length);
+            segment.buffer.putInt((int) crc.getValue());
+            segment.buffer.put(bytes);
+            segment.writeOffset = segment.buffer.position();
+            dirty = true;
+        }
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastFsyncNanos >= fsyncIntervalNanos) {
+            flush();
+        }
+        return rejected;
+    }
+
+    /**
+     * Reads records from the head of the queue without removing them.
+     *
+     * @param max the maximum number of records to read
+     * @return the records, empty if the queue is empty
+     * @throws IOException if a record is malformed
+     */
+    synchronized Batch peek(int max) throws IOException {
+        final List<CassandraRecord> records = new ArrayList<>();
+        final Segment head = segments.peekFirst();
+        int offset = readOffset;
+        if (head != null) {
+            while (records.size() < max && offset < head.writeOffset) {
+                final int length = head.buffer.getInt(offset);
+                final byte[] bytes = new byte[length];
+                final MappedByteBuffer view = (MappedByteBuffer) head.buffer.duplicate();
+                view.position(offset + HEADER_BYTES);
+                view.get(bytes);
+                records.add(SpillCodec.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+                offset += HEADER_BYTES + length;
+            }
+        }
+        return new Batch(records, new Position(head, offset));
+    }
+
+    /**
+     * Removes the records up to the given position, deleting the segments which were read completely.
+     *
+     * @param position the position after the last removed record
+     * @throws IOException if a segment cannot be deleted
+     */
+    synchronized void commit(Position position) throws IOException {
+        if (position.segment == null || position.segment != segments.peekFirst()) {
+            return;
+        }
+        readOffset = position.offset;
+        if (readOffset >= position.segment.writeOffset) {
+            segments.removeFirst().delete();
+            readOffset = 0;
+        }
+        committed.putLong(0, segments.isEmpty() ? nextSegmentId : segments.peekFirst().id);
+        committed.putInt(8, readOffset);
+        dirty = true;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            flush();
+        }
+    }
+
+    /**
+     * Flushes the appended records to disk.
+     */
+    synchronized void flush() {
+        if (dirty) {
+            final Segment tail = segments.peekLast();
+            if (tail != null) {
+                tail.buffer.force();
+            }
+            committed.force();
+            dirty = false;
+        }
+        lastFsyncNanos = System.nanoTime();
+    }
+
+    /**
+     * Flushes the appended records if the {@link FsyncPolicy#INTERVAL} elapsed.
+     */
+    synchronized void flushIfDue() {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastFsyncNanos >= fsyncIntervalNanos) {
+            flush();
+        }
+    }
+
+    /**
+     * @return the number of bytes held by the queue, including the records which were already read
+     */
+    synchronized long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.writeOffset;
+        }
+        return size;
+    }
+
+    /**
+     * Flushes and closes the queue.
+     *
+     * @throws IOException if a segment cannot be closed
+     */
+    synchronized void close() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            flush();
+        }
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        positionChannel.close();
+        unmap(committed);
+    }
+
+    /**
+     * Releases the mapping of a buffer at once instead of when it is garbage collected, which also releases its
+     * file on platforms which keep mapped files open. The buffer must not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (NoSuchMethodException e) {
+            // JDK 8, which has no Unsafe.invokeCleaner but exposes the cleaner of the buffer
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.warn("Unable to unmap spill segment, it stays mapped until garbage collected", e);
+            return;
+        }
+        try {
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.warn("Unable to unmap spill segment, it stays mapped until garbage collected", e);
+        }
+    }
+
+    private Segment writableSegment(int bytes) throws IOException {
+        if (bytes > segmentBytes) {
+            LOGGER.error("Record of {} bytes exceeds the spill segment size", bytes);
+            return null;
+        }
+        Segment tail = segments.peekLast();
+        if (tail != null && tail.writeOffset + bytes <= tail.buffer.capacity()) {
+            return tail;
+        }
+        if (segments.size() >= maxSegments) {
+            return null;
+        }
+        if (tail != null && dirty) {
+            tail.buffer.force();
+        }
+        tail = new Segment(nextSegmentId, directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX,
+                nextSegmentId, SEGMENT_SUFFIX)), segmentBytes);
+        nextSegmentId++;
+        segments.addLast(tail);
+        return tail;
+    }
+
+    /**
+     * Records read by {@link SpillQueue#peek(int)}.
+     */
+    static final class Batch {
+        private final List<CassandraRecord> records;
+        private final Position position;
+
+        Batch(List<CassandraRecord> records, Position position) {
+            this.records = records;
+            this.position = position;
+        }
+
+        /**
+         * @return the records
+         */
+        List<CassandraRecord> getRecords() {
+            return records;
+        }
+
+        /**
+         * @return the position after the last record
+         */
+        Position getPosition() {
+            return position;
+        }
+    }
+
+    /**
+     * A read position in the queue.
+     */
+    static final class Position {
+        private final Segment segment;
+        private final int offset;
+
+        Position(Segment segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * A memory-mapped segment file.
+     */
+    private static final class Segment {
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writeOffset;
+
+        Segment(long id, Path file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        /**
+         * Finds the end of the valid entries of a segment written before.
+         */
+        void recover() {
+            final CRC32 checksum = new CRC32();
+            int offset = 0;
+            while (offset + HEADER_BYTES <= buffer.capacity()) {
+                final int length = buffer.getInt(offset);
+                if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                    break;
+                }
+                final byte[] bytes = new byte[length];
+                final MappedByteBuffer view = (MappedByteBuffer) buffer.duplicate();
+                view.position(offset + HEADER_BYTES);
+                view.get(bytes);
+                checksum.reset();
+                checksum.update(bytes, 0, length);
+                if ((int) checksum.getValue() != buffer.getInt(offset + 4)) {
+                    break;
+                }
+                offset += HEADER_BYTES + length;
+            }
+            writeOffset = offset;
+        }
+
+        void close() throws IOException {
+            channel.close();
+            unmap(buffer);
+        }
+
+        void delete() throws IOException {
+            close();
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.CodecNotFoundException;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Stores the records which could not be emitted in a {@link SpillQueue} and writes them to Cassandra in the
+ * background. A single daemon thread reads the queue in batches, at most
+ * {@link CassandraKinesisConnectorConfiguration#cassandraSpillReplayRate} records per second, and removes a
+ * batch once all of its writes succeed. While the writes fail, the replay is retried with an exponential backoff,
+ * so the queue is drained once the cluster is healthy again. Records are replayed at least once.
+ * <p>
+ * Replayers are shared by all the emitters of the JVM configured with the same spill directory, and reference
+ * counted like the sessions of {@link SessionRegistry}.
+ */
+final class SpillReplayer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillReplayer.class);
+
+    private static final Map<String, SpillReplayer> REPLAYERS = new HashMap<>();
+    private static final int BATCH_SIZE = 100;
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final String directory;
+    private final SpillQueue queue;
+    private final Session session;
+    private final TableSchemaCache schemaCache;
+    private final PreparedStatementCache statementCache;
+    private final RateLimiter rateLimiter;
+    private final ScheduledExecutorService executor;
+    private final Meter appended;
+    private final Meter replayed;
+    private final Meter dropped;
+
+    private int references;
+    private long backoffMillis;
+    private long nextAttemptMillis;
+
+    private SpillReplayer(String directory, CassandraKinesisConnectorConfiguration config) throws IOException {
+        this.directory = directory;
+        this.queue = SpillQueue.open(config);
+        this.session = SessionRegistry.acquire(config);
+        this.schemaCache = config.cassandraSchemaAware ? new TableSchemaCache(session.getCluster()) : null;
+        this.statementCache = new PreparedStatementCache(session, config.cassandraPreparedStatementCacheSize,
+                schemaCache);
+        this.rateLimiter = RateLimiter.create(Math.max(1, config.cassandraSpillReplayRate));
+
+        final MetricRegistry metrics = ConnectorMetrics.registry(config);
+        this.appended = metrics.meter(MetricRegistry.name("spill", "appended"));
+        this.replayed = metrics.meter(MetricRegistry.name("spill", "replayed"));
+        this.dropped = metrics.meter(MetricRegistry.name("spill", "dropped"));
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "spill-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::replay, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the replayer of the configured spill directory, opening its queue if no emitter uses it yet.
+     *
+     * @param config actual configuration
+     * @return the shared replayer
+     * @throws IOException if the spill queue cannot be opened
+     */
+    static synchronized SpillReplayer acquire(CassandraKinesisConnectorConfiguration config) throws IOException {
+        final String directory = Paths.get(config.cassandraSpillDirectory).toAbsolutePath().toString();
+        SpillReplayer replayer = REPLAYERS.get(directory);
+        if (replayer == null) {
+            replayer = new SpillReplayer(directory, config);
+            REPLAYERS.put(directory, replayer);
+        }
+        replayer.references++;
+        return replayer;
+    }
+
+    /**
+     * Releases the given replayer, stopping it and closing its queue once it is not used anymore.
+     *
+     * @param replayer a replayer returned by {@link #acquire(CassandraKinesisConnectorConfiguration)}
+     */
+    static synchronized void release(SpillReplayer replayer) {
+        if (--replayer.references > 0) {
+            return;
+        }
+        REPLAYERS.remove(replayer.directory);
+        replayer.close();
+    }
+
+    /**
+     * Appends the given records to the spill queue.
+     *
+     * @param records the records which could not be emitted
+     */
+    void spill(List<List<CassandraRecord>> records) {
+        final List<CassandraRecord> flattened = new ArrayList<>();
+        for (List<CassandraRecord> cassRecords : records) {
+            flattened.addAll(cassRecords);
+        }
+        int rejected;
+        try {
+            rejected = queue.append(flattened);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Could not spill records: " + flattened, e);
+            rejected = flattened.size();
+        }
+        appended.mark(flattened.size() - rejected);
+        if (rejected > 0) {
+            dropped.mark(rejected);
+            LOGGER.error("Spill queue is full, dropped {} records", rejected);
+        }
+    }
+
+    private void replay() {
+        queue.flushIfDue();
+        if (System.currentTimeMillis() < nextAttemptMillis) {
+            return;
+        }
+        try {
+            SpillQueue.Batch batch = queue.peek(BATCH_SIZE);
+            while (!batch.getRecords().isEmpty()) {
+                rateLimiter.acquire(batch.getRecords().size());
+                write(batch.getRecords());
+                queue.commit(batch.getPosition());
+                replayed.mark(batch.getRecords().size());
+                backoffMillis = 0;
+                batch = queue.peek(BATCH_SIZE);
+            }
+        } catch (Exception e) {
+            backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(MIN_BACKOFF_MILLIS, backoffMillis * 2));
+            nextAttemptMillis = System.currentTimeMillis() + backoffMillis;
+            LOGGER.warn("Replay of spilled records failed, retrying in {} ms", backoffMillis, e);
+        }
+    }
+
+    private void write(List<CassandraRecord> records) {
+        final List<ResultSetFuture> futures = new ArrayList<>(records.size());
+        for (CassandraRecord record : records) {
+            final BoundStatement statement;
+            try {
+                statement = statementCache.bind(record);
+            } catch (IllegalArgumentException | InvalidTypeException | CodecNotFoundException e) {
+                // a record which cannot be bound would block the queue forever
+                dropped.mark();
+                LOGGER.error("Dropping spilled record which cannot be bound: " + record, e);
+                continue;
+            }
+            if (statement != null) {
+                futures.add(session.executeAsync(statement));
+            }
+        }
+        for (ResultSetFuture future : futures) {
+            future.getUninterruptibly();
+        }
+    }
+
+    private void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(MAX_BACKOFF_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            queue.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close spill queue in " + directory, e);
+        }
+        if (schemaCache != null) {
+            schemaCache.close();
+        }
+        SessionRegistry.release(session);
+    }
+}
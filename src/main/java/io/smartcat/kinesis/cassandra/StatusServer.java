@@ -0,0 +1,118 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A lightweight HTTP endpoint reporting the lag of the shards processed by the JVM (see {@link ShardLag}).
+ * <code>GET /status</code> returns a JSON object with the millis behind latest, the freshness and the
+ * arrival timestamp of the newest written record of every shard, e.g.
+ * <pre>
+ * {"shards":{"shardId-000000000000":{"millisBehindLatest":120,"freshnessMillis":1450,
+ *   "writtenArrivalTimestamp":1476780000000}}}
+ * </pre>
+ */
+final class StatusServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatusServer.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Starts the server.
+     *
+     * @param address the address to bind to
+     * @param port    the port to listen on, or 0 for any free port
+     * @throws IOException if the server cannot be started
+     */
+    StatusServer(String address, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext("/status", this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "status-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Status endpoint listening on {}", server.getAddress());
+    }
+
+    /**
+     * Starts the server configured by {@link CassandraKinesisConnectorConfiguration#cassandraStatusAddress} and
+     * {@link CassandraKinesisConnectorConfiguration#cassandraStatusPort}.
+     *
+     * @param config actual configuration
+     * @return the server, or <code>null</code> if it is disabled
+     * @throws IOException if the server cannot be started
+     */
+    static StatusServer start(CassandraKinesisConnectorConfiguration config) throws IOException {
+        return config.cassandraStatusPort > 0
+                ? new StatusServer(config.cassandraStatusAddress, config.cassandraStatusPort) : null;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server.
+     */
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final byte[] body = status();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] status() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeObjectFieldStart("shards");
+            for (Map.Entry<String, ShardLag> shard : ShardLag.all().entrySet()) {
+                json.writeObjectFieldStart(shard.getKey());
+                json.writeNumberField("millisBehindLatest", shard.getValue().getMillisBehindLatest());
+                json.writeNumberField("freshnessMillis", shard.getValue().getFreshnessMillis());
+                json.writeNumberField("writtenArrivalTimestamp", shard.getValue().getWrittenArrivalMillis());
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+}
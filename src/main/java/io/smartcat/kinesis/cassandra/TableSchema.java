@@ -0,0 +1,136 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TypeCodec;
+
+/**
+ * Column mappings of a single Cassandra table, precomputed from its {@link TableMetadata}. Every column
+ * has a {@link ColumnConverter} and the driver {@link TypeCodec} for its CQL type, so record values can
+ * be converted and serialized without resolving anything per value.
+ */
+final class TableSchema {
+    private final String keyspace;
+    private final String table;
+    private final Map<String, Column> columns;
+    private final List<String> primaryKey;
+
+    /**
+     * Constructor.
+     *
+     * @param metadata the table metadata
+     * @param registry the codec registry
+     */
+    TableSchema(TableMetadata metadata, CodecRegistry registry) {
+        this.keyspace = metadata.getKeyspace().getName();
+        this.table = metadata.getName();
+
+        final Map<String, Column> columnMap = new HashMap<>();
+        for (ColumnMetadata column : metadata.getColumns()) {
+            columnMap.put(column.getName(), new Column(column.getName(), column.getType(), registry));
+        }
+        this.columns = Collections.unmodifiableMap(columnMap);
+
+        final List<String> keyColumns = new ArrayList<>();
+        for (ColumnMetadata column : metadata.getPrimaryKey()) {
+            keyColumns.add(column.getName());
+        }
+        this.primaryKey = Collections.unmodifiableList(keyColumns);
+    }
+
+    /**
+     * Constructor for a table known only by its definition, e.g. parsed by {@link CqlTableParser}.
+     *
+     * @param keyspace   the keyspace name
+     * @param table      the table name
+     * @param types      the column types by column name
+     * @param primaryKey the names of the primary key columns, partition key first
+     * @param registry   the codec registry
+     */
+    TableSchema(String keyspace, String table, Map<String, DataType> types, List<String> primaryKey,
+            CodecRegistry registry) {
+        this.keyspace = keyspace;
+        this.table = table;
+
+        final Map<String, Column> columnMap = new HashMap<>();
+        for (Map.Entry<String, DataType> column : types.entrySet()) {
+            columnMap.put(column.getKey(), new Column(column.getKey(), column.getValue(), registry));
+        }
+        this.columns = Collections.unmodifiableMap(columnMap);
+        this.primaryKey = Collections.unmodifiableList(new ArrayList<>(primaryKey));
+    }
+
+    /**
+     * @return the keyspace name
+     */
+    String getKeyspace() {
+        return keyspace;
+    }
+
+    /**
+     * @return the table name
+     */
+    String getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the column with the given name. Names are matched exactly first, and then as unquoted
+     * (case insensitive) CQL identifiers.
+     *
+     * @param name the column name
+     * @return the column or <code>null</code> if the table has no such column
+     */
+    Column getColumn(String name) {
+        final Column column = columns.get(name);
+        return column != null ? column : columns.get(name.toLowerCase());
+    }
+
+    /**
+     * @return the names of the primary key columns, partition key first
+     */
+    List<String> getPrimaryKey() {
+        return primaryKey;
+    }
+
+    /**
+     * A table column with its precomputed converter and codec.
+     */
+    static final class Column {
+        private final String name;
+        private final DataType type;
+        private final ColumnConverter converter;
+        private final TypeCodec<Object> codec;
+
+        Column(String name, DataType type, CodecRegistry registry) {
+            this.name = name;
+            this.type = type;
+            this.converter = ColumnConverters.forType(type, registry);
+            this.codec = registry.codecFor(type);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        DataType getType() {
+            return type;
+        }
+
+        Object convert(Object value) {
+            return value == null ? null : converter.convert(value);
+        }
+
+        TypeCodec<Object> getCodec() {
+            return codec;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.SchemaChangeListenerBase;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.UserType;
+
+/**
+ * Caches {@link TableSchema}s loaded from the cluster metadata. The cache registers itself as a schema
+ * change listener, and drops the affected entries whenever a table, keyspace or user type changes, so
+ * the next lookup loads the current definition.
+ */
+class TableSchemaCache extends SchemaChangeListenerBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableSchemaCache.class);
+
+    private final Cluster cluster;
+    private final ConcurrentMap<String, TableSchema> schemas = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param cluster the cluster to load the metadata from
+     */
+    TableSchemaCache(Cluster cluster) {
+        this.cluster = cluster;
+        cluster.register(this);
+    }
+
+    /**
+     * Returns the schema of the given table.
+     *
+     * @param keyspace the keyspace name
+     * @param table    the table name
+     * @return the table schema
+     * @throws IllegalArgumentException if the table does not exist
+     */
+    TableSchema get(String keyspace, String table) {
+        return schemas.computeIfAbsent(key(keyspace, table), k -> load(keyspace, table));
+    }
+
+    /**
+     * Unregisters this cache from the cluster.
+     */
+    void close() {
+        cluster.unregister(this);
+        schemas.clear();
+    }
+
+    private TableSchema load(String keyspace, String table) {
+        final KeyspaceMetadata keyspaceMetadata = cluster.getMetadata().getKeyspace(keyspace);
+        final TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(table);
+        if (tableMetadata == null) {
+            throw new IllegalArgumentException("Unknown table " + keyspace + "." + table);
+        }
+        LOGGER.info("Loaded schema of table {}.{}", keyspace, table);
+        return new TableSchema(tableMetadata, cluster.getConfiguration().getCodecRegistry());
+    }
+
+    @Override
+    public void onTableChanged(TableMetadata current, TableMetadata previous) {
+        invalidate(previous);
+    }
+
+    @Override
+    public void onTableRemoved(TableMetadata table) {
+        invalidate(table);
+    }
+
+    @Override
+    public void onKeyspaceRemoved(KeyspaceMetadata keyspace) {
+        schemas.clear();
+    }
+
+    @Override
+    public void onUserTypeChanged(UserType current, UserType previous) {
+        schemas.clear();
+    }
+
+    @Override
+    public void onUserTypeRemoved(UserType type) {
+        schemas.clear();
+    }
+
+    private void invalidate(TableMetadata table) {
+        final String name = table.getKeyspace().getName() + "." + table.getName();
+        schemas.values().removeIf(schema -> name.equals(schema.getKeyspace() + "." + schema.getTable()));
+    }
+
+    private static String key(String keyspace, String table) {
+        return keyspace + "." + table;
+    }
+}
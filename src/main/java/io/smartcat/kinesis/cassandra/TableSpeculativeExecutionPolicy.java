@@ -0,0 +1,64 @@
+package io.smartcat.kinesis.cassandra;
+
+import java.util.Set;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
+
+/**
+ * A {@link SpeculativeExecutionPolicy} which applies the given policy to the writes of the given tables only,
+ * so speculative executions add load to the cluster only for the tables whose tail latency matters. The table
+ * of a write is read from the variables of its prepared statement, or of the first statement of a batch. The
+ * driver starts speculative executions only for idempotent statements, which all the emitter writes are.
+ */
+class TableSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+
+    private static final SpeculativeExecutionPlan NO_EXECUTIONS = host -> -1;
+
+    private final SpeculativeExecutionPolicy delegate;
+    private final Set<String> tables;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the policy of the given tables
+     * @param tables   the <code>keyspace.table</code> names of the tables
+     */
+    TableSpeculativeExecutionPolicy(SpeculativeExecutionPolicy delegate, Set<String> tables) {
+        this.delegate = delegate;
+        this.tables = tables;
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        delegate.init(cluster);
+    }
+
+    @Override
+    public SpeculativeExecutionPlan newPlan(String loggedKeyspace, Statement statement) {
+        final String table = table(statement);
+        return table != null && tables.contains(table) ? delegate.newPlan(loggedKeyspace, statement)
+                : NO_EXECUTIONS;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private static String table(Statement statement) {
+        if (statement instanceof BatchStatement) {
+            final BatchStatement batch = (BatchStatement) statement;
+            return batch.size() == 0 ? null : table(batch.getStatements().iterator().next());
+        }
+        if (!(statement instanceof BoundStatement)) {
+            return null;
+        }
+        final ColumnDefinitions variables = ((BoundStatement) statement).preparedStatement().getVariables();
+        return variables.size() == 0 ? null : variables.getKeyspace(0) + "." + variables.getTable(0);
+    }
+}
@@ -0,0 +1,123 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+
+public class AvroCassandraTransformerTest {
+
+    private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"Event\",\"namespace\":\"io.smartcat\","
+            + "\"fields\":[{\"name\":\"id\",\"type\":\"string\"},"
+            + "{\"name\":\"count\",\"type\":[\"null\",\"int\"]},"
+            + "{\"name\":\"time\",\"type\":{\"type\":\"long\",\"logicalType\":\"timestamp-millis\"}},"
+            + "{\"name\":\"price\",\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"scale\":2}},"
+            + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\",\"symbols\":[\"A\",\"B\"]}},"
+            + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+            + "{\"name\":\"ratio\",\"type\":\"double\"}]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_transform_decodesFieldsOfSchemaFile() throws Exception {
+        File schema = folder.newFile("event.avsc");
+        Files.write(schema.toPath(), SCHEMA.getBytes(StandardCharsets.UTF_8));
+        Properties props = properties();
+        props.setProperty("cassandraAvroSchemaFile", schema.getPath());
+        CassandraTransformer transformer = new AvroCassandraTransformer();
+        transformer.init(new CassandraKinesisConnectorConfiguration(props, new DefaultAWSCredentialsProviderChain()));
+
+        List<CassandraRecord> res = transformer.transform(event());
+
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getKeyspace()).isEqualTo("spacekey");
+        assertThat(res.get(0).getTable()).isEqualTo("sink");
+        assertThat(res.get(0).getValues()).containsOnlyKeys("id", "count", "time", "price", "kind", "ratio");
+        assertThat(res.get(0).getValue("id")).isEqualTo("e1");
+        assertThat(res.get(0).getValue("count")).isEqualTo(-3);
+        assertThat(res.get(0).getValue("time")).isEqualTo(new Date(1500000000000L));
+        assertThat(res.get(0).getValue("price")).isEqualTo(new BigDecimal("12.34"));
+        assertThat(res.get(0).getValue("kind")).isEqualTo("B");
+        assertThat(res.get(0).getValue("ratio")).isEqualTo(0.5);
+    }
+
+    @Test
+    public void test_transform_readsSchemaIdHeader() throws Exception {
+        Files.write(folder.getRoot().toPath().resolve("7.avsc"), SCHEMA.getBytes(StandardCharsets.UTF_8));
+        Properties props = properties();
+        props.setProperty("cassandraAvroSchemaDirectory", folder.getRoot().getPath());
+        props.setProperty("cassandraSchemaAware", "true");
+        props.setProperty("cassandraProjectionFields", "id,tags");
+        CassandraTransformer transformer = new AvroCassandraTransformer();
+        transformer.init(new CassandraKinesisConnectorConfiguration(props, new DefaultAWSCredentialsProviderChain()));
+
+        byte[] event = event();
+        ByteBuffer known = ByteBuffer.allocate(5 + event.length).put((byte) 0).putInt(7).put(event);
+        ByteBuffer unknown = ByteBuffer.allocate(5 + event.length).put((byte) 0).putInt(8).put(event);
+        List<CassandraRecord> res = transformer.transform((ByteBuffer) known.flip(), null);
+
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValues()).containsOnlyKeys("id", "tags");
+        assertThat(res.get(0).getValue("tags")).isEqualTo(Arrays.asList("x", "y"));
+        assertThat(transformer.transform((ByteBuffer) unknown.flip(), null)).isEmpty();
+    }
+
+    private static Properties properties() {
+        Properties props = new Properties();
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_KEYSPACE,
+                "spacekey");
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_TABLE, "sink");
+        return props;
+    }
+
+    private static byte[] event() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeString(out, "e1");
+        writeLong(out, 1);
+        writeLong(out, -3);
+        writeLong(out, 1500000000000L);
+        writeLong(out, 2);
+        out.write(0x04);
+        out.write(0xD2);
+        writeLong(out, 1);
+        writeLong(out, -2);
+        writeLong(out, 4);
+        writeString(out, "x");
+        writeString(out, "y");
+        writeLong(out, 0);
+        byte[] ratio = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(0.5).array();
+        out.write(ratio, 0, ratio.length);
+        return out.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+}
@@ -0,0 +1,67 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BackfillReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_next_readsNonBlankLinesOfGzipFile() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("records");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write("{\"id\":1}\r\n\n  \n{\"id\":2}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(read(file, BackfillReader.Format.LINES)).containsExactly("{\"id\":1}", "{\"id\":2}");
+    }
+
+    @Test
+    public void test_next_splitsConcatenatedJson() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("records.json");
+        Files.write(file, "{\"id\":1,\"s\":\"}{\\\"\"}{\"id\":[2]}\n[3]".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(read(file, BackfillReader.Format.JSON))
+                .containsExactly("{\"id\":1,\"s\":\"}{\\\"\"}", "{\"id\":[2]}", "[3]");
+    }
+
+    @Test
+    public void test_checkpoint_resumesFromSavedPosition() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("backfill.properties");
+        Path first = folder.getRoot().toPath().resolve("first");
+        Path second = folder.getRoot().toPath().resolve("second");
+        BackfillCheckpoint checkpoint = new BackfillCheckpoint(file);
+        checkpoint.update(first, 20);
+        checkpoint.update(first, 10);
+        checkpoint.update(second, 5);
+        checkpoint.done(second);
+
+        checkpoint = new BackfillCheckpoint(file);
+        assertThat(checkpoint.getPosition(first)).isEqualTo(20);
+        assertThat(checkpoint.isDone(first)).isFalse();
+        assertThat(checkpoint.isDone(second)).isTrue();
+    }
+
+    private static List<String> read(Path file, BackfillReader.Format format) throws Exception {
+        List<String> records = new ArrayList<>();
+        try (BackfillReader reader = BackfillReader.open(file, format)) {
+            for (byte[] data = reader.next(); data != null; data = reader.next()) {
+                records.add(new String(data, StandardCharsets.UTF_8));
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,93 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+
+public class CassandraBackfillTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_run_reusesEmitterAndFailsFilesWithFailedRows() throws Exception {
+        Path input = folder.newFolder("input").toPath();
+        Files.write(input.resolve("a"), "{\"id\":\"1\"}\n{\"id\":\"2\"}".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.resolve("b"), "{\"id\":\"bad\"}\n{\"id\":\"3\"}".getBytes(StandardCharsets.UTF_8));
+        Path checkpointFile = folder.getRoot().toPath().resolve("checkpoint");
+        Properties props = new Properties();
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_EMITTER_CLASS,
+                FailingEmitter.class.getName());
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_BACKFILL_READERS,
+                "1");
+        props.setProperty(
+                CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_BACKFILL_CHECKPOINT_FILE,
+                checkpointFile.toString());
+        props.setProperty("retryLimit", "1");
+        props.setProperty("backoffInterval", "1");
+        CassandraKinesisConnectorConfiguration config = new CassandraKinesisConnectorConfiguration(props,
+                new DefaultAWSCredentialsProviderChain());
+        FailingEmitter.INSTANCES.set(0);
+        FailingEmitter.SHUTDOWNS.set(0);
+
+        boolean complete = new CassandraBackfill(config).run(Collections.singletonList(input));
+
+        assertThat(complete).isFalse();
+        assertThat(FailingEmitter.INSTANCES.get()).isEqualTo(1);
+        assertThat(FailingEmitter.SHUTDOWNS.get()).isEqualTo(1);
+        BackfillCheckpoint checkpoint = new BackfillCheckpoint(checkpointFile);
+        assertThat(checkpoint.isDone(input.resolve("a"))).isTrue();
+        assertThat(checkpoint.isDone(input.resolve("b"))).isFalse();
+        assertThat(checkpoint.getPosition(input.resolve("b"))).isEqualTo(0);
+    }
+
+    /**
+     * Fails the records with the id <code>bad</code>.
+     */
+    public static class FailingEmitter implements CassandraEmitter {
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+        static final AtomicInteger SHUTDOWNS = new AtomicInteger();
+
+        @Override
+        public void init(CassandraKinesisConnectorConfiguration config) {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer) {
+            List<List<CassandraRecord>> failed = new ArrayList<>();
+            for (List<CassandraRecord> records : buffer.getRecords()) {
+                for (CassandraRecord record : records) {
+                    if ("bad".equals(record.getValue("id"))) {
+                        failed.add(records);
+                        break;
+                    }
+                }
+            }
+            return failed;
+        }
+
+        @Override
+        public void fail(List<List<CassandraRecord>> records) {
+        }
+
+        @Override
+        public void shutdown() {
+            SHUTDOWNS.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.kinesis.connectors.interfaces.ICollectionTransformer;
+import com.amazonaws.services.kinesis.model.Record;
+import com.codahale.metrics.MetricRegistry;
+
+public class CassandraConnectorPipelineTest {
+
+    @Test
+    public void test_transform_setsTtlFromField() throws Exception {
+        List<CassandraRecord> records = transform("{\"id\":\"a\",\"ttl\":\"60\"}");
+
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).getTtl()).isEqualTo(60);
+        assertThat(records.get(0).getValues()).containsOnlyKeys("id");
+    }
+
+    @Test
+    public void test_transform_dropsOnlyRowsWithInvalidWriteOptions() throws Exception {
+        for (String ttl : new String[] {"1.5", "-1", "630720001", "12345678901", "\"soon\""}) {
+            List<CassandraRecord> records = transform("{\"id\":\"a\",\"ttl\":" + ttl + "}\n"
+                    + "{\"id\":\"b\",\"ttl\":60}\n{\"id\":\"c\",\"created\":\"yesterday\"}");
+
+            assertThat(records).hasSize(1);
+            assertThat(records.get(0).getValue("id")).isEqualTo("b");
+        }
+    }
+
+    private static List<CassandraRecord> transform(String json) throws IOException {
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_KEYSPACE, "spacekey");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_TABLE, "sink");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_TTL_FIELD, "ttl");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_TIMESTAMP_FIELD,
+                "created");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_JSON_MULTI_RECORD, "true");
+        CassandraKinesisConnectorConfiguration config = new CassandraKinesisConnectorConfiguration(props,
+                new DefaultAWSCredentialsProviderChain());
+        CassandraConnectorPipeline pipeline = new CassandraConnectorPipeline(config, new MetricRegistry());
+        ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>> transformer =
+                (ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>>) pipeline.getTransformer(config);
+
+        Collection<List<CassandraRecord>> output = transformer.toClass(new Record().withPartitionKey("key")
+                .withSequenceNumber("1").withData(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))));
+        List<CassandraRecord> records = new ArrayList<>();
+        for (List<CassandraRecord> cassRecords : output) {
+            records.addAll(cassRecords);
+        }
+        return records;
+    }
+}
@@ -19,4 +19,89 @@ public class CassandraRecordTest {
         assertThat(cql.toString()).isEqualTo("INSERT INTO spacekey.sink (id,time,value) VALUES ('123',123456,4.5);");
     }
 
+    @Test
+    public void test_sameColumns_shareLayout() {
+        CassandraRecord first = new CassandraRecord("spacekey", "sink");
+        first.setValue("id", "1");
+        first.setValue("time", 1L);
+        CassandraRecord second = new CassandraRecord("spacekey", "sink");
+        second.setValue("id", "2");
+        second.setValue("time", 2L);
+
+        assertThat(second.getLayout()).isSameAs(first.getLayout());
+        assertThat(first.getValue("id")).isEqualTo("1");
+        assertThat(second.getValue("time")).isEqualTo(2L);
+    }
+
+    @Test
+    public void test_sameColumns_shareLayoutBeyondInternedLimit() {
+        for (int i = 0; i <= RecordLayout.MAX_INTERNED_LAYOUTS; i++) {
+            new CassandraRecord("spacekey", "sink" + i).setValue("id", "1");
+        }
+
+        CassandraRecord first = new CassandraRecord("spacekey", "overflow");
+        first.setValue("id", "1");
+        CassandraRecord second = new CassandraRecord("spacekey", "overflow");
+        second.setValue("id", "2");
+
+        assertThat(second.getLayout()).isSameAs(first.getLayout());
+    }
+
+    @Test
+    public void test_nullKeyspaceAndTable() {
+        CassandraRecord record = new CassandraRecord(null, null);
+        record.setValue("id", "1");
+
+        assertThat(record.getKeyspace()).isNull();
+        assertThat(record.getTable()).isNull();
+        assertThat(new CassandraRecord(null, null).getLayout()).isSameAs(RecordLayout.empty(null, null));
+        assertThat(record.getValue("id")).isEqualTo("1");
+    }
+
+    @Test
+    public void test_primitiveValues_roundTrip() {
+        CassandraRecord record = new CassandraRecord("spacekey", "sink");
+        record.setValue("int", -7);
+        record.setValue("long", Long.MAX_VALUE);
+        record.setValue("double", -0.5);
+        record.setValue("flag", true);
+        record.setValue("missing", null);
+
+        assertThat(record.getValue("int")).isEqualTo(-7);
+        assertThat(record.getValue("long")).isEqualTo(Long.MAX_VALUE);
+        assertThat(record.getValue("double")).isEqualTo(-0.5);
+        assertThat(record.getValue("flag")).isEqualTo(true);
+        assertThat(record.getValue("missing")).isNull();
+        assertThat(record.getValues()).containsKey("missing").hasSize(5);
+    }
+
+    @Test
+    public void test_setValue_changesKind() {
+        CassandraRecord record = new CassandraRecord("spacekey", "sink");
+        record.setValue("id", "123");
+        record.setValue("value", 4.5);
+        record.setValue("time", 123456);
+
+        record.setValue("value", "high");
+
+        assertThat(record.getValue("value")).isEqualTo("high");
+        assertThat(record.getValue("time")).isEqualTo(123456);
+        assertThat(record.getValues().keySet()).containsExactly("id", "value", "time");
+    }
+
+    @Test
+    public void test_getValues_writesThrough() {
+        CassandraRecord record = new CassandraRecord("spacekey", "sink");
+        record.setValue("id", "123");
+        record.setValue("time", 123456);
+
+        record.getValues().remove("id");
+        record.getValues().put("value", 4.5);
+
+        assertThat(record.getValue("id")).isNull();
+        assertThat(record.getValues()).containsOnlyKeys("time", "value");
+        assertThat(record.toCqlStatement().toString())
+                .isEqualTo("INSERT INTO spacekey.sink (time,value) VALUES (123456,4.5);");
+    }
+
 }
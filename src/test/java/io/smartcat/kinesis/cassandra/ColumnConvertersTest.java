@@ -0,0 +1,90 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.LocalDate;
+
+public class ColumnConvertersTest {
+
+    private static final CodecRegistry REGISTRY = new CodecRegistry();
+
+    @Test
+    public void test_convert_scalars() {
+        assertThat(convert(DataType.text(), 12)).isEqualTo("12");
+        assertThat(convert(DataType.cboolean(), "TRUE")).isEqualTo(true);
+        assertThat(convert(DataType.cint(), "42")).isEqualTo(42);
+        assertThat(convert(DataType.bigint(), 42)).isEqualTo(42L);
+        assertThat(convert(DataType.cfloat(), 0.5)).isEqualTo(0.5f);
+        assertThat(convert(DataType.decimal(), 0.1)).isEqualTo(new BigDecimal("0.1"));
+        assertThat(convert(DataType.varint(), "123456789012345678901234567890"))
+                .isEqualTo(new BigInteger("123456789012345678901234567890"));
+
+        UUID uuid = UUID.randomUUID();
+        assertThat(convert(DataType.uuid(), uuid.toString())).isEqualTo(uuid);
+        assertThat(convert(DataType.blob(), "aGVsbG8="))
+                .isEqualTo(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void test_convert_temporals() {
+        assertThat(convert(DataType.timestamp(), 1000L)).isEqualTo(new Date(1000L));
+        assertThat(convert(DataType.timestamp(), "1000")).isEqualTo(new Date(1000L));
+        assertThat(convert(DataType.timestamp(), "1970-01-01T00:00:01.5+00:00")).isEqualTo(new Date(1500L));
+        assertThat(convert(DataType.date(), "1970-01-11")).isEqualTo(LocalDate.fromDaysSinceEpoch(10));
+        assertThat(convert(DataType.time(), "00:00:01")).isEqualTo(1000000000L);
+    }
+
+    @Test
+    public void test_convert_collections() {
+        assertThat(convert(DataType.list(DataType.cint()), Arrays.asList("1", 2L))).isEqualTo(Arrays.asList(1, 2));
+        assertThat(convert(DataType.set(DataType.bigint()), Arrays.asList(1, 1, 2)))
+                .isEqualTo(new HashSet<>(Arrays.asList(1L, 2L)));
+
+        Map<String, Object> input = new HashMap<>();
+        input.put("a", "1.5");
+        assertThat(convert(DataType.map(DataType.text(), DataType.cdouble()), input))
+                .isEqualTo(Collections.singletonMap("a", 1.5));
+    }
+
+    @Test
+    public void test_convert_invalidValue() {
+        assertThatThrownBy(() -> convert(DataType.cboolean(), "yes")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> convert(DataType.list(DataType.cint()), "1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_convert_integersExactly() {
+        assertThat(convert(DataType.cint(), 3.0)).isEqualTo(3);
+        assertThat(convert(DataType.tinyint(), "-128")).isEqualTo((byte) -128);
+        assertThat(convert(DataType.bigint(), new BigInteger("9223372036854775807"))).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> convert(DataType.cint(), 3.7)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> convert(DataType.bigint(), "3.7")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> convert(DataType.cint(), 3000000000L)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> convert(DataType.smallint(), "40000")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> convert(DataType.tinyint(), 128)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> convert(DataType.bigint(), "9223372036854775808"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Object convert(DataType type, Object value) {
+        return ColumnConverters.forType(type, REGISTRY).convert(value);
+    }
+
+}
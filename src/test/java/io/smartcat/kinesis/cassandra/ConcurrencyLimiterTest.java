@@ -0,0 +1,58 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+
+public class ConcurrencyLimiterTest {
+
+    private static final long TARGET_LATENCY = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    public void test_release_growsWindowWhileInUse() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 100, 4, TARGET_LATENCY);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.release(FAST, null);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(6);
+    }
+
+    @Test
+    public void test_release_halvesWindowOnTimeout() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 100, 40, TARGET_LATENCY);
+
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(FAST, new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.SIMPLE, 0, 1));
+        limiter.release(FAST, new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.SIMPLE, 0, 1));
+
+        assertThat(limiter.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    public void test_release_keepsWindowWithinBounds() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 10, 10, 0);
+
+        limiter.acquire();
+        limiter.release(TimeUnit.SECONDS.toNanos(1), null);
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.release(TimeUnit.SECONDS.toNanos(1), null);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+}
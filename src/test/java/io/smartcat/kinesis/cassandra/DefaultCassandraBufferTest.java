@@ -0,0 +1,128 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.kinesis.connectors.KinesisConnectorConfiguration;
+
+public class DefaultCassandraBufferTest {
+
+    private long now;
+
+    @Test
+    public void test_shouldFlush_onBytes() {
+        DefaultCassandraBuffer buffer = buffer(100, 1000, 60000);
+
+        buffer.consumeRecord(rows(1), 60, "1");
+        assertThat(buffer.shouldFlush()).isFalse();
+        buffer.consumeRecord(rows(1), 40, "2");
+        assertThat(buffer.shouldFlush()).isTrue();
+    }
+
+    @Test
+    public void test_shouldFlush_onRows() {
+        DefaultCassandraBuffer buffer = buffer(1000, 5, 60000);
+
+        buffer.consumeRecord(rows(3), 1, "1");
+        assertThat(buffer.shouldFlush()).isFalse();
+        buffer.consumeRecord(rows(2), 1, "2");
+        assertThat(buffer.shouldFlush()).isTrue();
+        assertThat(buffer.getRecords()).hasSize(2);
+    }
+
+    @Test
+    public void test_shouldFlush_onAgeOfFirstRecord() {
+        DefaultCassandraBuffer buffer = buffer(1000, 1000, 100);
+
+        now = 1000;
+        assertThat(buffer.shouldFlush()).isFalse();
+        now = 5000;
+        buffer.consumeRecord(rows(1), 1, "1");
+        now = 5099;
+        buffer.consumeRecord(rows(1), 1, "2");
+        assertThat(buffer.shouldFlush()).isFalse();
+        now = 5100;
+        assertThat(buffer.shouldFlush()).isTrue();
+    }
+
+    @Test
+    public void test_shouldFlush_onAgeOfRecordsWithoutRows() {
+        DefaultCassandraBuffer buffer = buffer(100, 1, 100);
+
+        now = 5000;
+        buffer.consumeRecord(Collections.emptyList(), 100, "1");
+        buffer.consumeRecord(Collections.emptyList(), 100, "2");
+        assertThat(buffer.shouldFlush()).isFalse();
+        now = 5100;
+        assertThat(buffer.shouldFlush()).isTrue();
+        assertThat(buffer.getLastSequenceNumber()).isEqualTo("2");
+    }
+
+    @Test
+    public void test_shouldFlush_whenLagging() {
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_LAG_FLUSH_THRESHOLD_MILLIS,
+                "10000");
+        DefaultCassandraBuffer buffer = buffer(1000, 1000, 60000, props);
+
+        buffer.setMillisBehindLatest(5000);
+        buffer.consumeRecord(rows(1), 1, "1");
+        assertThat(buffer.shouldFlush()).isFalse();
+        buffer.setMillisBehindLatest(15000);
+        assertThat(buffer.shouldFlush()).isTrue();
+    }
+
+    @Test
+    public void test_clear() {
+        DefaultCassandraBuffer buffer = buffer(1000, 2, 60000);
+
+        buffer.consumeRecord(rows(2), 1, "1");
+        buffer.consumeRecord(Collections.emptyList(), 1, "2");
+        assertThat(buffer.getFirstSequenceNumber()).isEqualTo("1");
+        assertThat(buffer.getLastSequenceNumber()).isEqualTo("2");
+        buffer.clear();
+
+        assertThat(buffer.getRecords()).isEmpty();
+        assertThat(buffer.shouldFlush()).isFalse();
+        buffer.consumeRecord(rows(1), 1, "3");
+        assertThat(buffer.shouldFlush()).isFalse();
+        assertThat(buffer.getFirstSequenceNumber()).isEqualTo("3");
+    }
+
+    private DefaultCassandraBuffer buffer(long bytes, long rows, long millis) {
+        return buffer(bytes, rows, millis, new Properties());
+    }
+
+    private DefaultCassandraBuffer buffer(long bytes, long rows, long millis, Properties props) {
+        props.put(KinesisConnectorConfiguration.PROP_BUFFER_BYTE_SIZE_LIMIT, Long.toString(bytes));
+        props.put(KinesisConnectorConfiguration.PROP_BUFFER_RECORD_COUNT_LIMIT, Long.toString(rows));
+        props.put(KinesisConnectorConfiguration.PROP_BUFFER_MILLISECONDS_LIMIT, Long.toString(millis));
+        CassandraKinesisConnectorConfiguration config = new CassandraKinesisConnectorConfiguration(props,
+                new DefaultAWSCredentialsProviderChain());
+
+        DefaultCassandraBuffer buffer = new DefaultCassandraBuffer() {
+            @Override
+            protected long getCurrentTimeMilliseconds() {
+                return now;
+            }
+        };
+        buffer.init(config);
+        return buffer;
+    }
+
+    private static List<CassandraRecord> rows(int count) {
+        List<CassandraRecord> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new CassandraRecord("spacekey", "sink"));
+        }
+        return rows;
+    }
+
+}
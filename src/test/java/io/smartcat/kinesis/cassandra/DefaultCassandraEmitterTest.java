@@ -0,0 +1,418 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.amazonaws.services.kinesis.connectors.impl.BasicMemoryBuffer;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+
+public class DefaultCassandraEmitterTest {
+
+    private Session session;
+    private List<Runnable> pendingCompletions;
+    private int maxInFlight;
+    private int inFlight;
+
+    @Before
+    public void setUp() {
+        session = mock(Session.class);
+        pendingCompletions = new ArrayList<>();
+        when(session.prepare(any(RegularStatement.class))).thenAnswer(new Answer<PreparedStatement>() {
+            @Override
+            public PreparedStatement answer(InvocationOnMock invocation) throws Throwable {
+                final PreparedStatement prepared = mock(PreparedStatement.class);
+                when(prepared.bind(Matchers.<Object>anyVararg())).thenAnswer(new Answer<BoundStatement>() {
+                    @Override
+                    public BoundStatement answer(InvocationOnMock invocation) throws Throwable {
+                        String id = String.valueOf(invocation.getArguments()[0]);
+                        BoundStatement bound = mock(BoundStatement.class);
+                        when(bound.toString()).thenReturn(id);
+                        when(bound.getRoutingKey(any(ProtocolVersion.class), any(CodecRegistry.class)))
+                                .thenReturn(ByteBuffer.wrap(id.split("-")[0].getBytes()));
+                        return bound;
+                    }
+                });
+                return prepared;
+            }
+        });
+    }
+
+    @Test
+    public void test_emit_returnsOnlyFailedRecords() throws Exception {
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                boolean fail = invocation.getArguments()[0].toString().startsWith("bad");
+                return completedFuture(fail);
+            }
+        });
+        DefaultCassandraEmitter emitter = emitter(10);
+
+        CassandraRecord good = record("good");
+        CassandraRecord bad = record("bad");
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(
+                Arrays.asList(Arrays.asList(good, bad), Arrays.asList(good))));
+
+        assertThat(failed).hasSize(1);
+        assertThat(failed.get(0)).containsExactly(bad);
+    }
+
+    @Test
+    public void test_emit_limitsInFlightWrites() throws Exception {
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                synchronized (DefaultCassandraEmitterTest.this) {
+                    inFlight++;
+                    maxInFlight = Math.max(maxInFlight, inFlight);
+                }
+                return pendingFuture();
+            }
+        });
+        DefaultCassandraEmitter emitter = emitter(2);
+
+        final AtomicBoolean emitted = new AtomicBoolean();
+        Thread completer = new Thread(() -> {
+            while (!emitted.get()) {
+                completePending();
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        completer.start();
+        List<CassandraRecord> records = Arrays.asList(record("a"), record("b"), record("c"), record("d"));
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(Arrays.asList(records)));
+        emitted.set(true);
+        completer.join();
+
+        assertThat(failed).isEmpty();
+        assertThat(maxInFlight).isEqualTo(2);
+    }
+
+    @Test
+    public void test_emit_batchesByPartition() throws Exception {
+        final List<Statement> executed = new ArrayList<>();
+        when(session.getCluster()).thenReturn(mock(Cluster.class, RETURNS_DEEP_STUBS));
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                executed.add((Statement) invocation.getArguments()[0]);
+                return completedFuture(false);
+            }
+        });
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_BATCH_WRITES, "true");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_MAX_BATCH_SIZE, "2");
+        DefaultCassandraEmitter emitter = emitter(props);
+
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(Arrays.asList(
+                Arrays.asList(record("p1-a"), record("p2-a")),
+                Arrays.asList(record("p1-b"), record("p1-c")))));
+
+        assertThat(failed).isEmpty();
+        assertThat(executed).hasSize(3);
+        assertThat(executed.get(0)).isInstanceOf(BatchStatement.class);
+        List<String> batched = new ArrayList<>();
+        for (Statement statement : ((BatchStatement) executed.get(0)).getStatements()) {
+            batched.add(statement.toString());
+        }
+        assertThat(batched).containsExactly("p1-a", "p1-b");
+        assertThat(executed.get(1).toString()).isEqualTo("p1-c");
+        assertThat(executed.get(2).toString()).isEqualTo("p2-a");
+    }
+
+    @Test
+    public void test_emit_ordersVersionsOfRowInBatch() throws Exception {
+        final List<Statement> executed = new ArrayList<>();
+        when(session.getCluster()).thenReturn(mock(Cluster.class, RETURNS_DEEP_STUBS));
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                executed.add((Statement) invocation.getArguments()[0]);
+                return completedFuture(false);
+            }
+        });
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_BATCH_WRITES, "true");
+        DefaultCassandraEmitter emitter = emitter(props);
+
+        CassandraRecord older = record("p1-a");
+        older.setValue("value", 1);
+        CassandraRecord newer = record("p1-a");
+        newer.setValue("value", 2);
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(Arrays.asList(Arrays.asList(older, newer))));
+
+        assertThat(failed).isEmpty();
+        assertThat(executed).hasSize(1);
+        assertThat(((BatchStatement) executed.get(0)).size()).isEqualTo(2);
+        assertThat(older.getTimestamp()).isNotEqualTo(CassandraRecord.NO_TIMESTAMP);
+        assertThat(newer.getTimestamp()).isGreaterThan(older.getTimestamp());
+    }
+
+    @Test
+    public void test_emit_recordsMetrics() throws Exception {
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                boolean fail = invocation.getArguments()[0].toString().startsWith("bad");
+                return completedFuture(fail);
+            }
+        });
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_METRICS_REGISTRY,
+                "emitter-test");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_METRICS_JMX_ENABLED,
+                "false");
+        DefaultCassandraEmitter emitter = emitter(props);
+
+        emitter.emit(buffer(Arrays.asList(Arrays.asList(record("good"), record("bad"), record("good2")))));
+
+        MetricRegistry metrics = SharedMetricRegistries.getOrCreate("emitter-test");
+        assertThat(metrics.timer("emitter.writes.spacekey.sink").getCount()).isEqualTo(3);
+        assertThat(metrics.meter("emitter.errors.WriteTimeoutException").getCount()).isEqualTo(1);
+        assertThat(metrics.counter("emitter.inFlight").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_emit_coalescesByPrimaryKey() throws Exception {
+        final List<Statement> executed = new ArrayList<>();
+        mockTable("spacekey", "sink", "id");
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                Statement statement = (Statement) invocation.getArguments()[0];
+                executed.add(statement);
+                return completedFuture(statement.toString().equals("a"));
+            }
+        });
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_COALESCE_WRITES, "true");
+        DefaultCassandraEmitter emitter = emitter(props);
+
+        CassandraRecord first = record("a");
+        first.setValue("value", 1);
+        CassandraRecord other = record("b");
+        CassandraRecord second = record("a");
+        second.setValue("note", "x");
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(
+                Arrays.asList(Arrays.asList(first, other), Arrays.asList(second))));
+
+        assertThat(executed).hasSize(2);
+        assertThat(executed.get(0).toString()).isEqualTo("a");
+        assertThat(executed.get(1).toString()).isEqualTo("b");
+        assertThat(failed).hasSize(2);
+        assertThat(failed.get(0)).containsExactly(first);
+        assertThat(failed.get(1)).containsExactly(second);
+    }
+
+    @Test
+    public void test_emit_coalescesOnlyRecordsWithSameWriteOptions() throws Exception {
+        final List<Statement> executed = new ArrayList<>();
+        mockTable("spacekey", "sink", "id");
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                executed.add((Statement) invocation.getArguments()[0]);
+                return completedFuture(false);
+            }
+        });
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_COALESCE_WRITES, "true");
+        DefaultCassandraEmitter emitter = emitter(props);
+
+        CassandraRecord first = record("a");
+        CassandraRecord expiring = record("a");
+        expiring.setTtl(60);
+        CassandraRecord last = record("a");
+        CassandraRecord same = record("a");
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(
+                Arrays.asList(Arrays.asList(first, expiring), Arrays.asList(last, same))));
+
+        assertThat(failed).isEmpty();
+        assertThat(executed).hasSize(3);
+    }
+
+    private void mockTable(String keyspace, String table, String primaryKey) {
+        Cluster cluster = mock(Cluster.class, RETURNS_DEEP_STUBS);
+        when(cluster.getConfiguration().getCodecRegistry()).thenReturn(CodecRegistry.DEFAULT_INSTANCE);
+        TableMetadata tableMetadata = mock(TableMetadata.class, RETURNS_DEEP_STUBS);
+        ColumnMetadata keyColumn = mock(ColumnMetadata.class);
+        when(keyColumn.getName()).thenReturn(primaryKey);
+        when(keyColumn.getType()).thenReturn(DataType.text());
+        when(tableMetadata.getKeyspace().getName()).thenReturn(keyspace);
+        when(tableMetadata.getName()).thenReturn(table);
+        when(tableMetadata.getColumns()).thenReturn(Arrays.asList(keyColumn));
+        when(tableMetadata.getPrimaryKey()).thenReturn(Arrays.asList(keyColumn));
+        when(cluster.getMetadata().getKeyspace(keyspace).getTable(table)).thenReturn(tableMetadata);
+        when(session.getCluster()).thenReturn(cluster);
+    }
+
+    @Test
+    public void test_emit_retriesTransientFailures() throws Exception {
+        final List<String> executed = new ArrayList<>();
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                String id = invocation.getArguments()[0].toString();
+                executed.add(id);
+                boolean fail = id.equals("bad") || id.equals("flaky") && executed.indexOf(id) == executed.size() - 1;
+                return completedFuture(fail);
+            }
+        });
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_WRITE_RETRIES, "2");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_RETRY_BASE_DELAY_MILLIS,
+                "1");
+        DefaultCassandraEmitter emitter = emitter(props);
+
+        CassandraRecord bad = record("bad");
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(
+                Arrays.asList(Arrays.asList(record("good"), record("flaky"), bad))));
+
+        assertThat(failed).hasSize(1);
+        assertThat(failed.get(0)).containsExactly(bad);
+        assertThat(executed).containsExactly("good", "flaky", "bad", "flaky", "bad", "bad");
+    }
+
+    @Test
+    public void test_emit_retriesWithTimestampOfFirstAttempt() throws Exception {
+        final List<Statement> executed = new ArrayList<>();
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                executed.add((Statement) invocation.getArguments()[0]);
+                return completedFuture(true);
+            }
+        });
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_WRITE_RETRIES, "2");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_RETRY_BASE_DELAY_MILLIS,
+                "1");
+        DefaultCassandraEmitter emitter = emitter(props);
+
+        CassandraRecord bad = record("bad");
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(Arrays.asList(Arrays.asList(bad))));
+
+        assertThat(failed.get(0)).containsExactly(bad);
+        assertThat(executed).hasSize(3);
+        assertThat(executed.get(1)).isSameAs(executed.get(0));
+        assertThat(executed.get(2)).isSameAs(executed.get(0));
+        ArgumentCaptor<Long> timestamp = ArgumentCaptor.forClass(Long.class);
+        verify(executed.get(0), times(1)).setDefaultTimestamp(timestamp.capture());
+        assertThat(bad.getTimestamp()).isEqualTo(timestamp.getValue());
+    }
+
+    private DefaultCassandraEmitter emitter(int maxInFlightWrites) {
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_MAX_IN_FLIGHT_WRITES,
+                Integer.toString(maxInFlightWrites));
+        return emitter(props);
+    }
+
+    private DefaultCassandraEmitter emitter(Properties props) {
+        CassandraKinesisConnectorConfiguration config = new CassandraKinesisConnectorConfiguration(props,
+                new DefaultAWSCredentialsProviderChain());
+        DefaultCassandraEmitter emitter = new DefaultCassandraEmitter();
+        emitter.init(config, session);
+        return emitter;
+    }
+
+    private static UnmodifiableBuffer<List<CassandraRecord>> buffer(List<List<CassandraRecord>> records) {
+        Properties props = new Properties();
+        CassandraKinesisConnectorConfiguration config = new CassandraKinesisConnectorConfiguration(props,
+                new DefaultAWSCredentialsProviderChain());
+        return new UnmodifiableBuffer<>(new BasicMemoryBuffer<List<CassandraRecord>>(config), records);
+    }
+
+    private static CassandraRecord record(String id) {
+        CassandraRecord record = new CassandraRecord("spacekey", "sink");
+        record.setValue("id", id);
+        return record;
+    }
+
+    private static ResultSetFuture completedFuture(boolean fail) {
+        ResultSetFuture future = mock(ResultSetFuture.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(future).addListener(any(Runnable.class), any(Executor.class));
+        if (fail) {
+            when(future.getUninterruptibly()).thenThrow(
+                    new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.SIMPLE, 0, 1));
+        }
+        return future;
+    }
+
+    private void completePending() {
+        List<Runnable> completions;
+        synchronized (this) {
+            completions = new ArrayList<>(pendingCompletions);
+            pendingCompletions.clear();
+            inFlight -= completions.size();
+        }
+        for (Runnable completion : completions) {
+            completion.run();
+        }
+    }
+
+    private ResultSetFuture pendingFuture() {
+        ResultSetFuture future = mock(ResultSetFuture.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                final Runnable listener = (Runnable) invocation.getArguments()[0];
+                synchronized (DefaultCassandraEmitterTest.this) {
+                    pendingCompletions.add(listener);
+                }
+                return null;
+            }
+        }).when(future).addListener(any(Runnable.class), any(Executor.class));
+        return future;
+    }
+}
@@ -0,0 +1,158 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.amazonaws.services.kinesis.clientlibrary.interfaces.IRecordProcessorCheckpointer;
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IEmitter;
+import com.amazonaws.services.kinesis.model.Record;
+
+public class EmitPipelineTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_emit_defersCheckpointsUntilBatchesAreWritten() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingEmitter emitter = new BlockingEmitter(release, 0);
+        EmitPipeline pipeline = new EmitPipeline(emitter, executor, 2, 1, 0);
+        IRecordProcessorCheckpointer checkpointer = mock(IRecordProcessorCheckpointer.class);
+        IRecordProcessorCheckpointer deferring = pipeline.checkpointer(checkpointer);
+
+        assertThat(pipeline.emit(buffer("a"))).isEmpty();
+        deferring.checkpoint("1");
+        pipeline.emit(buffer("b"));
+        deferring.checkpoint("2");
+
+        assertThat(pipeline.getPending()).isEqualTo(2);
+        verify(checkpointer, never()).checkpoint(anyString());
+        release.countDown();
+        pipeline.shutdown();
+
+        InOrder order = inOrder(checkpointer);
+        order.verify(checkpointer).checkpoint("1");
+        order.verify(checkpointer).checkpoint("2");
+        assertThat(emitter.written).containsExactly("a", "b");
+        assertThat(pipeline.getPending()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_emit_retriesAndFailsBatchAsynchronously() throws Exception {
+        BlockingEmitter emitter = new BlockingEmitter(new CountDownLatch(0), 2);
+        EmitPipeline pipeline = new EmitPipeline(emitter, executor, 1, 2, 0);
+        IRecordProcessorCheckpointer checkpointer = mock(IRecordProcessorCheckpointer.class);
+
+        pipeline.emit(buffer("a"));
+        pipeline.checkpointer(checkpointer).checkpoint();
+
+        verify(checkpointer).checkpoint();
+        assertThat(emitter.attempts).isEqualTo(2);
+        assertThat(emitter.failed).hasSize(1);
+    }
+
+    @Test
+    public void test_emit_marksWrittenArrivalOfEachBatchWhenItCompletes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IEmitter<List<CassandraRecord>> emitter = new BlockingEmitter(release, 0) {
+            @Override
+            public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer)
+                    throws IOException {
+                if ("b".equals(buffer.getRecords().get(0).get(0).getValue("id"))) {
+                    return super.emit(buffer);
+                }
+                return Collections.emptyList();
+            }
+        };
+        EmitPipeline pipeline = new EmitPipeline(emitter, executor, 2, 1, 0);
+        ShardLag lag = new ShardLag();
+        pipeline.setLag(lag);
+
+        lag.received(Collections.singletonList(new Record().withApproximateArrivalTimestamp(new Date(1000))));
+        pipeline.emit(buffer("a"));
+        lag.received(Collections.singletonList(new Record().withApproximateArrivalTimestamp(new Date(2000))));
+        pipeline.emit(buffer("b"));
+        for (int i = 0; i < 500 && pipeline.getPending() > 1; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(pipeline.getPending()).isEqualTo(1);
+        assertThat(lag.getWrittenArrivalMillis()).isEqualTo(1000);
+        release.countDown();
+        pipeline.shutdown();
+        assertThat(lag.getWrittenArrivalMillis()).isEqualTo(2000);
+    }
+
+    private static UnmodifiableBuffer<List<CassandraRecord>> buffer(String id) {
+        CassandraRecord record = new CassandraRecord("spacekey", "sink");
+        record.setValue("id", id);
+        @SuppressWarnings("unchecked")
+        IBuffer<List<CassandraRecord>> buffer = mock(IBuffer.class);
+        List<List<CassandraRecord>> records = new ArrayList<>();
+        records.add(Collections.singletonList(record));
+        return new UnmodifiableBuffer<>(buffer, records);
+    }
+
+    private static class BlockingEmitter implements IEmitter<List<CassandraRecord>> {
+        private final CountDownLatch release;
+        private final int failures;
+        private final List<Object> written = new CopyOnWriteArrayList<>();
+        private final List<List<CassandraRecord>> failed = new CopyOnWriteArrayList<>();
+        private volatile int attempts;
+
+        BlockingEmitter(CountDownLatch release, int failures) {
+            this.release = release;
+            this.failures = failures;
+        }
+
+        @Override
+        public List<List<CassandraRecord>> emit(UnmodifiableBuffer<List<CassandraRecord>> buffer)
+                throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (attempts++ < failures) {
+                return buffer.getRecords();
+            }
+            for (List<CassandraRecord> records : buffer.getRecords()) {
+                written.add(records.get(0).getValue("id"));
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void fail(List<List<CassandraRecord>> records) {
+            failed.addAll(records);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
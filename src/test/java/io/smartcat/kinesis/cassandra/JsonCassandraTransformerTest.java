@@ -2,6 +2,11 @@ package io.smartcat.kinesis.cassandra;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,4 +44,157 @@ public class JsonCassandraTransformerTest {
         assertThat(res.get(0).getValue("value")).isEqualTo(4.5);
     }
 
+    @Test
+    public void test_transform_skipsNestedValues() throws Exception {
+        CassandraTransformer transformer = transformer();
+
+        String input = "{\"id\":\"\u0161ifra\",\"nested\":{\"a\":[1,2,{\"b\":3}]},\"list\":[1,2],"
+                + "\"big\":12345678901,\"flag\":true,\"missing\":null}";
+        List<CassandraRecord> res = transformer.transform(input.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValues()).containsOnlyKeys("id", "big", "flag");
+        assertThat(res.get(0).getValue("id")).isEqualTo("\u0161ifra");
+        assertThat(res.get(0).getValue("big")).isEqualTo(12345678901L);
+        assertThat(res.get(0).getValue("flag")).isEqualTo(true);
+    }
+
+    @Test
+    public void test_transform_invalidJson() throws Exception {
+        CassandraTransformer transformer = transformer();
+
+        assertThat(transformer.transform("[1,2]".getBytes(StandardCharsets.UTF_8))).isEmpty();
+        assertThat(transformer.transform("{\"id\":".getBytes(StandardCharsets.UTF_8))).isEmpty();
+    }
+
+    @Test
+    public void test_transform_schemaAwareKeepsNestedValues() throws Exception {
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_SCHEMA_AWARE, "true");
+        CassandraTransformer transformer = transformer(props);
+
+        String input = "{\"id\":1,\"tags\":[\"a\",null,\"b\"],\"address\":{\"city\":\"Novi Sad\",\"zip\":21000},"
+                + "\"amount\":0.10,\"big\":123456789012345678901234567890}";
+        List<CassandraRecord> res = transformer.transform(input.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValue("tags")).isEqualTo(Arrays.asList("a", "b"));
+        Map<String, Object> address = new HashMap<>();
+        address.put("city", "Novi Sad");
+        address.put("zip", 21000);
+        assertThat(res.get(0).getValue("address")).isEqualTo(address);
+        assertThat(res.get(0).getValue("amount")).isEqualTo(new BigDecimal("0.10"));
+        assertThat(res.get(0).getValue("big")).isEqualTo(new BigInteger("123456789012345678901234567890"));
+    }
+
+    @Test
+    public void test_transform_multiRecord() throws Exception {
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_JSON_MULTI_RECORD, "true");
+        CassandraTransformer transformer = transformer(props);
+
+        String input = "{\"id\":1,\"value\":\"a\"}\n{\"id\":2,\"value\":\"b\"}\r\n{\"id\":3}{\"id\":4}\n";
+        List<CassandraRecord> res = transformer.transform(input.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(res).hasSize(4);
+        assertThat(res.get(1).getValue("id")).isEqualTo(2);
+        assertThat(res.get(1).getValue("value")).isEqualTo("b");
+        assertThat(res.get(3).getValue("id")).isEqualTo(4);
+
+        res = transformer.transform("{\"id\":1}\n{\"id\":".getBytes(StandardCharsets.UTF_8));
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValue("id")).isEqualTo(1);
+    }
+
+    @Test
+    public void test_transform_singleRecordByDefault() throws Exception {
+        List<CassandraRecord> res = transformer().transform("{\"id\":1}\n{\"id\":2}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValue("id")).isEqualTo(1);
+    }
+
+    @Test
+    public void test_transform_byteBufferSlices() throws Exception {
+        CassandraTransformer transformer = transformer();
+        byte[] bytes = "xx{\"id\":1}yy".getBytes(StandardCharsets.UTF_8);
+        RecordMetadata metadata = new RecordMetadata("pk", "1", 0, null);
+
+        ByteBuffer heap = ByteBuffer.wrap(bytes, 2, 8);
+        List<CassandraRecord> res = transformer.transform(heap.slice(), metadata);
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValue("id")).isEqualTo(1);
+
+        res = transformer.transform(heap.asReadOnlyBuffer(), metadata);
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValue("id")).isEqualTo(1);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).position(2).limit(10);
+        res = transformer.transform(direct, metadata);
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getValue("id")).isEqualTo(1);
+        assertThat(direct.position()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_transform_filtersAndProjectsFields() throws Exception {
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_JSON_MULTI_RECORD, "true");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_FILTER_FIELDS,
+                "type=click,view");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_PROJECTION_FIELDS,
+                "id,url");
+        CassandraTransformer transformer = transformer(props);
+
+        String input = "{\"id\":1,\"type\":\"click\",\"url\":\"/a\",\"payload\":{\"x\":[1,2]}}\n"
+                + "{\"id\":2,\"type\":\"scroll\",\"url\":\"/b\",\"payload\":{\"x\":[3]}}\n"
+                + "{\"id\":3,\"url\":\"/c\"}\n"
+                + "{\"type\":\"view\",\"id\":4,\"extra\":true}";
+        List<CassandraRecord> res = transformer.transform(input.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(res).hasSize(2);
+        assertThat(res.get(0).getValues()).containsOnlyKeys("id", "url");
+        assertThat(res.get(0).getValue("url")).isEqualTo("/a");
+        assertThat(res.get(1).getValues()).containsOnlyKeys("id");
+        assertThat(res.get(1).getValue("id")).isEqualTo(4);
+    }
+
+    @Test
+    public void test_filterSpec_partitionKeyAndSampling() throws Exception {
+        Properties props = new Properties();
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_FILTER_PARTITION_KEY,
+                "eu-.*");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_FILTER_SAMPLE_RATE,
+                "0.25");
+        FilterSpec filter = FilterSpec.of(new CassandraKinesisConnectorConfiguration(props,
+                new DefaultAWSCredentialsProviderChain()));
+
+        assertThat(filter.accepts(new RecordMetadata("us-1", "1", 0, null))).isFalse();
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            RecordMetadata metadata = new RecordMetadata("eu-1", Integer.toString(i), 0, null);
+            if (filter.accepts(metadata)) {
+                sampled++;
+                assertThat(filter.accepts(metadata)).isTrue();
+            }
+        }
+        assertThat(sampled).isBetween(2250, 2750);
+    }
+
+    private static CassandraTransformer transformer() {
+        return transformer(new Properties());
+    }
+
+    private static CassandraTransformer transformer(Properties props) {
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_KEYSPACE, "spacekey");
+        props.put(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_TABLE, "sink");
+        CassandraKinesisConnectorConfiguration config = new CassandraKinesisConnectorConfiguration(props,
+                new DefaultAWSCredentialsProviderChain());
+
+        CassandraTransformer transformer = new JsonCassandraTransformer();
+        transformer.init(config);
+        return transformer;
+    }
+
 }
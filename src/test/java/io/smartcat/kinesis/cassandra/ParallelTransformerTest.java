@@ -0,0 +1,113 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.kinesis.connectors.interfaces.ICollectionTransformer;
+import com.amazonaws.services.kinesis.model.Record;
+
+public class ParallelTransformerTest {
+
+    private ForkJoinPool pool;
+    private Set<Thread> threads;
+    private AtomicInteger failures;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+        threads = ConcurrentHashMap.newKeySet();
+        failures = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void test_toClass_returnsPrefetchedRecordsInOrder() throws Exception {
+        ParallelTransformer transformer = new ParallelTransformer(new IdTransformer(), pool);
+        List<Record> records = records(100);
+
+        transformer.prefetch(records);
+        List<String> ids = new ArrayList<>();
+        for (Record record : records) {
+            ids.add(id(transformer.toClass(record)));
+        }
+
+        assertThat(ids).hasSize(100);
+        for (int i = 0; i < ids.size(); i++) {
+            assertThat(ids.get(i)).isEqualTo(Integer.toString(i));
+        }
+        assertThat(threads).doesNotContain(Thread.currentThread());
+    }
+
+    @Test
+    public void test_toClass_transformsFailedRecordsAgain() throws Exception {
+        ParallelTransformer transformer = new ParallelTransformer(new IdTransformer(), pool);
+        List<Record> records = records(20);
+        records.get(5).setData(ByteBuffer.wrap("fail".getBytes(StandardCharsets.UTF_8)));
+
+        transformer.prefetch(records);
+        assertThat(failures.get()).isEqualTo(1);
+        assertThat(id(transformer.toClass(records.get(4)))).isEqualTo("4");
+        try {
+            transformer.toClass(records.get(5));
+        } catch (IllegalArgumentException e) {
+            assertThat(failures.get()).isEqualTo(2);
+            return;
+        }
+        throw new AssertionError("Expected the failure to be reported by the caller");
+    }
+
+    private static List<Record> records(int count) {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(new Record().withData(ByteBuffer.wrap(Integer.toString(i).getBytes(StandardCharsets.UTF_8))));
+        }
+        return records;
+    }
+
+    private static String id(Collection<List<CassandraRecord>> output) {
+        return (String) output.iterator().next().get(0).getValue("id");
+    }
+
+    /**
+     * Produces a single record with the Kinesis record data as its id.
+     */
+    private class IdTransformer implements ICollectionTransformer<List<CassandraRecord>, List<CassandraRecord>> {
+
+        @Override
+        public Collection<List<CassandraRecord>> toClass(Record record) throws IOException {
+            threads.add(Thread.currentThread());
+            String id = StandardCharsets.UTF_8.decode(record.getData().duplicate()).toString();
+            if (id.equals("fail")) {
+                failures.incrementAndGet();
+                throw new IllegalArgumentException(id);
+            }
+            CassandraRecord output = new CassandraRecord("spacekey", "sink");
+            output.setValue("id", id);
+            return Collections.singletonList(Collections.singletonList(output));
+        }
+
+        @Override
+        public List<CassandraRecord> fromClass(List<CassandraRecord> record) throws IOException {
+            return record;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TypeCodec;
+
+public class PreparedStatementCacheTest {
+
+    private Session session;
+    private List<String> preparedQueries;
+
+    @Before
+    public void setUp() {
+        session = mock(Session.class);
+        preparedQueries = new ArrayList<>();
+        when(session.prepare(any(RegularStatement.class))).thenAnswer(new Answer<PreparedStatement>() {
+            @Override
+            public PreparedStatement answer(InvocationOnMock invocation) throws Throwable {
+                String query = invocation.getArguments()[0].toString();
+                preparedQueries.add(query);
+                PreparedStatement prepared = mock(PreparedStatement.class);
+                when(prepared.getQueryString()).thenReturn(query);
+                when(prepared.bind()).thenAnswer(bind -> mock(BoundStatement.class));
+                return prepared;
+            }
+        });
+    }
+
+    @Test
+    public void test_bind_reusesStatementForSameColumnSet() {
+        PreparedStatementCache cache = new PreparedStatementCache(session, 10);
+
+        CassandraRecord first = new CassandraRecord("spacekey", "sink");
+        first.setValue("value", 4.5);
+        first.setValue("id", "123");
+        CassandraRecord second = new CassandraRecord("spacekey", "sink");
+        second.setValue("id", "456");
+        second.setValue("value", 1.5);
+
+        cache.bind(first);
+        cache.bind(second);
+
+        verify(session, times(1)).prepare(any(RegularStatement.class));
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(preparedQueries).containsExactly("INSERT INTO spacekey.sink (id,value) VALUES (?,?);");
+    }
+
+    @Test
+    public void test_bind_evictsLeastRecentlyUsed() {
+        PreparedStatementCache cache = new PreparedStatementCache(session, 2);
+
+        cache.bind(record("a"));
+        cache.bind(record("b"));
+        cache.bind(record("a"));
+        cache.bind(record("c"));
+        cache.bind(record("a"));
+        cache.bind(record("b"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(preparedQueries).containsExactly(
+                "INSERT INTO spacekey.sink (a) VALUES (?);",
+                "INSERT INTO spacekey.sink (b) VALUES (?);",
+                "INSERT INTO spacekey.sink (c) VALUES (?);",
+                "INSERT INTO spacekey.sink (b) VALUES (?);");
+    }
+
+    @Test
+    public void test_bind_preparesTimestampedStatementSeparately() {
+        PreparedStatementCache cache = new PreparedStatementCache(session, 10);
+
+        CassandraRecord timestamped = record("a");
+        timestamped.setTimestamp(1500000000000000L);
+        cache.bind(record("a"));
+        cache.bind(timestamped);
+        cache.bind(timestamped);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(preparedQueries).containsExactly(
+                "INSERT INTO spacekey.sink (a) VALUES (?);",
+                "INSERT INTO spacekey.sink (a) VALUES (?) USING TIMESTAMP ?;");
+    }
+
+    @Test
+    public void test_bind_preparesStatementPerTimestampAndTtlCombination() {
+        PreparedStatementCache cache = new PreparedStatementCache(session, 10);
+
+        CassandraRecord expiring = record("a");
+        expiring.setTtl(3600);
+        CassandraRecord timestampedAndExpiring = record("a");
+        timestampedAndExpiring.setTimestamp(1500000000000000L);
+        timestampedAndExpiring.setTtl(60);
+        cache.bind(expiring);
+        cache.bind(timestampedAndExpiring);
+        cache.bind(expiring);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(preparedQueries).containsExactly(
+                "INSERT INTO spacekey.sink (a) VALUES (?) USING TTL ?;",
+                "INSERT INTO spacekey.sink (a) VALUES (?) USING TIMESTAMP ? AND TTL ?;");
+    }
+
+    @Test
+    public void test_bind_bindsSchemaColumnsByIndexUntilSchemaChanges() {
+        TableSchemaCache schemas = mock(TableSchemaCache.class);
+        when(schemas.get("spacekey", "sink")).thenReturn(schema(), schema());
+        PreparedStatementCache cache = new PreparedStatementCache(session, 10, schemas);
+
+        CassandraRecord first = new CassandraRecord("spacekey", "sink");
+        first.setValue("value", "4.5");
+        first.setValue("extra", "x");
+        first.setValue("ID", "123");
+        BoundStatement bound = cache.bind(first);
+
+        verify(bound).set(eq(0), eq("123"), any(TypeCodec.class));
+        verify(bound).set(eq(1), eq(4.5), any(TypeCodec.class));
+        assertThat(preparedQueries).containsExactly("INSERT INTO spacekey.sink (\"id\",\"value\") VALUES (?,?);");
+
+        CassandraRecord second = new CassandraRecord("spacekey", "sink");
+        second.setValue("value", "1.5");
+        second.setValue("extra", "y");
+        second.setValue("ID", "456");
+        bound = cache.bind(second);
+
+        verify(bound).set(eq(0), eq("456"), any(TypeCodec.class));
+        assertThat(preparedQueries).hasSize(2);
+    }
+
+    private static TableSchema schema() {
+        Map<String, DataType> types = new LinkedHashMap<>();
+        types.put("id", DataType.text());
+        types.put("value", DataType.cdouble());
+        return new TableSchema("spacekey", "sink", types, Collections.singletonList("id"),
+                CodecRegistry.DEFAULT_INSTANCE);
+    }
+
+    private static CassandraRecord record(String column) {
+        CassandraRecord record = new CassandraRecord("spacekey", "sink");
+        record.setValue(column, 1);
+        return record;
+    }
+}
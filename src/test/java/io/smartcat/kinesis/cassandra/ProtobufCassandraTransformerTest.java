@@ -0,0 +1,112 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldOptions;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+
+public class ProtobufCassandraTransformerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_transform_decodesFieldsOfDescriptorSet() throws Exception {
+        CassandraTransformer transformer = transformer(new Properties());
+
+        List<CassandraRecord> res = transformer.transform(event("e1", "B").toByteArray());
+
+        assertThat(res).hasSize(1);
+        assertThat(res.get(0).getKeyspace()).isEqualTo("spacekey");
+        assertThat(res.get(0).getTable()).isEqualTo("sink");
+        assertThat(res.get(0).getValues()).containsOnlyKeys("id", "count", "time", "kind");
+        assertThat(res.get(0).getValue("id")).isEqualTo("e1");
+        assertThat(res.get(0).getValue("count")).isEqualTo(-3);
+        assertThat(res.get(0).getValue("time")).isEqualTo(1500000000000L);
+        assertThat(res.get(0).getValue("kind")).isEqualTo("B");
+    }
+
+    @Test
+    public void test_transform_readsRepeatedFieldsAndFilters() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("cassandraSchemaAware", "true");
+        props.setProperty("cassandraFilterFields", "kind=B");
+        props.setProperty("cassandraProjectionFields", "id,scores");
+        CassandraTransformer transformer = transformer(props);
+
+        List<CassandraRecord> accepted = transformer.transform(event("e1", "B").toByteArray());
+        List<CassandraRecord> rejected = transformer.transform(event("e2", "A").toByteArray());
+
+        assertThat(accepted).hasSize(1);
+        assertThat(accepted.get(0).getValues()).containsOnlyKeys("id", "scores");
+        assertThat(accepted.get(0).getValue("scores")).isEqualTo(Arrays.asList(1L, 2L, 300L));
+        assertThat(rejected).isEmpty();
+    }
+
+    private CassandraTransformer transformer(Properties props) throws Exception {
+        File descriptorSet = folder.newFile();
+        Files.write(descriptorSet.toPath(), FileDescriptorSet.newBuilder().addFile(file()).build().toByteArray());
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_KEYSPACE,
+                "spacekey");
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_TABLE, "sink");
+        props.setProperty("cassandraProtobufDescriptorFile", descriptorSet.getPath());
+        props.setProperty("cassandraProtobufMessageType", "smartcat.Event");
+        CassandraTransformer transformer = new ProtobufCassandraTransformer();
+        transformer.init(new CassandraKinesisConnectorConfiguration(props, new DefaultAWSCredentialsProviderChain()));
+        return transformer;
+    }
+
+    private static FileDescriptorProto file() {
+        return FileDescriptorProto.newBuilder().setName("event.proto").setPackage("smartcat")
+                .addEnumType(EnumDescriptorProto.newBuilder().setName("Kind")
+                        .addValue(EnumValueDescriptorProto.newBuilder().setName("A").setNumber(0))
+                        .addValue(EnumValueDescriptorProto.newBuilder().setName("B").setNumber(1)))
+                .addMessageType(DescriptorProto.newBuilder().setName("Event")
+                        .addField(field("id", 1, FieldDescriptorProto.Type.TYPE_STRING))
+                        .addField(field("count", 2, FieldDescriptorProto.Type.TYPE_SINT32))
+                        .addField(field("time", 3, FieldDescriptorProto.Type.TYPE_INT64))
+                        .addField(field("kind", 4, FieldDescriptorProto.Type.TYPE_ENUM).setTypeName(".smartcat.Kind"))
+                        .addField(field("scores", 2000, FieldDescriptorProto.Type.TYPE_INT64)
+                                .setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+                                .setOptions(FieldOptions.newBuilder().setPacked(true))))
+                .build();
+    }
+
+    private static FieldDescriptorProto.Builder field(String name, int number, FieldDescriptorProto.Type type) {
+        return FieldDescriptorProto.newBuilder().setName(name).setNumber(number).setType(type)
+                .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL);
+    }
+
+    private static DynamicMessage event(String id, String kind) throws Exception {
+        Descriptor descriptor = FileDescriptor.buildFrom(file(), new FileDescriptor[0]).findMessageTypeByName("Event");
+        return DynamicMessage.newBuilder(descriptor)
+                .setField(descriptor.findFieldByName("id"), id)
+                .setField(descriptor.findFieldByName("count"), -3)
+                .setField(descriptor.findFieldByName("time"), 1500000000000L)
+                .setField(descriptor.findFieldByName("kind"),
+                        descriptor.getFile().findEnumTypeByName("Kind").findValueByName(kind))
+                .addRepeatedField(descriptor.findFieldByName("scores"), 1L)
+                .addRepeatedField(descriptor.findFieldByName("scores"), 2L)
+                .addRepeatedField(descriptor.findFieldByName("scores"), 300L)
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Meter;
+
+public class RecordRouterTest {
+
+    @Test
+    public void test_route_fansOutWithProjections() {
+        Properties properties = new Properties();
+        properties.setProperty("cassandraRoute.byUser.table", "events_by_user");
+        properties.setProperty("cassandraRoute.byUser.columns", "user_id, time, type");
+        properties.setProperty("cassandraRoute.clicks.table", "analytics.clicks");
+        properties.setProperty("cassandraRoute.clicks.field", "type");
+        properties.setProperty("cassandraRoute.clicks.values", "click");
+        properties.setProperty("cassandraRoute.clicks.columns", "url:page, time");
+        Meter unrouted = new Meter();
+        RecordRouter router = new RecordRouter(Route.parse("byUser,clicks", "spacekey", properties), unrouted);
+
+        List<CassandraRecord> routed = router.route(Arrays.asList(event("click"), event("view")), null);
+
+        assertThat(routed).hasSize(3);
+        assertThat(routed.get(0).getKeyspace()).isEqualTo("spacekey");
+        assertThat(routed.get(0).getTable()).isEqualTo("events_by_user");
+        assertThat(routed.get(0).getValues()).containsOnlyKeys("user_id", "time", "type");
+        assertThat(routed.get(1).getKeyspace()).isEqualTo("analytics");
+        assertThat(routed.get(1).getTable()).isEqualTo("clicks");
+        assertThat(routed.get(1).getValues()).containsOnlyKeys("page", "time");
+        assertThat(routed.get(1).getValue("page")).isEqualTo("/home");
+        assertThat(routed.get(2).getValue("type")).isEqualTo("view");
+        assertThat(unrouted.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_route_matchesPartitionKeyAndDropsUnrouted() {
+        Properties properties = new Properties();
+        properties.setProperty("cassandraRoute.eu.table", "events_eu");
+        properties.setProperty("cassandraRoute.eu.partitionKey", "eu-.*");
+        Meter unrouted = new Meter();
+        RecordRouter router = new RecordRouter(Route.parse("eu", "spacekey", properties), unrouted);
+
+        List<CassandraRecord> eu = router.route(Collections.singletonList(event("view")),
+                new RecordMetadata("eu-42", "1", 0, null));
+        List<CassandraRecord> us = router.route(Collections.singletonList(event("view")),
+                new RecordMetadata("us-42", "2", 0, null));
+
+        assertThat(eu).hasSize(1);
+        assertThat(eu.get(0).getTable()).isEqualTo("events_eu");
+        assertThat(eu.get(0).getValues()).hasSize(4);
+        assertThat(us).isEmpty();
+        assertThat(unrouted.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_parse_rejectsFieldWithoutValues() {
+        Properties properties = new Properties();
+        properties.setProperty("cassandraRoute.clicks.table", "clicks");
+        properties.setProperty("cassandraRoute.clicks.field", "type");
+        try {
+            Route.parse("clicks", "spacekey", properties);
+            fail("Route without values parsed");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("clicks");
+        }
+    }
+
+    private static CassandraRecord event(String type) {
+        CassandraRecord record = new CassandraRecord("spacekey", "events");
+        record.setValue("user_id", "u1");
+        record.setValue("time", 1000L);
+        record.setValue("type", type);
+        record.setValue("url", "/home");
+        return record;
+    }
+}
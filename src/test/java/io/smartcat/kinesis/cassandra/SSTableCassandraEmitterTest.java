@@ -0,0 +1,195 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.kinesis.connectors.UnmodifiableBuffer;
+import com.amazonaws.services.kinesis.connectors.interfaces.IBuffer;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+
+public class SSTableCassandraEmitterTest {
+
+    private static final String SCHEMA = "CREATE TABLE spacekey.\"Events\" (\n"
+            + "  id text, seq int, created timestamp, tags frozen<list<text>>,\n"
+            + "  PRIMARY KEY ((id), seq)\n) WITH comment = 'events';\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_emit_writesConvertedRowsToReadyGeneration() throws Exception {
+        SSTableCassandraEmitter emitter = emitter();
+        CassandraRecord first = record("a", "1");
+        first.setValue("created", "1970-01-01T00:00:01Z");
+        first.setTimestamp(7L);
+        CassandraRecord second = record("b", "2");
+        CassandraRecord unknown = new CassandraRecord("spacekey", "missing");
+        unknown.setValue("id", "c");
+
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(Arrays.asList(first, second),
+                Collections.singletonList(unknown)));
+
+        assertThat(failed).containsExactly(Collections.singletonList(unknown));
+        Path output = folder.getRoot().toPath().resolve("sstables");
+        assertThat(files(output.resolve("in-progress"))).isEmpty();
+        List<Path> written = files(output.resolve("ready"));
+        assertThat(written).hasSize(2);
+        for (Path file : written) {
+            assertThat(file.getParent().endsWith("spacekey/Events")).isTrue();
+        }
+
+        List<String> contents = new ArrayList<>();
+        for (Path file : written) {
+            contents.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+        }
+        assertThat(contents).contains(
+                "INSERT INTO \"spacekey\".\"Events\" (\"created\", \"id\", \"seq\") VALUES (?, ?, ?) USING TIMESTAMP ?",
+                "[" + new Date(1000) + ", a, 1, 7]",
+                "INSERT INTO \"spacekey\".\"Events\" (\"id\", \"seq\") VALUES (?, ?)",
+                "[b, 2]");
+    }
+
+    @Test
+    public void test_emit_writesSSTablesWithCqlSSTableWriter() throws Exception {
+        SSTableCassandraEmitter emitter = new SSTableCassandraEmitter();
+        emitter.init(config());
+        CassandraRecord record = record("a", "1");
+        record.setValue("tags", Arrays.asList("x", "y"));
+        record.setTtl(60);
+
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(Arrays.asList(record, record("b", "2"))));
+
+        assertThat(failed).isEmpty();
+        List<Path> written = files(folder.getRoot().toPath().resolve("sstables").resolve("ready"));
+        List<Path> data = written.stream().filter(file -> file.getFileName().toString().endsWith("-Data.db"))
+                .collect(Collectors.toList());
+        assertThat(data).hasSize(2);
+        for (Path file : data) {
+            assertThat(file.getParent().endsWith("spacekey/Events")).isTrue();
+            assertThat(Files.size(file)).isGreaterThan(0);
+        }
+    }
+
+    @Test
+    public void test_emit_rewritesGenerationWithoutGroupFailedPartway() throws Exception {
+        SSTableCassandraEmitter emitter = emitter();
+        List<CassandraRecord> partial = Arrays.asList(record("a", "1"), record("reject", "2"));
+        List<CassandraRecord> complete = Collections.singletonList(record("b", "3"));
+
+        List<List<CassandraRecord>> failed = emitter.emit(buffer(partial, complete));
+
+        assertThat(failed).containsExactly(partial);
+        Path output = folder.getRoot().toPath().resolve("sstables");
+        assertThat(files(output.resolve("in-progress"))).isEmpty();
+        List<Path> written = files(output.resolve("ready"));
+        assertThat(written).hasSize(1);
+        assertThat(Files.readAllLines(written.get(0), StandardCharsets.UTF_8))
+                .containsExactly("INSERT INTO \"spacekey\".\"Events\" (\"id\", \"seq\") VALUES (?, ?)", "[b, 3]");
+    }
+
+    @Test
+    public void test_parse_readsColumnTypesAndPrimaryKey() {
+        TableSchema schema = CqlTableParser.parse(SCHEMA.trim(), CodecRegistry.DEFAULT_INSTANCE);
+
+        assertThat(schema.getKeyspace()).isEqualTo("spacekey");
+        assertThat(schema.getTable()).isEqualTo("Events");
+        assertThat(schema.getPrimaryKey()).containsExactly("id", "seq");
+        assertThat(schema.getColumn("SEQ").getType()).isEqualTo(DataType.cint());
+        assertThat(schema.getColumn("tags").getType()).isEqualTo(DataType.list(DataType.text()));
+    }
+
+    @Test
+    public void test_parse_readsIdentifiersStartingWithKeywords() {
+        TableSchema schema = CqlTableParser.parse("CREATE TABLE if_ks.t (primary_id text PRIMARY KEY, static_x int)",
+                CodecRegistry.DEFAULT_INSTANCE);
+
+        assertThat(schema.getKeyspace()).isEqualTo("if_ks");
+        assertThat(schema.getTable()).isEqualTo("t");
+        assertThat(schema.getPrimaryKey()).containsExactly("primary_id");
+        assertThat(schema.getColumn("static_x").getType()).isEqualTo(DataType.cint());
+    }
+
+    @Test
+    public void test_parse_skipsComments() {
+        TableSchema schema = CqlTableParser.parse("-- events\nCREATE TABLE /* the events */ ks.t (\n"
+                + "  id text, // partition\n  seq int -- clustering\n  , PRIMARY KEY (id, seq)\n)",
+                CodecRegistry.DEFAULT_INSTANCE);
+
+        assertThat(schema.getPrimaryKey()).containsExactly("id", "seq");
+        assertThat(schema.getColumn("seq").getType()).isEqualTo(DataType.cint());
+    }
+
+    private CassandraKinesisConnectorConfiguration config() throws IOException {
+        Path schemas = folder.newFolder("schemas").toPath();
+        Files.write(schemas.resolve("events.cql"), SCHEMA.getBytes(StandardCharsets.UTF_8));
+        Properties properties = new Properties();
+        properties.setProperty("cassandraSSTableDirectory", folder.getRoot().toPath().resolve("sstables").toString());
+        properties.setProperty("cassandraSSTableSchemaDirectory", schemas.toString());
+        return new CassandraKinesisConnectorConfiguration(properties, new DefaultAWSCredentialsProviderChain());
+    }
+
+    private SSTableCassandraEmitter emitter() throws IOException {
+        SSTableCassandraEmitter emitter = new SSTableCassandraEmitter() {
+            @Override
+            RowWriter createWriter(Path tableDirectory, String schema, String insert) throws IOException {
+                Path file = Files.createTempFile(tableDirectory, "rows", ".txt");
+                List<String> lines = new ArrayList<>(Collections.singletonList(insert));
+                return new RowWriter() {
+                    @Override
+                    public void addRow(List<Object> values) {
+                        if (values.contains("reject")) {
+                            throw new IllegalArgumentException("Rejected row " + values);
+                        }
+                        lines.add(values.toString());
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        Files.write(file, lines, StandardCharsets.UTF_8);
+                    }
+                };
+            }
+        };
+        emitter.init(config());
+        return emitter;
+    }
+
+    private static CassandraRecord record(String id, String seq) {
+        CassandraRecord record = new CassandraRecord("spacekey", "Events");
+        record.setValue("id", id);
+        record.setValue("seq", seq);
+        return record;
+    }
+
+    @SafeVarargs
+    private static UnmodifiableBuffer<List<CassandraRecord>> buffer(List<CassandraRecord>... records) {
+        @SuppressWarnings("unchecked")
+        IBuffer<List<CassandraRecord>> buffer = mock(IBuffer.class);
+        return new UnmodifiableBuffer<>(buffer, Arrays.asList(records));
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try (Stream<Path> tree = Files.walk(directory)) {
+            return tree.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
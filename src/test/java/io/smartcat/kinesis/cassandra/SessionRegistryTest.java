@@ -0,0 +1,74 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Session;
+
+public class SessionRegistryTest {
+
+    private final List<Session> connected = new ArrayList<>();
+
+    private final Function<CassandraKinesisConnectorConfiguration, Session> connector = config -> {
+        Cluster cluster = mock(Cluster.class);
+        Session session = mock(Session.class);
+        when(session.getCluster()).thenReturn(cluster);
+        connected.add(session);
+        return session;
+    };
+
+    @Test
+    public void test_acquire_sharesSessionByConfigKey() {
+        Session first = SessionRegistry.acquire(config("10.0.0.1", "9042"), connector);
+        Session second = SessionRegistry.acquire(config("10.0.0.1", "9042"), connector);
+        Session other = SessionRegistry.acquire(config("10.0.0.1", "9043"), connector);
+        try {
+            assertThat(second).isSameAs(first);
+            assertThat(other).isNotSameAs(first);
+            assertThat(connected).containsExactly(first, other);
+        } finally {
+            SessionRegistry.release(first);
+            SessionRegistry.release(second);
+            SessionRegistry.release(other);
+        }
+    }
+
+    @Test
+    public void test_release_closesClusterOnLastRelease() {
+        Session first = SessionRegistry.acquire(config("10.0.0.2", "9042"), connector);
+        Session second = SessionRegistry.acquire(config("10.0.0.2", "9042"), connector);
+
+        SessionRegistry.release(first);
+        verify(first.getCluster(), never()).close();
+        SessionRegistry.release(second);
+        verify(first.getCluster()).close();
+
+        Session reconnected = SessionRegistry.acquire(config("10.0.0.2", "9042"), connector);
+        try {
+            assertThat(reconnected).isNotSameAs(first);
+            assertThat(connected).hasSize(2);
+        } finally {
+            SessionRegistry.release(reconnected);
+        }
+    }
+
+    private static CassandraKinesisConnectorConfiguration config(String contactPoints, String port) {
+        Properties props = new Properties();
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_CONTACT_POINTS,
+                contactPoints);
+        props.setProperty(CassandraKinesisConnectorConfiguration.ConfigurationOptions.PROP_CASSANDRA_PORT, port);
+        return new CassandraKinesisConnectorConfiguration(props, new DefaultAWSCredentialsProviderChain());
+    }
+}
@@ -0,0 +1,152 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpillQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_peek_returnsRecordsWithTheirValues() throws Exception {
+        SpillQueue queue = open(folder.getRoot().toPath(), 1024 * 1024, 4);
+        CassandraRecord record = new CassandraRecord("spacekey", "sink");
+        record.setValue("id", UUID.randomUUID());
+        record.setValue("count", 42);
+        record.setValue("amount", new BigDecimal("12.50"));
+        record.setValue("created", new Date(1000));
+        record.setValue("tags", Arrays.asList("a", "b"));
+        record.setValue("attributes", Collections.singletonMap("k", 1L));
+        record.setValue("comment", null);
+        record.setTimestamp(123L);
+        record.setTtl(86400);
+
+        assertThat(queue.append(Collections.singletonList(record))).isEqualTo(0);
+        List<CassandraRecord> read = queue.peek(10).getRecords();
+        queue.close();
+
+        assertThat(read).hasSize(1);
+        assertThat(read.get(0).getKeyspace()).isEqualTo("spacekey");
+        assertThat(read.get(0).getTable()).isEqualTo("sink");
+        assertThat(read.get(0).getTimestamp()).isEqualTo(123L);
+        assertThat(read.get(0).getTtl()).isEqualTo(86400);
+        assertThat(read.get(0).getValues()).isEqualTo(record.getValues());
+    }
+
+    @Test
+    public void test_open_recoversRecordsNotCommitted() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        SpillQueue queue = open(directory, 1024, 8);
+        queue.append(records(0, 30));
+        SpillQueue.Batch batch = queue.peek(10);
+        queue.commit(batch.getPosition());
+        queue.close();
+
+        queue = open(directory, 1024, 8);
+        List<String> ids = new ArrayList<>();
+        for (batch = queue.peek(7); !batch.getRecords().isEmpty(); batch = queue.peek(7)) {
+            for (CassandraRecord record : batch.getRecords()) {
+                ids.add((String) record.getValue("id"));
+            }
+            queue.commit(batch.getPosition());
+        }
+        queue.close();
+
+        assertThat(ids).hasSize(20);
+        assertThat(ids.get(0)).isEqualTo("10");
+        assertThat(ids.get(ids.size() - 1)).isEqualTo("29");
+        assertThat(segments(directory)).isEmpty();
+    }
+
+    @Test
+    public void test_peek_movesPastHeadReadBeforeNewerSegmentWasCreated() throws Exception {
+        SpillQueue sizing = open(folder.newFolder().toPath(), 1024, 1);
+        sizing.append(records(0, 1));
+        int entryBytes = (int) sizing.size();
+        sizing.close();
+
+        Path directory = folder.newFolder().toPath();
+        SpillQueue queue = open(directory, 2 * entryBytes, 4);
+        queue.append(records(0, 2));
+        SpillQueue.Batch batch = queue.peek(10);
+        assertThat(batch.getRecords()).hasSize(2);
+        queue.commit(batch.getPosition());
+
+        queue.append(records(2, 4));
+        List<String> ids = new ArrayList<>();
+        for (batch = queue.peek(10); !batch.getRecords().isEmpty(); batch = queue.peek(10)) {
+            for (CassandraRecord record : batch.getRecords()) {
+                ids.add((String) record.getValue("id"));
+            }
+            queue.commit(batch.getPosition());
+        }
+        queue.close();
+
+        assertThat(ids).containsExactly("2", "3");
+        assertThat(segments(directory)).isEmpty();
+    }
+
+    @Test
+    public void test_append_stampsRecordsWithoutTimestamp() throws Exception {
+        SpillQueue queue = open(folder.getRoot().toPath(), 1024, 2);
+        long before = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        List<CassandraRecord> records = records(0, 2);
+        records.get(1).setTimestamp(123L);
+
+        queue.append(records);
+        List<CassandraRecord> read = queue.peek(10).getRecords();
+        queue.close();
+
+        assertThat(read.get(0).getTimestamp()).isBetween(before,
+                TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+        assertThat(read.get(1).getTimestamp()).isEqualTo(123L);
+    }
+
+    @Test
+    public void test_append_rejectsRecordsWhenFull() throws Exception {
+        SpillQueue queue = open(folder.getRoot().toPath(), 256, 2);
+
+        int rejected = queue.append(records(0, 100));
+        int accepted = 0;
+        for (SpillQueue.Batch batch = queue.peek(100); !batch.getRecords().isEmpty(); batch = queue.peek(100)) {
+            accepted += batch.getRecords().size();
+            queue.commit(batch.getPosition());
+        }
+        queue.close();
+
+        assertThat(rejected).isGreaterThan(0);
+        assertThat(accepted + rejected).isEqualTo(100);
+    }
+
+    private static SpillQueue open(Path directory, int segmentBytes, int maxSegments) throws Exception {
+        return new SpillQueue(directory, segmentBytes, maxSegments, SpillQueue.FsyncPolicy.ALWAYS, 0);
+    }
+
+    private static String[] segments(Path directory) {
+        return directory.toFile().list((dir, name) -> name.endsWith(".log"));
+    }
+
+    private static List<CassandraRecord> records(int from, int to) {
+        List<CassandraRecord> records = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            CassandraRecord record = new CassandraRecord("spacekey", "sink");
+            record.setValue("id", Integer.toString(i));
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,55 @@
+package io.smartcat.kinesis.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.kinesis.model.Record;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class StatusServerTest {
+
+    @Test
+    public void test_status_reportsShardLag() throws Exception {
+        long now = System.currentTimeMillis();
+        ShardLag lag = ShardLag.register("shardId-test");
+        StatusServer server = new StatusServer(
+                CassandraKinesisConnectorConfiguration.ConfigurationOptions.DEFAULT_CASSANDRA_STATUS_ADDRESS, 0);
+        try {
+            lag.received(Arrays.asList(record(now - 60000), record(now - 30000)));
+            assertThat(lag.getMillisBehindLatest()).isBetween(30000L, 35000L);
+            assertThat(lag.getFreshnessMillis()).isEqualTo(-1);
+            lag.written();
+            lag.received(Collections.singletonList(record(now - 1000)));
+
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort()
+                    + "/status").openConnection();
+            Map<?, ?> status;
+            try (InputStream in = connection.getInputStream()) {
+                status = new ObjectMapper().readValue(in, Map.class);
+            }
+
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            Map<?, ?> shard = (Map<?, ?>) ((Map<?, ?>) status.get("shards")).get("shardId-test");
+            assertThat(((Number) shard.get("millisBehindLatest")).longValue()).isBetween(1000L, 5000L);
+            assertThat(((Number) shard.get("freshnessMillis")).longValue()).isBetween(30000L, 35000L);
+            assertThat(((Number) shard.get("writtenArrivalTimestamp")).longValue()).isEqualTo(now - 30000);
+        } finally {
+            server.stop();
+            ShardLag.unregister("shardId-test", lag);
+        }
+        assertThat(ShardLag.all()).doesNotContainKey("shardId-test");
+    }
+
+    private static Record record(long arrivalMillis) {
+        return new Record().withApproximateArrivalTimestamp(new Date(arrivalMillis));
+    }
+}